@@ -0,0 +1,78 @@
+package com.frost.entitylocker.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.AcquisitionPolicy;
+import com.frost.entitylocker.lockers.EntityLocker;
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares parking with adaptive spinning before parking in ConcurrentMapEntityLocker when all threads compete
+ * for one entity id and protected code is short. Spinning should win for short code and fall back to parking
+ * for long code.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AcquisitionPolicyBenchmark {
+
+  private static final Integer HOT_ID = 1;
+
+  @Param({"PARK", "ADAPTIVE_SPIN"})
+  public AcquisitionPolicy policy;
+
+  @Param({"0", "64", "4096"})
+  public int workTokens; // Work done inside of protected code
+
+  EntityLocker<Integer> locker;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    locker = EntityLockerFactory.getConcurrentEntityLocker(policy);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public void hotId2() throws InterruptedException {
+    lockUnlock();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void hotId4() throws InterruptedException {
+    lockUnlock();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void hotIdMax() throws InterruptedException {
+    lockUnlock();
+  }
+
+  private void lockUnlock() throws InterruptedException {
+    locker.lockId(HOT_ID);
+    try {
+      Blackhole.consumeCPU(workTokens);
+    } finally {
+      locker.unlockId(HOT_ID);
+    }
+  }
+
+}
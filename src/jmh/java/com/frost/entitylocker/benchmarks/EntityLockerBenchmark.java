@@ -0,0 +1,151 @@
+package com.frost.entitylocker.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.EntityLocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput of EntityLocker implementations for different workloads and distributions of entity ids.
+ * Run with {@code ./gradlew jmh}, the gc profiler is enabled in build.gradle to report allocation rate.
+ * <p>
+ * Uncontended benchmarks use a single thread, contended benchmarks run the same code on 4 threads and on
+ * as many threads as there are available processors. Each thread works with its own sequence of ids,
+ * so with HOT distribution all threads compete for one id and with UNIFORM they rarely meet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityLockerBenchmark {
+
+  private static final int KEY_COUNT     = 1024;
+  private static final int SEQUENCE_SIZE = 1 << 16; // Power of two to wrap position by mask
+  private static final int WORK_TOKENS   = 16;      // Work done inside of protected code
+
+  @Param({"UNSAFE", "SEQUENTIAL", "CONCURRENT", "CONCURRENT_POOLED", "CONCURRENT_ADAPTIVE_SPIN", "CONCURRENT_METRICS",
+      "READ_WRITE", "STAMPED", "STRIPED", "CAS", "OWNER_TOKEN", "ESCALATING", "RANGE"})
+  public LockerType lockerType;
+
+  @Param({"UNIFORM", "ZIPFIAN", "HOT"})
+  public KeyDistribution distribution;
+
+  EntityLocker<Integer> locker;
+  Integer[]             keys; // Preallocated ids, so benchmarks don't measure boxing
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    locker = lockerType.create();
+    keys = new Integer[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = i;
+    }
+  }
+
+  /**
+   * Sequence of entity ids of one benchmark thread
+   */
+  @State(Scope.Thread)
+  public static class Ids {
+
+    int[] sequence;
+    int   position;
+
+    @Setup(Level.Trial)
+    public void setUp(EntityLockerBenchmark benchmark, ThreadParams threads) {
+      sequence = benchmark.distribution.sample(new Random(threads.getThreadIndex()), KEY_COUNT, SEQUENCE_SIZE);
+    }
+
+    Integer next(Integer[] keys) {
+      return keys[sequence[position++ & (SEQUENCE_SIZE - 1)]];
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void uncontendedLockUnlock(Ids ids) throws InterruptedException {
+    lockUnlock(ids.next(keys));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void uncontendedReentrant(Ids ids) throws InterruptedException {
+    Integer id = ids.next(keys);
+    locker.lockId(id);
+    try {
+      locker.lockId(id);
+      locker.unlockId(id);
+    } finally {
+      locker.unlockId(id);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean uncontendedTryLock(Ids ids) throws InterruptedException {
+    return tryLockUnlock(ids.next(keys));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void contendedLockUnlock4(Ids ids) throws InterruptedException {
+    lockUnlock(ids.next(keys));
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void contendedLockUnlockMax(Ids ids) throws InterruptedException {
+    lockUnlock(ids.next(keys));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean contendedTryLock4(Ids ids) throws InterruptedException {
+    return tryLockUnlock(ids.next(keys));
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public boolean contendedTryLockMax(Ids ids) throws InterruptedException {
+    return tryLockUnlock(ids.next(keys));
+  }
+
+  private void lockUnlock(Integer id) throws InterruptedException {
+    locker.lockId(id);
+    try {
+      Blackhole.consumeCPU(WORK_TOKENS);
+    } finally {
+      locker.unlockId(id);
+    }
+  }
+
+  private boolean tryLockUnlock(Integer id) throws InterruptedException {
+    if (!locker.tryLockId(id, 1, TimeUnit.MILLISECONDS)) {
+      return false;
+    }
+    try {
+      Blackhole.consumeCPU(WORK_TOKENS);
+    } finally {
+      locker.unlockId(id);
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.frost.entitylocker.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Distributions of entity ids used by benchmarks. Sequences of ids are generated before measurement,
+ * so generation cost doesn't affect results.
+ */
+public enum KeyDistribution {
+
+  /**
+   * Each id is equally likely
+   */
+  UNIFORM {
+    @Override
+    int[] sample(Random random, int keyCount, int length) {
+      int[] result = new int[length];
+      for (int i = 0; i < length; i++) {
+        result[i] = random.nextInt(keyCount);
+      }
+      return result;
+    }
+  },
+
+  /**
+   * Probability of id with rank k is proportional to 1 / k^0.99 like in YCSB
+   */
+  ZIPFIAN {
+    @Override
+    int[] sample(Random random, int keyCount, int length) {
+      double[] cdf = new double[keyCount];
+      double   sum = 0;
+      for (int k = 0; k < keyCount; k++) {
+        sum += 1.0 / Math.pow(k + 1, ZIPFIAN_EXPONENT);
+        cdf[k] = sum;
+      }
+      int[] result = new int[length];
+      for (int i = 0; i < length; i++) {
+        double value = random.nextDouble() * sum;
+        int    low   = 0;
+        int    high  = keyCount - 1;
+        while (low < high) { // The first id with cumulative weight greater than value
+          int mid = (low + high) >>> 1;
+          if (cdf[mid] <= value) {
+            low = mid + 1;
+          } else {
+            high = mid;
+          }
+        }
+        result[i] = low;
+      }
+      return result;
+    }
+  },
+
+  /**
+   * All threads use the same id
+   */
+  HOT {
+    @Override
+    int[] sample(Random random, int keyCount, int length) {
+      return new int[length];
+    }
+  };
+
+  private static final double ZIPFIAN_EXPONENT = 0.99;
+
+  /**
+   * @param random   source of randomness
+   * @param keyCount count of distinct ids
+   * @param length   length of the sequence
+   * @return sequence of indexes of ids in range [0, keyCount)
+   */
+  abstract int[] sample(Random random, int keyCount, int length);
+
+}
@@ -0,0 +1,94 @@
+package com.frost.entitylocker.benchmarks;
+
+import com.frost.entitylocker.lockers.AcquisitionPolicy;
+import com.frost.entitylocker.lockers.EntityLocker;
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import com.frost.entitylocker.metrics.LockMetrics;
+
+/**
+ * EntityLocker implementations compared by benchmarks, new lockers should be added here
+ */
+public enum LockerType {
+
+  UNSAFE {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getUnsafeEntityLocker();
+    }
+  },
+  SEQUENTIAL {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getSequentialEntityLocker();
+    }
+  },
+  CONCURRENT {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getConcurrentEntityLocker();
+    }
+  },
+  CONCURRENT_POOLED {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder().withLockPool(16).build();
+    }
+  },
+  CONCURRENT_ADAPTIVE_SPIN {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getConcurrentEntityLocker(AcquisitionPolicy.ADAPTIVE_SPIN);
+    }
+  },
+  CONCURRENT_METRICS {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder().withMetrics(new LockMetrics()).build();
+    }
+  },
+  READ_WRITE {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getReadWriteEntityLocker();
+    }
+  },
+  STAMPED {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getStampedEntityLocker();
+    }
+  },
+  STRIPED {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getStripedEntityLocker();
+    }
+  },
+  CAS {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getCasEntityLocker();
+    }
+  },
+  OWNER_TOKEN {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getOwnerTokenEntityLocker();
+    }
+  },
+  ESCALATING {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getEscalatingEntityLocker(64);
+    }
+  },
+  RANGE {
+    @Override
+    EntityLocker<Integer> create() {
+      return EntityLockerFactory.getRangeEntityLocker();
+    }
+  };
+
+  abstract EntityLocker<Integer> create();
+
+}
@@ -0,0 +1,101 @@
+package com.frost.entitylocker.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import com.frost.entitylocker.lockers.RangeEntityLocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of point locks of RangeEntityLocker with and without a held range of ids next to the locked ids.
+ * Point locks outside of the range should not slow down while the range is held.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeLockBenchmark {
+
+  private static final int KEY_COUNT   = 1024;
+  private static final int WORK_TOKENS = 16; // Work done inside of protected code
+
+  @Param({"false", "true"})
+  public boolean rangeHeld;
+
+  RangeEntityLocker<Integer> locker;
+  Integer[]                  keys; // Preallocated ids, so benchmarks don't measure boxing
+  CountDownLatch             release;
+  Thread                     rangeOwner;
+
+  @Setup(Level.Trial)
+  public void setUp() throws InterruptedException {
+    locker = EntityLockerFactory.getRangeEntityLocker();
+    keys = new Integer[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = i;
+    }
+    release = new CountDownLatch(1);
+    if (rangeHeld) {
+      CountDownLatch locked = new CountDownLatch(1);
+      rangeOwner = new Thread(() -> {
+        try {
+          locker.lockRange(KEY_COUNT, KEY_COUNT * 2); // Range right after the ids locked by benchmark threads
+          locked.countDown();
+          release.await();
+          locker.unlockRange(KEY_COUNT, KEY_COUNT * 2);
+        } catch (InterruptedException ignored) {
+        }
+      });
+      rangeOwner.start();
+      locked.await();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    release.countDown();
+    if (rangeOwner != null) {
+      rangeOwner.join();
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void pointLockUnlock4() throws InterruptedException {
+    lockUnlock(keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void pointLockUnlockMax() throws InterruptedException {
+    lockUnlock(keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+  }
+
+  private void lockUnlock(Integer id) throws InterruptedException {
+    locker.lockId(id);
+    try {
+      Blackhole.consumeCPU(WORK_TOKENS);
+    } finally {
+      locker.unlockId(id);
+    }
+  }
+
+}
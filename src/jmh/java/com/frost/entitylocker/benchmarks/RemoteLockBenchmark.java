@@ -0,0 +1,94 @@
+package com.frost.entitylocker.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.remote.LoopbackLockServer;
+import com.frost.entitylocker.remote.RemoteEntityLocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput of RemoteEntityLocker clients sharing one LoopbackLockServer. With a single client all grants
+ * stay cached after the first acquisition, with two clients grants of ids used by both are revoked and requested
+ * again, and zero cached grants sends every acquisition to the server.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RemoteLockBenchmark {
+
+  private static final int KEY_COUNT   = 1024;
+  private static final int WORK_TOKENS = 16; // Work done inside of protected code
+
+  @Param({"1", "2"})
+  public int clients;
+
+  @Param({"0", "1024"})
+  public int maxCachedGrants;
+
+  LoopbackLockServer            server;
+  RemoteEntityLocker<Integer>[] lockers;
+  Integer[]                     keys; // Preallocated ids, so benchmarks don't measure boxing
+
+  @Setup(Level.Trial)
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void setUp() {
+    server = new LoopbackLockServer();
+    lockers = new RemoteEntityLocker[clients];
+    for (int i = 0; i < clients; i++) {
+      lockers[i] = new RemoteEntityLocker<>(server.connect(), maxCachedGrants);
+    }
+    keys = new Integer[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = i;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (RemoteEntityLocker<Integer> locker : lockers) {
+      locker.close();
+    }
+    server.close();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void lockUnlock4(ThreadParams params) throws InterruptedException {
+    lockUnlock(lockers[params.getThreadIndex() % clients], keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void lockUnlockMax(ThreadParams params) throws InterruptedException {
+    lockUnlock(lockers[params.getThreadIndex() % clients], keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+  }
+
+  private void lockUnlock(RemoteEntityLocker<Integer> locker, Integer id) throws InterruptedException {
+    locker.lockId(id);
+    try {
+      Blackhole.consumeCPU(WORK_TOKENS);
+    } finally {
+      locker.unlockId(id);
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.frost.entitylocker.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.executors.ProtectedCodeExecutor;
+import com.frost.entitylocker.executors.SerialCodeExecutor;
+import com.frost.entitylocker.executors.ShardedCodeExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of short protected code on a single hot id: blocking execution under the lock of
+ * ProtectedCodeExecutor against queued execution in batches of SerialCodeExecutor and execution
+ * on the shard worker of ShardedCodeExecutor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@Threads(4)
+public class SerialExecutorBenchmark {
+
+  private static final Integer HOT_ID      = 1;
+  private static final int     WORK_TOKENS = 16; // Work done inside of protected code
+
+  final ProtectedCodeExecutor<Integer> lockingExecutor = new ProtectedCodeExecutor<>();
+  final SerialCodeExecutor<Integer>    serialExecutor  = new SerialCodeExecutor<>();
+  final ShardedCodeExecutor<Integer>   shardedExecutor = new ShardedCodeExecutor<>();
+
+  @TearDown
+  public void tearDown() {
+    shardedExecutor.close();
+  }
+
+  @Benchmark
+  public void locking() throws Exception {
+    lockingExecutor.execute(HOT_ID, () -> Blackhole.consumeCPU(WORK_TOKENS));
+  }
+
+  @Benchmark
+  public void serial() throws Exception {
+    serialExecutor.execute(HOT_ID, () -> Blackhole.consumeCPU(WORK_TOKENS));
+  }
+
+  @Benchmark
+  public void sharded() throws Exception {
+    shardedExecutor.execute(HOT_ID, () -> Blackhole.consumeCPU(WORK_TOKENS));
+  }
+
+}
@@ -0,0 +1,231 @@
+package com.frost.entitylocker.executors;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.frost.entitylocker.lockers.EntityLocker;
+
+/**
+ * Per-entity queues of asynchronous protected code. Only the head task of each entity is submitted to its executor,
+ * other tasks of the same entity wait in the queue without occupying threads. When the head task completes it hands
+ * the entity directly to the next queued task by submitting it to the executor of that task.
+ * The head task still locks entity id in the locker on the executor thread, so asynchronous code is also
+ * mutually exclusive with synchronous code executed on the same locker.
+ * <p>
+ * Executor that runs the next task in place (like Runnable::run) would nest each task in the stack of the previous one,
+ * so a task submitted in place during the handoff is left to the loop of the completing task instead.
+ *
+ * @param <T> type of Entity id
+ */
+final class AsyncTaskQueues<T> {
+
+  private final EntityLocker<T>                          locker;
+  private final ConcurrentMap<T, ArrayDeque<AsyncTask>>  queues   = new ConcurrentHashMap<>(); // Entry exists while entity has a head task
+  private final ThreadLocal<Handoff>                     handoffs = ThreadLocal.withInitial(Handoff::new);
+
+  AsyncTaskQueues(EntityLocker<T> locker) {
+    this.locker = locker;
+  }
+
+  /**
+   * Queues protected code for entity id
+   *
+   * @param entityId    entity id to lock
+   * @param nanoseconds maximal time from submitting till locking entity id, negative for unlimited waiting
+   * @param code        code that should be executed in protected mode
+   * @param executor    executor that runs the code
+   * @param executed    result of the future after execution, waiting can't elapse if it isn't Boolean
+   * @param <R>         type of the result
+   * @return future completed with executed value after execution, {@code false} if the waiting time elapsed
+   *         or exceptionally if the code threw an exception, cancelled future skips the code
+   */
+  @SuppressWarnings("unchecked")
+  <R> CompletableFuture<R> submit(T entityId, long nanoseconds, ProtectedCode code, Executor executor, R executed) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Objects.requireNonNull(code, "Code must not be null");
+    Objects.requireNonNull(executor, "Executor must not be null");
+    AsyncTask task = new AsyncTask(entityId, nanoseconds, code, executor, executed);
+    boolean[] head = new boolean[1];
+    queues.compute(entityId, (key, queue) -> {
+      if (queue == null) {
+        head[0] = true;
+        return new ArrayDeque<>(2);
+      }
+      queue.add(task);
+      return queue;
+    });
+    if (nanoseconds >= 0) {
+      task.scheduleTimeout(nanoseconds);
+    }
+    if (head[0]) {
+      dispatch(task);
+    }
+    return (CompletableFuture<R>) task.future;
+  }
+
+  private void dispatch(AsyncTask task) {
+    while (task != null) {
+      AsyncTask current = task;
+      try {
+        current.executor.execute(current);
+        return;
+      } catch (RejectedExecutionException e) {
+        current.cancelTimeout(); // Otherwise it fires later against the failed task
+        current.future.completeExceptionally(e);
+        task = pollNext(current.entityId);
+      }
+    }
+  }
+
+  private AsyncTask pollNext(T entityId) {
+    Object[] next = new Object[1];
+    queues.computeIfPresent(entityId, (key, queue) -> {
+      next[0] = queue.poll();
+      return next[0] == null ? null : queue;
+    });
+    @SuppressWarnings("unchecked")
+    AsyncTask task = (AsyncTask) next[0];
+    return task;
+  }
+
+  private final class AsyncTask implements Runnable {
+
+    private static final int WAITING   = 0;
+    private static final int STARTED   = 1;
+    private static final int TIMED_OUT = 2;
+
+    final T                          entityId;
+    final ProtectedCode              code;
+    final Executor                   executor;
+    final Object                     executed;
+    final CompletableFuture<Object>  future = new CompletableFuture<>();
+    final AtomicInteger              state  = new AtomicInteger(WAITING);
+    final long                       deadline;
+    final boolean                    timed;
+    volatile ScheduledFuture<?>      timeout;
+
+    AsyncTask(T entityId, long nanoseconds, ProtectedCode code, Executor executor, Object executed) {
+      this.entityId = entityId;
+      this.code = code;
+      this.executor = executor;
+      this.executed = executed;
+      this.timed = nanoseconds >= 0;
+      this.deadline = System.nanoTime() + nanoseconds;
+    }
+
+    void scheduleTimeout(long nanoseconds) {
+      timeout = Timer.INSTANCE.schedule(() -> {
+        if (state.compareAndSet(WAITING, TIMED_OUT)) {
+          future.complete(Boolean.FALSE); // The task is dropped when it reaches the head of the queue
+        }
+      }, nanoseconds, TimeUnit.NANOSECONDS);
+      if (future.isDone()) {
+        cancelTimeout(); // Queued task could be rejected or executed before its timeout was scheduled
+      }
+    }
+
+    void cancelTimeout() {
+      ScheduledFuture<?> scheduled = timeout;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+    }
+
+    @Override
+    public void run() {
+      Handoff handoff = handoffs.get();
+      if (handoff.active) {
+        handoff.next = this; // Executed in place by the handoff of the previous task, its loop runs this task
+        return;
+      }
+      for (AsyncTask task = this; task != null; task = handoff.take()) {
+        try {
+          task.runOnce();
+        } finally {
+          handoff.active = true;
+          try {
+            dispatch(pollNext(task.entityId));
+          } finally {
+            handoff.active = false;
+          }
+        }
+      }
+    }
+
+    private void runOnce() {
+      if (state.compareAndSet(WAITING, STARTED) && !future.isDone()) { // Skip timed out and cancelled tasks
+        cancelTimeout();
+        execute();
+      }
+    }
+
+    private void execute() {
+      try {
+        if (timed) {
+          if (!locker.tryLockId(entityId, Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            future.complete(Boolean.FALSE);
+            return;
+          }
+        } else {
+          locker.lockId(entityId);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.completeExceptionally(e);
+        return;
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      try {
+        code.run();
+        future.complete(executed);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        locker.unlockId(entityId);
+      }
+    }
+  }
+
+  /**
+   * Handoff state of the current thread
+   */
+  private final class Handoff {
+
+    boolean   active; // The thread submits the next task of a queue
+    AsyncTask next; // Task that the executor tried to run in place during the handoff
+
+    AsyncTask take() {
+      AsyncTask task = next;
+      next = null;
+      return task;
+    }
+  }
+
+  /**
+   * Single daemon thread that completes timed out tasks
+   */
+  private static final class Timer {
+
+    static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "entity-locker-async-timeouts");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    static {
+      INSTANCE.setRemoveOnCancelPolicy(true);
+    }
+  }
+
+}
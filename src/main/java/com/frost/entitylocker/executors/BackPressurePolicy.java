@@ -0,0 +1,23 @@
+package com.frost.entitylocker.executors;
+
+/**
+ * What ShardedCodeExecutor does with code submitted to a shard whose queue is full
+ */
+public enum BackPressurePolicy {
+
+  /**
+   * Submitting thread waits until the queue has free space. It slows producers down to the speed of the shard.
+   */
+  BLOCK,
+
+  /**
+   * Future of the code is completed exceptionally with RejectedExecutionException, the code is not executed.
+   */
+  REJECT,
+
+  /**
+   * Code is executed by the submitting thread. Execution is still exclusive with the worker of the shard,
+   * and the submitting thread first executes the code waiting in the queue, so submission order is kept.
+   */
+  CALLER_RUNS
+}
@@ -1,6 +1,9 @@
 package com.frost.entitylocker.executors;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * Interface provides methods for running protected code on entity
@@ -35,4 +38,58 @@ public interface CodeExecutor<T> {
    * @throws IllegalArgumentException if milliseconds count is negative
    */
   boolean tryToExecute(T entityId, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException;
+
+  /**
+   * Run protected code using several entity ids, guarantees that only one thread works with each of these
+   * entity ids in each moment of time. Ids are locked in canonical order, so such calls can't deadlock with each other.
+   *
+   * @param entityIds entity ids to lock
+   * @param code      code that should be executed in protected mode
+   * @throws InterruptedException if locking was interrupted
+   * @throws ExecutionException   if the execution threw an exception
+   * @throws NullPointerException in case collection or any entity id is null
+   */
+  void execute(Collection<T> entityIds, ProtectedCode code) throws ExecutionException, InterruptedException;
+
+  /**
+   * Trying to execute protected code using several entity ids within the given waiting time for all ids.
+   *
+   * @param entityIds    entity ids to lock
+   * @param milliseconds the time to wait
+   * @param code         code that should be executed in protected mode
+   * @return {@code true} if the code was executed and {@code false} if the waiting time elapsed before
+   *         we have possibility to execute code in protected mode
+   * @throws InterruptedException     if locking was interrupted
+   * @throws ExecutionException       if the execution threw an exception
+   * @throws NullPointerException     in case collection or any entity id is null
+   * @throws IllegalArgumentException if milliseconds count is negative
+   */
+  boolean tryToExecute(Collection<T> entityIds, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException;
+
+  /**
+   * Run protected code using entity id asynchronously on the provided executor. Code waiting for a busy entity
+   * doesn't occupy a thread, it's queued per entity and submitted to the executor when the entity is released.
+   * Code submitted for the same entity id is executed in submission order.
+   *
+   * @param entityId entity id to lock
+   * @param code     code that should be executed in protected mode
+   * @param executor executor that runs the code
+   * @return future completed after execution or exceptionally with exception thrown by the code
+   * @throws NullPointerException in case entityId, code or executor is null
+   */
+  CompletableFuture<Void> executeAsync(T entityId, ProtectedCode code, Executor executor);
+
+  /**
+   * Trying to execute protected code using entity id asynchronously within the given waiting time.
+   *
+   * @param entityId     entity id to lock
+   * @param milliseconds the time to wait
+   * @param code         code that should be executed in protected mode
+   * @param executor     executor that runs the code
+   * @return future completed with {@code true} after execution, with {@code false} if the waiting time elapsed
+   *         before we have possibility to execute code in protected mode or exceptionally with exception thrown by the code
+   * @throws NullPointerException     in case entityId, code or executor is null
+   * @throws IllegalArgumentException if milliseconds count is negative
+   */
+  CompletableFuture<Boolean> tryToExecuteAsync(T entityId, long milliseconds, ProtectedCode code, Executor executor);
 }
@@ -0,0 +1,74 @@
+package com.frost.entitylocker.executors;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import com.frost.entitylocker.lockers.IntEntityLocker;
+
+/**
+ * Implementation of IntCodeExecutor that uses IntEntityLocker for running protected code
+ */
+public class IntProtectedCodeExecutor implements IntCodeExecutor {
+
+  /**
+   * Backing IntEntityLocker that used for running protected code
+   */
+  private final IntEntityLocker locker;
+
+  /**
+   * Constructs code executor based on default implementation of thread safe IntEntityLocker
+   */
+  public IntProtectedCodeExecutor() {
+    this(EntityLockerFactory.getIntEntityLocker());
+  }
+
+  /**
+   * Constructs code executor based on provided IntEntityLocker
+   *
+   * @param locker locker that used for locking entity by id
+   * @throws NullPointerException in case locker is null
+   */
+  public IntProtectedCodeExecutor(IntEntityLocker locker) {
+    Objects.requireNonNull(locker, "Locker must be not null");
+    this.locker = locker;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execute(int entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    locker.lockId(entityId);
+    try {
+      code.run();
+    } catch (Exception e) {
+      throw new ExecutionException(e);
+    } finally {
+      locker.unlockId(entityId);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryToExecute(int entityId, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (milliseconds < 0) {
+      throw new IllegalArgumentException("Milliseconds should be greater than zero");
+    }
+    boolean locked = locker.tryLockId(entityId, milliseconds, TimeUnit.MILLISECONDS);
+    if (locked) {
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      } finally {
+        locker.unlockId(entityId);
+      }
+    }
+    return locked;
+  }
+
+}
@@ -0,0 +1,74 @@
+package com.frost.entitylocker.executors;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import com.frost.entitylocker.lockers.LongEntityLocker;
+
+/**
+ * Implementation of LongCodeExecutor that uses LongEntityLocker for running protected code
+ */
+public class LongProtectedCodeExecutor implements LongCodeExecutor {
+
+  /**
+   * Backing LongEntityLocker that used for running protected code
+   */
+  private final LongEntityLocker locker;
+
+  /**
+   * Constructs code executor based on default implementation of thread safe LongEntityLocker
+   */
+  public LongProtectedCodeExecutor() {
+    this(EntityLockerFactory.getLongEntityLocker());
+  }
+
+  /**
+   * Constructs code executor based on provided LongEntityLocker
+   *
+   * @param locker locker that used for locking entity by id
+   * @throws NullPointerException in case locker is null
+   */
+  public LongProtectedCodeExecutor(LongEntityLocker locker) {
+    Objects.requireNonNull(locker, "Locker must be not null");
+    this.locker = locker;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execute(long entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    locker.lockId(entityId);
+    try {
+      code.run();
+    } catch (Exception e) {
+      throw new ExecutionException(e);
+    } finally {
+      locker.unlockId(entityId);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryToExecute(long entityId, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (milliseconds < 0) {
+      throw new IllegalArgumentException("Milliseconds should be greater than zero");
+    }
+    boolean locked = locker.tryLockId(entityId, milliseconds, TimeUnit.MILLISECONDS);
+    if (locked) {
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      } finally {
+        locker.unlockId(entityId);
+      }
+    }
+    return locked;
+  }
+
+}
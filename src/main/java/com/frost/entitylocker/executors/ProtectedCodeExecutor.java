@@ -1,14 +1,21 @@
 package com.frost.entitylocker.executors;
 
+import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import com.frost.entitylocker.lockers.EntityLocker;
 import com.frost.entitylocker.lockers.EntityLockerFactory;
+import com.frost.entitylocker.lockers.ReadWriteEntityLocker;
+import com.frost.entitylocker.lockers.StampedEntityLocker;
 
 /**
- * Implementation of CodeExecutor that uses EntityLocker for running protected code
+ * Implementation of CodeExecutor that uses EntityLocker for running protected code.
+ * Read-only protected code can be executed concurrently by executeRead methods if the locker is ReadWriteEntityLocker
+ * and without any locking by executeOptimisticRead method if the locker is StampedEntityLocker.
  *
  * @param <T> type of Entity id
  */
@@ -19,6 +26,21 @@ public class ProtectedCodeExecutor<T> implements CodeExecutor<T> {
    */
   private final EntityLocker<T> locker;
 
+  /**
+   * The same locker if it supports shared locking, null otherwise
+   */
+  private final ReadWriteEntityLocker<T> readWriteLocker;
+
+  /**
+   * The same locker if it supports optimistic reading, null otherwise
+   */
+  private final StampedEntityLocker<T> stampedLocker;
+
+  /**
+   * Per-entity queues of code executed by executeAsync methods
+   */
+  private final AsyncTaskQueues<T> asyncQueues;
+
   /**
    * Constructs code executor based on default implementation of thread safe EntityLocker
    */
@@ -32,9 +54,13 @@ public class ProtectedCodeExecutor<T> implements CodeExecutor<T> {
    * @param locker locker that used for locking entity by id
    * @throws NullPointerException in case locker is null
    */
+  @SuppressWarnings("unchecked")
   public ProtectedCodeExecutor(EntityLocker<T> locker) {
     Objects.requireNonNull(locker, "Locker must be not null");
     this.locker = locker;
+    this.readWriteLocker = locker instanceof ReadWriteEntityLocker ? (ReadWriteEntityLocker<T>) locker : null;
+    this.stampedLocker = locker instanceof StampedEntityLocker ? (StampedEntityLocker<T>) locker : null;
+    this.asyncQueues = new AsyncTaskQueues<>(locker);
   }
 
   /**
@@ -73,4 +99,185 @@ public class ProtectedCodeExecutor<T> implements CodeExecutor<T> {
     return locked;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execute(Collection<T> entityIds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    locker.lockIds(entityIds);
+    try {
+      code.run();
+    } catch (Exception e) {
+      throw new ExecutionException(e);
+    } finally {
+      locker.unlockIds(entityIds);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryToExecute(Collection<T> entityIds, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (milliseconds < 0) {
+      throw new IllegalArgumentException("Milliseconds should be greater than zero");
+    }
+    boolean locked = locker.tryLockIds(entityIds, milliseconds, TimeUnit.MILLISECONDS);
+    if (locked) {
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      } finally {
+        locker.unlockIds(entityIds);
+      }
+    }
+    return locked;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CompletableFuture<Void> executeAsync(T entityId, ProtectedCode code, Executor executor) {
+    return asyncQueues.submit(entityId, -1L, code, executor, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CompletableFuture<Boolean> tryToExecuteAsync(T entityId, long milliseconds, ProtectedCode code, Executor executor) {
+    if (milliseconds < 0) {
+      throw new IllegalArgumentException("Milliseconds should be greater than zero");
+    }
+    return asyncQueues.submit(entityId, TimeUnit.MILLISECONDS.toNanos(milliseconds), code, executor, Boolean.TRUE);
+  }
+
+  /**
+   * Run read-only protected code using entity id. If the locker is ReadWriteEntityLocker the code is executed
+   * under shared lock, so several threads can read the same entity concurrently, otherwise it's the same as execute.
+   *
+   * @param entityId entity id to lock
+   * @param code     code that only reads the entity and should be executed in protected mode
+   * @throws InterruptedException if locking was interrupted
+   * @throws ExecutionException   if the execution threw an exception
+   * @throws NullPointerException in case entityId is null
+   */
+  public void executeRead(T entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (readWriteLocker == null) {
+      execute(entityId, code);
+      return;
+    }
+    readWriteLocker.lockShared(entityId);
+    try {
+      code.run();
+    } catch (Exception e) {
+      throw new ExecutionException(e);
+    } finally {
+      readWriteLocker.unlockShared(entityId);
+    }
+  }
+
+  /**
+   * Trying to execute read-only protected code using entity id within the given waiting time.
+   * If the locker is ReadWriteEntityLocker the code is executed under shared lock, otherwise it's the same as tryToExecute.
+   *
+   * @param entityId     entity id to lock
+   * @param milliseconds the time to wait
+   * @param code         code that only reads the entity and should be executed in protected mode
+   * @return {@code true} if the code was executed and {@code false} if the waiting time elapsed before
+   *         we have possibility to execute code in protected mode
+   * @throws InterruptedException     if locking was interrupted
+   * @throws ExecutionException       if the execution threw an exception
+   * @throws NullPointerException     in case entityId is null
+   * @throws IllegalArgumentException if milliseconds count is negative
+   */
+  public boolean tryToExecuteRead(T entityId, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (readWriteLocker == null) {
+      return tryToExecute(entityId, milliseconds, code);
+    }
+    if (milliseconds < 0) {
+      throw new IllegalArgumentException("Milliseconds should be greater than zero");
+    }
+    boolean locked = readWriteLocker.tryLockShared(entityId, milliseconds, TimeUnit.MILLISECONDS);
+    if (locked) {
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      } finally {
+        readWriteLocker.unlockShared(entityId);
+      }
+    }
+    return locked;
+  }
+
+  /**
+   * Run read-only protected code using entity id optimistically. If the locker is StampedEntityLocker the code is
+   * executed without locking and the result is validated afterwards, if a writer intervened the code is executed
+   * again under shared lock. Otherwise it's the same as executeRead.
+   * <p>
+   * The code can be executed twice and can observe inconsistent state of the entity during the first execution,
+   * so it shouldn't have side effects and its result should be used only after this method returns.
+   * Exceptions thrown by the code during optimistic execution are ignored if a writer intervened.
+   *
+   * @param entityId entity id to read
+   * @param code     code that only reads the entity
+   * @throws InterruptedException if locking was interrupted
+   * @throws ExecutionException   if the execution threw an exception
+   * @throws NullPointerException in case entityId is null
+   */
+  public void executeOptimisticRead(T entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (stampedLocker != null) {
+      long stamp = stampedLocker.tryOptimisticRead(entityId);
+      if (stamp != 0L) {
+        Exception failure = null;
+        try {
+          code.run();
+        } catch (Exception e) {
+          failure = e; // It can be caused by inconsistent state, so we check the stamp first
+        }
+        if (stampedLocker.validate(entityId, stamp)) {
+          if (failure != null) {
+            throw new ExecutionException(failure);
+          }
+          return;
+        }
+      }
+    }
+    executeRead(entityId, code); // Writer intervened, retry under real lock
+  }
+
+  /**
+   * Run protected code that modifies the entity, it's executed under exclusive lock the same way as by execute method
+   *
+   * @param entityId entity id to lock
+   * @param code     code that should be executed in protected mode
+   * @throws InterruptedException if locking was interrupted
+   * @throws ExecutionException   if the execution threw an exception
+   * @throws NullPointerException in case entityId is null
+   */
+  public void executeWrite(T entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    execute(entityId, code);
+  }
+
+  /**
+   * Trying to execute protected code that modifies the entity within the given waiting time,
+   * it's executed under exclusive lock the same way as by tryToExecute method
+   *
+   * @param entityId     entity id to lock
+   * @param milliseconds the time to wait
+   * @param code         code that should be executed in protected mode
+   * @return {@code true} if the code was executed and {@code false} if the waiting time elapsed before
+   *         we have possibility to execute code in protected mode
+   * @throws InterruptedException     if locking was interrupted
+   * @throws ExecutionException       if the execution threw an exception
+   * @throws NullPointerException     in case entityId is null
+   * @throws IllegalArgumentException if milliseconds count is negative
+   */
+  public boolean tryToExecuteWrite(T entityId, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    return tryToExecute(entityId, milliseconds, code);
+  }
+
 }
@@ -0,0 +1,43 @@
+package com.frost.entitylocker.executors;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * CodeExecutor that can also run protected code on all entity ids of a closed range [from, to],
+ * e.g. bulk maintenance job that should not run concurrently with any code on ids of the range
+ *
+ * @param <T> type of Entity id
+ * @see CodeExecutor
+ */
+public interface RangeCodeExecutor<T extends Comparable<T>> extends CodeExecutor<T> {
+
+  /**
+   * Run protected code using the range of entity ids, guarantees that no other thread works with any entity id
+   * of the range while the code is executed
+   *
+   * @param from lower bound of the range
+   * @param to   upper bound of the range
+   * @param code code that should be executed in protected mode
+   * @throws InterruptedException     if locking was interrupted
+   * @throws ExecutionException       if the execution threw an exception
+   * @throws NullPointerException     in case any bound is null
+   * @throws IllegalArgumentException if the lower bound is greater than the upper bound
+   */
+  void executeRange(T from, T to, ProtectedCode code) throws ExecutionException, InterruptedException;
+
+  /**
+   * Trying to execute protected code using the range of entity ids within the given waiting time
+   *
+   * @param from         lower bound of the range
+   * @param to           upper bound of the range
+   * @param milliseconds the time to wait
+   * @param code         code that should be executed in protected mode
+   * @return {@code true} if the code was executed and {@code false} if the waiting time elapsed before
+   *         we have possibility to execute code in protected mode
+   * @throws InterruptedException     if locking was interrupted
+   * @throws ExecutionException       if the execution threw an exception
+   * @throws NullPointerException     in case any bound is null
+   * @throws IllegalArgumentException if milliseconds count is negative or the lower bound is greater than the upper bound
+   */
+  boolean tryToExecuteRange(T from, T to, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException;
+}
@@ -0,0 +1,77 @@
+package com.frost.entitylocker.executors;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import com.frost.entitylocker.lockers.RangeEntityLocker;
+
+/**
+ * Implementation of RangeCodeExecutor that uses RangeEntityLocker for running protected code,
+ * code on single entity ids is executed the same way as by ProtectedCodeExecutor
+ *
+ * @param <T> type of Entity id
+ */
+public class RangeProtectedCodeExecutor<T extends Comparable<T>> extends ProtectedCodeExecutor<T>
+    implements RangeCodeExecutor<T> {
+
+  /**
+   * Backing RangeEntityLocker that used for running protected code
+   */
+  private final RangeEntityLocker<T> rangeLocker;
+
+  /**
+   * Constructs code executor based on new RangeEntityLocker
+   */
+  public RangeProtectedCodeExecutor() {
+    this(EntityLockerFactory.getRangeEntityLocker());
+  }
+
+  /**
+   * Constructs code executor based on provided RangeEntityLocker
+   *
+   * @param locker locker that used for locking entity ids and ranges
+   * @throws NullPointerException in case locker is null
+   */
+  public RangeProtectedCodeExecutor(RangeEntityLocker<T> locker) {
+    super(locker);
+    this.rangeLocker = locker;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void executeRange(T from, T to, ProtectedCode code) throws ExecutionException, InterruptedException {
+    rangeLocker.lockRange(from, to);
+    try {
+      code.run();
+    } catch (Exception e) {
+      throw new ExecutionException(e);
+    } finally {
+      rangeLocker.unlockRange(from, to);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryToExecuteRange(T from, T to, long milliseconds, ProtectedCode code) throws ExecutionException, InterruptedException {
+    if (milliseconds < 0) {
+      throw new IllegalArgumentException("Milliseconds should be greater than zero");
+    }
+    boolean locked = rangeLocker.tryLockRange(from, to, milliseconds, TimeUnit.MILLISECONDS);
+    if (locked) {
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      } finally {
+        rangeLocker.unlockRange(from, to);
+      }
+    }
+    return locked;
+  }
+
+}
@@ -0,0 +1,105 @@
+package com.frost.entitylocker.executors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer single-consumer queue on a power-of-two array. Each slot has a sequence number
+ * telling whether it's free for the producer of the given position or filled for the consumer, so producers only
+ * compete for the tail counter and the consumer doesn't use CAS at all.
+ *
+ * @param <E> type of elements
+ */
+final class RingBuffer<E> {
+
+  private final Object[]        items;
+  private final AtomicLongArray sequences;
+  private final int             mask;
+  private final AtomicLong      tail = new AtomicLong(); // Next position of producers
+  private volatile long         head; // Next position of the consumer, changed only by the consumer
+
+  /**
+   * @param capacity minimal capacity, rounded up to the nearest power of two but not less than two,
+   *                 with one slot the free and the filled sequence numbers of the slot would be the same
+   * @throws IllegalArgumentException if capacity is not positive or too big
+   */
+  RingBuffer(int capacity) {
+    if (capacity <= 0 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity should be in range [1, " + (1 << 30) + "]");
+    }
+    int size = Integer.highestOneBit(capacity);
+    size = Math.max(2, size < capacity ? size << 1 : size);
+    this.items = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * @return {@code false} if the buffer is full
+   */
+  boolean offer(E item) {
+    for (; ; ) {
+      long position = tail.get();
+      int  index    = (int) (position & mask);
+      long sequence = sequences.get(index);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          items[index] = item;
+          sequences.set(index, position + 1); // Publishes the item to the consumer
+          return true;
+        }
+      } else if (sequence < position) {
+        return false; // Slot still holds the item of the previous lap
+      }
+    }
+  }
+
+  /**
+   * Called only by the consumer
+   *
+   * @return the oldest item or null if the buffer is empty or its oldest item isn't published yet
+   */
+  @SuppressWarnings("unchecked")
+  E poll() {
+    long position = head;
+    int  index    = (int) (position & mask);
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    E item = (E) items[index];
+    items[index] = null;
+    sequences.set(index, position + items.length); // Frees the slot for the next lap of producers
+    head = position + 1;
+    return item;
+  }
+
+  /**
+   * @return approximate count of items, including items that are being published
+   */
+  int size() {
+    long size = tail.get() - head;
+    return (int) Math.max(0L, Math.min(size, items.length));
+  }
+
+  /**
+   * @return position of the next offered item, items at lower positions are offered already
+   */
+  long tailPosition() {
+    return tail.get();
+  }
+
+  /**
+   * @return position of the next polled item
+   */
+  long headPosition() {
+    return head;
+  }
+
+  int capacity() {
+    return items.length;
+  }
+
+}
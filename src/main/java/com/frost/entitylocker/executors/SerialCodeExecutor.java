@@ -0,0 +1,218 @@
+package com.frost.entitylocker.executors;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Executor of protected code in actor style: code is never executed under a lock, it's queued to the mailbox
+ * of the entity id instead and the mailbox is drained by one thread at a time.
+ * <p>
+ * Mailbox is a lock-free multi-producer single-consumer queue. The thread that submits code to an idle mailbox
+ * becomes its owner and executes the queued code of that entity in a batch, including code submitted by other
+ * threads meanwhile, so a hot entity executes many tasks in one ownership period instead of one lock handoff each.
+ * After maxBatchSize tasks the owner hands the rest of the mailbox over to the handoff executor and returns,
+ * so a submitting thread isn't captured by a busy entity forever. Mailboxes are created on first submit and
+ * removed when their last task completes.
+ * <p>
+ * Code of the same entity id is executed in submission order. Code submitted for its own entity id by the protected
+ * code is queued after it, while execute called from the protected code of the same id runs the code in place.
+ *
+ * @param <T> type of Entity id
+ */
+public class SerialCodeExecutor<T> {
+
+  public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+  private final ConcurrentMap<T, Mailbox> mailboxes = new ConcurrentHashMap<>();
+  private final int                       maxBatchSize;
+  private final Executor                  handoffExecutor;
+
+  /**
+   * Constructs executor with default batch size that hands long batches over to the common ForkJoinPool
+   */
+  public SerialCodeExecutor() {
+    this(DEFAULT_MAX_BATCH_SIZE, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param maxBatchSize    maximal count of tasks executed by the submitting thread in one ownership period
+   * @param handoffExecutor executor that continues draining of the mailbox after maxBatchSize tasks
+   * @throws IllegalArgumentException if maxBatchSize is not positive
+   * @throws NullPointerException     in case handoffExecutor is null
+   */
+  public SerialCodeExecutor(int maxBatchSize, Executor handoffExecutor) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Max batch size should be greater than zero");
+    }
+    Objects.requireNonNull(handoffExecutor, "Executor must not be null");
+    this.maxBatchSize = maxBatchSize;
+    this.handoffExecutor = handoffExecutor;
+  }
+
+  /**
+   * Queues protected code for entity id. If no other thread executes code of this entity, the code and code
+   * queued meanwhile is executed by the current thread before return.
+   *
+   * @param entityId entity id to execute code on
+   * @param code     code that should be executed in protected mode
+   * @return future completed after execution or exceptionally with exception thrown by the code
+   * @throws NullPointerException in case entityId or code is null
+   */
+  public CompletableFuture<Void> submit(T entityId, ProtectedCode code) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Objects.requireNonNull(code, "Code must not be null");
+    Task task = new Task(code);
+    for (; ; ) {
+      Mailbox mailbox = mailboxes.computeIfAbsent(entityId, Mailbox::new);
+      int     queued  = mailbox.enqueue(task);
+      if (queued == Mailbox.RETIRED) {
+        continue; // Mailbox is being removed, the next one is created
+      }
+      if (queued == 0) {
+        mailbox.drain();
+      }
+      return task.future;
+    }
+  }
+
+  /**
+   * Run protected code using entity id and wait for its completion, the code can be executed by another thread
+   * that owns the mailbox of this entity. Waiting can be interrupted, the queued code is executed anyway then.
+   *
+   * @param entityId entity id to execute code on
+   * @param code     code that should be executed in protected mode
+   * @throws InterruptedException if waiting was interrupted
+   * @throws ExecutionException   if the execution threw an exception
+   * @throws NullPointerException in case entityId or code is null
+   */
+  public void execute(T entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Mailbox mailbox = mailboxes.get(entityId);
+    if (mailbox != null && mailbox.owner == Thread.currentThread()) { // Waiting for the queue would never end
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      }
+      return;
+    }
+    submit(entityId, code).get();
+  }
+
+  /**
+   * @return count of mailboxes with queued or executed code, used by tests
+   */
+  int getMailboxCount() {
+    return mailboxes.size();
+  }
+
+  private static final class Task {
+
+    final    ProtectedCode           code;
+    final    CompletableFuture<Void> future = new CompletableFuture<>();
+    volatile Task                    next;
+
+    Task(ProtectedCode code) {
+      this.code = code;
+    }
+
+    void run() {
+      try {
+        code.run();
+        future.complete(null);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Intrusive MPSC queue of tasks: producers swap the tail, the single consumer follows next links from the head.
+   * Size counts queued tasks and the executed one, the producer that changes it from zero becomes the consumer,
+   * the consumer retires the mailbox instead of decrementing the last task, so a retired mailbox is never reused.
+   */
+  private final class Mailbox implements Runnable {
+
+    static final int RETIRED = -1;
+
+    final    T                     entityId;
+    final    AtomicReference<Task> tail = new AtomicReference<>(new Task(null)); // Stub node
+    final    AtomicInteger         size = new AtomicInteger();
+    Task                           head = tail.get(); // Used only by the consumer
+    volatile Thread                owner;
+
+    Mailbox(T entityId) {
+      this.entityId = entityId;
+    }
+
+    /**
+     * @return count of tasks before this one or RETIRED if the task wasn't queued
+     */
+    int enqueue(Task task) {
+      for (; ; ) {
+        int current = size.get();
+        if (current == RETIRED) {
+          return RETIRED;
+        }
+        if (size.compareAndSet(current, current + 1)) {
+          tail.getAndSet(task).next = task;
+          return current;
+        }
+      }
+    }
+
+    /**
+     * Executes queued tasks by the owner, it's called by the producer that queued the first task or by the handoff executor
+     */
+    void drain() {
+      owner = Thread.currentThread();
+      for (int executed = 0; ; executed++) {
+        if (executed == maxBatchSize && handOff()) {
+          return;
+        }
+        poll().run(); // Task never throws
+        if (size.compareAndSet(1, RETIRED)) {
+          owner = null;
+          mailboxes.remove(entityId, this);
+          return;
+        }
+        size.decrementAndGet(); // Other tasks are queued, the counter can't reach zero here
+      }
+    }
+
+    @Override
+    public void run() {
+      drain();
+    }
+
+    private boolean handOff() {
+      owner = null; // Cleared before the next owner can start
+      try {
+        handoffExecutor.execute(this);
+        return true;
+      } catch (RejectedExecutionException e) {
+        owner = Thread.currentThread(); // Continue draining by the current thread
+        return false;
+      }
+    }
+
+    private Task poll() {
+      Task next = head.next;
+      while (next == null) { // Producer has counted the task and didn't link it yet
+        Thread.yield();
+        next = head.next;
+      }
+      head = next; // Next becomes the new stub node
+      return next;
+    }
+  }
+
+}
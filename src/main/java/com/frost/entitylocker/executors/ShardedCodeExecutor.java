@@ -0,0 +1,320 @@
+package com.frost.entitylocker.executors;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executor of protected code that needs no entity locks: entity ids are partitioned by hash across a fixed set
+ * of shards, each shard has a single worker thread and a bounded lock-free ring buffer queue. Code of a given id
+ * always runs on the worker of its shard, so at most one thread works with entity id in each moment of time
+ * and code of the same id is executed in submission order.
+ * <p>
+ * It's suitable for entities that are only touched through this executor, code running here isn't exclusive
+ * with code executed by other executors or lockers. Long running code delays all ids of its shard.
+ * When the queue of a shard is full, BackPressurePolicy decides between waiting, rejecting and executing the code
+ * by the submitting thread. Code submitted to its own shard from protected code never waits for the queue,
+ * it's executed in place if the queue is full. Code executed by a thread other than the worker runs only after
+ * the code queued before it, so submission order holds with any policy.
+ *
+ * @param <T> type of Entity id
+ */
+public class ShardedCodeExecutor<T> implements AutoCloseable {
+
+  public static final  int  DEFAULT_QUEUE_CAPACITY = 1024;
+  private static final long BLOCK_PARK_NANOS       = 10_000L; // Period of re-checking a full queue by blocked producers
+
+  private final Shard[]            shards;
+  private final BackPressurePolicy policy;
+  private final LongAdder          rejected   = new LongAdder();
+  private final LongAdder          callerRuns = new LongAdder();
+  private volatile boolean         closed;
+
+  /**
+   * Constructs executor with one shard per available processor and blocking back pressure
+   */
+  public ShardedCodeExecutor() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, BackPressurePolicy.BLOCK);
+  }
+
+  /**
+   * @param shardCount    count of shards and worker threads
+   * @param queueCapacity minimal capacity of the queue of each shard, rounded up to the nearest power of two, at least two
+   * @param policy        what to do with code submitted to a full queue
+   * @throws IllegalArgumentException if shard count or queue capacity is not positive
+   * @throws NullPointerException     in case policy is null
+   */
+  public ShardedCodeExecutor(int shardCount, int queueCapacity, BackPressurePolicy policy) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Shard count should be greater than zero");
+    }
+    Objects.requireNonNull(policy, "Back pressure policy must not be null");
+    this.policy = policy;
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(this, i, queueCapacity);
+    }
+    for (Shard shard : shards) {
+      shard.worker.start();
+    }
+  }
+
+  /**
+   * Queues protected code to the shard of entity id
+   *
+   * @param entityId entity id to execute code on
+   * @param code     code that should be executed in protected mode
+   * @return future completed after execution or exceptionally with exception thrown by the code,
+   *         RejectedExecutionException if the code was rejected or InterruptedException if blocked submitting was interrupted
+   * @throws NullPointerException in case entityId or code is null
+   */
+  public CompletableFuture<Void> submit(T entityId, ProtectedCode code) {
+    Objects.requireNonNull(code, "Code must not be null");
+    return compute(entityId, () -> {
+      code.run();
+      return null;
+    });
+  }
+
+  /**
+   * Queues protected code with result to the shard of entity id
+   *
+   * @param entityId entity id to execute code on
+   * @param task     code that should be executed in protected mode
+   * @param <R>      type of the result
+   * @return future completed with result of the task, exceptionally the same way as by submit method
+   * @throws NullPointerException in case entityId or task is null
+   */
+  public <R> CompletableFuture<R> compute(T entityId, Callable<R> task) {
+    Objects.requireNonNull(task, "Task must not be null");
+    Task<R> queued = new Task<>(task);
+    shardOf(entityId).submit(queued);
+    return queued.future;
+  }
+
+  /**
+   * Run protected code using entity id on the worker of its shard and wait for its completion.
+   * Called from protected code of the same shard it executes the code in place.
+   *
+   * @param entityId entity id to execute code on
+   * @param code     code that should be executed in protected mode
+   * @throws InterruptedException if waiting was interrupted
+   * @throws ExecutionException   if the execution threw an exception or the code was rejected
+   * @throws NullPointerException in case entityId or code is null
+   */
+  public void execute(T entityId, ProtectedCode code) throws ExecutionException, InterruptedException {
+    Shard shard = shardOf(entityId);
+    if (shard.owner == Thread.currentThread()) { // Waiting for the own shard would never end
+      try {
+        code.run();
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      }
+      return;
+    }
+    submit(entityId, code).get();
+  }
+
+  /**
+   * Stops accepting new code, workers finish queued code and stop. Code submitted concurrently with closing
+   * may be left unexecuted.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Shard shard : shards) {
+      LockSupport.unpark(shard.worker);
+    }
+  }
+
+  /**
+   * @return count of shards
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * @param shard index of the shard
+   * @return approximate count of code waiting in the queue of the shard
+   * @throws IndexOutOfBoundsException if there is no shard with such index
+   */
+  public int getQueueDepth(int shard) {
+    return shards[shard].queue.size();
+  }
+
+  /**
+   * @param entityId entity id
+   * @return index of the shard that executes code of entity id
+   * @throws NullPointerException in case entityId is null
+   */
+  public int getShardIndex(T entityId) {
+    return shardOf(entityId).index;
+  }
+
+  /**
+   * @return count of code rejected by REJECT policy
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * @return count of code executed by submitting threads by CALLER_RUNS policy
+   */
+  public long getCallerRunsCount() {
+    return callerRuns.sum();
+  }
+
+  private Shard shardOf(T entityId) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    int h = entityId.hashCode();
+    return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+  }
+
+  private static final class Task<R> {
+
+    final Callable<R>          callable;
+    final CompletableFuture<R> future = new CompletableFuture<>();
+
+    Task(Callable<R> callable) {
+      this.callable = callable;
+    }
+
+    void run() {
+      try {
+        future.complete(callable.call());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static final class Shard implements Runnable {
+
+    final    ShardedCodeExecutor<?> executor;
+    final    int                    index;
+    final    RingBuffer<Task<?>>    queue;
+    final    AtomicBoolean          busy = new AtomicBoolean(); // Held by the consumer of the queue, the worker or CALLER_RUNS code
+    final    Thread                 worker;
+    volatile Thread                 owner; // Thread executing code of the shard
+    volatile boolean                sleeping;
+
+    Shard(ShardedCodeExecutor<?> executor, int index, int queueCapacity) {
+      this.executor = executor;
+      this.index = index;
+      this.queue = new RingBuffer<>(queueCapacity);
+      this.worker = new Thread(this, "entity-locker-shard-" + index);
+      worker.setDaemon(true);
+    }
+
+    void submit(Task<?> task) {
+      if (executor.closed) {
+        task.future.completeExceptionally(new RejectedExecutionException("Executor is closed"));
+        return;
+      }
+      while (!queue.offer(task)) {
+        if (owner == Thread.currentThread()) { // Code of this shard would wait for itself
+          runQueued();
+          task.run();
+          return;
+        }
+        switch (executor.policy) {
+          case REJECT:
+            executor.rejected.increment();
+            task.future.completeExceptionally(new RejectedExecutionException("Queue of shard " + index + " is full"));
+            return;
+          case CALLER_RUNS:
+            executor.callerRuns.increment();
+            runAfterQueued(task);
+            return;
+          default:
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+            if (Thread.currentThread().isInterrupted()) {
+              task.future.completeExceptionally(new InterruptedException());
+              return;
+            }
+        }
+      }
+      if (sleeping) {
+        LockSupport.unpark(worker);
+      }
+    }
+
+    @Override
+    public void run() {
+      for (; ; ) {
+        if (runNext()) {
+          continue;
+        }
+        if (queue.size() == 0) { // Otherwise a producer is publishing its task
+          if (executor.closed) {
+            return;
+          }
+          sleeping = true;
+          if (queue.size() == 0 && !executor.closed) { // Producer checks the flag after offering
+            LockSupport.park(this);
+          }
+          sleeping = false;
+        }
+      }
+    }
+
+    private boolean runNext() {
+      acquire();
+      try {
+        Task<?> task = queue.poll(); // Polled under the flag, so CALLER_RUNS code can't overtake a polled task
+        if (task == null) {
+          return false;
+        }
+        task.run();
+        return true;
+      } finally {
+        release();
+      }
+    }
+
+    private void runAfterQueued(Task<?> task) {
+      acquire();
+      try {
+        runQueued();
+        task.run();
+      } finally {
+        release();
+      }
+    }
+
+    /**
+     * Runs code queued before the call, called only by the thread that holds the busy flag
+     */
+    private void runQueued() {
+      long end = queue.tailPosition();
+      while (queue.headPosition() < end) { // Nested calls can run the rest of the code
+        Task<?> task = queue.poll();
+        if (task == null) {
+          Thread.yield(); // The slot is taken by a producer that is publishing its task
+        } else {
+          task.run();
+        }
+      }
+    }
+
+    private void acquire() {
+      while (!busy.compareAndSet(false, true)) { // Contended only by CALLER_RUNS code
+        Thread.yield();
+      }
+      owner = Thread.currentThread();
+    }
+
+    private void release() {
+      owner = null;
+      busy.set(false);
+    }
+  }
+
+}
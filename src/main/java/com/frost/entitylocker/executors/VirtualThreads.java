@@ -0,0 +1,32 @@
+package com.frost.entitylocker.executors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for running protected code on virtual threads. This is the Java 8 version used when virtual threads
+ * are not available, the multi-release jar replaces it on Java 21 and newer.
+ * Use them with executeAsync methods of CodeExecutor and OwnerTokenEntityLocker.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return {@code true} if executors of this class start virtual threads
+   */
+  public static boolean isSupported() {
+    return false;
+  }
+
+  /**
+   * Creates executor that starts a new thread for each task, virtual if it's supported
+   *
+   * @return new executor, it should be shut down by the caller
+   */
+  public static ExecutorService newThreadPerTaskExecutor() {
+    return Executors.newCachedThreadPool();
+  }
+
+}
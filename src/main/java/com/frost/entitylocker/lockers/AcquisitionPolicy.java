@@ -0,0 +1,18 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Strategy used by ConcurrentMapEntityLocker when the lock on entity id is held by another thread
+ */
+public enum AcquisitionPolicy {
+
+  /**
+   * Thread is parked until the lock is released, it's the best choice for long protected code
+   */
+  PARK,
+
+  /**
+   * Thread spins for a short time before parking if recent hold times of the entity id are short enough,
+   * so short protected code doesn't pay for parking and unparking. Spinning is disabled on single processor machines.
+   */
+  ADAPTIVE_SPIN
+}
@@ -0,0 +1,66 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Spin-then-park support for AcquisitionPolicy.ADAPTIVE_SPIN. Recent hold time of entity ids is kept as exponentially
+ * weighted moving average in a fixed table indexed by hash of id, so history survives removal of the lock from
+ * the backing map and ids with colliding hashes share it. Waiting thread spins for about two average hold times
+ * and only if the average is shorter than the cost of parking, otherwise it parks immediately.
+ */
+final class AdaptiveSpin {
+
+  static final         int     TABLE_SIZE     = 1024;
+  private static final int     MAX_SPIN_NANOS = 20_000; // Park and unpark cost several microseconds
+  private static final int     EWMA_SHIFT     = 2;      // Weight of a new sample is 1/4
+  private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+
+  private final AtomicIntegerArray holdNanos = new AtomicIntegerArray(TABLE_SIZE);
+  private final int                mask      = TABLE_SIZE - 1;
+
+  /**
+   * Updates average hold time of entity id, concurrent updates can be lost as it's only a hint
+   */
+  void recordHold(Object entityId, long nanoseconds) {
+    int i       = Stripes.indexFor(entityId, mask);
+    int average = holdNanos.get(i);
+    int sample  = (int) Math.min(nanoseconds, Integer.MAX_VALUE >> 1);
+    holdNanos.lazySet(i, average + ((sample - average) >> EWMA_SHIFT));
+  }
+
+  /**
+   * Spins while the lock is held by another thread
+   *
+   * @param entityId   entity id to lock
+   * @param lock       lock of entity id
+   * @param limitNanos maximal time to spin
+   * @return {@code true} if the lock was acquired by spinning
+   */
+  boolean spin(Object entityId, ReentrantLock lock, long limitNanos) {
+    long budget = Math.min(limitNanos, spinNanos(entityId));
+    if (budget <= 0) {
+      return false;
+    }
+    long deadline = System.nanoTime() + budget;
+    do {
+      SpinWait.onSpinWait();
+      if (!lock.isLocked() && (!lock.isFair() || !lock.hasQueuedThreads()) && lock.tryLock()) { // Don't overtake waiting threads of fair lock
+        return true;
+      }
+    } while (System.nanoTime() - deadline < 0);
+    return false;
+  }
+
+  /**
+   * @return time to spin for entity id, zero if thread should park immediately
+   */
+  long spinNanos(Object entityId) {
+    if (!MULTIPROCESSOR) {
+      return 0; // Owner can't make progress while we spin
+    }
+    int average = holdNanos.get(Stripes.indexFor(entityId, mask));
+    return average > MAX_SPIN_NANOS ? 0 : Math.min(MAX_SPIN_NANOS, 2L * average + 1);
+  }
+
+}
@@ -0,0 +1,290 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EntityLocker thread safe implementation where the state of each stripe is a single atomically updated word
+ * holding owner thread id, waiters flag and hold count:
+ * <pre>
+ *   | owner thread id (40 bits) | waiters flag (1 bit) | hold count (23 bits) |
+ * </pre>
+ * Uncontended lock and unlock is one CAS without any allocation. Threads are parked in a lazily created
+ * per-stripe wait queue only under contention. Like in StripedEntityLocker different ids can share the same stripe
+ * and several ids are locked by stripes in ascending order of stripe index.
+ *
+ * @param <T> type of Entity id
+ */
+public class CasEntityLocker<T> implements EntityLocker<T> {
+
+  public static final  int  DEFAULT_STRIPE_COUNT = 1024;
+  private static final int  OWNER_SHIFT          = 24;
+  private static final long WAITERS_FLAG         = 1L << (OWNER_SHIFT - 1);
+  private static final long COUNT_MASK           = WAITERS_FLAG - 1;
+  private static final long OWNER_MASK           = ~(WAITERS_FLAG | COUNT_MASK);
+  private static final int  PADDING_SHIFT        = 3; // Keep each state word on its own 64 bytes cache line
+
+  private final AtomicLongArray                      states;
+  private final AtomicReferenceArray<Queue<Thread>> waitQueues;
+  private final int                                  mask;
+
+  /**
+   * Constructs new CasEntityLocker with default count of stripes
+   */
+  public CasEntityLocker() {
+    this(DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * Constructs new CasEntityLocker, stripe count is rounded up to the nearest power of two
+   *
+   * @param stripeCount minimal count of stripes
+   * @throws IllegalArgumentException if stripe count is not positive or too big
+   */
+  public CasEntityLocker(int stripeCount) {
+    int size = Stripes.sizeFor(stripeCount);
+    this.states = new AtomicLongArray(size << PADDING_SHIFT);
+    this.waitQueues = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    lockInternal(stripeIndex(entityId), false, 0L);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockInternal(stripeIndex(entityId), true, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    unlockStripe(stripeIndex(entityId));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockIds(Collection<T> entityIds) throws InterruptedException {
+    int[] indexes = Stripes.sortedDistinctIndexes(entityIds, mask);
+    int   locked  = 0;
+    try {
+      for (int index : indexes) {
+        lockInternal(index, false, 0L);
+        locked++;
+      }
+    } finally {
+      if (locked < indexes.length) {
+        unlockStripes(indexes, locked);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockIds(Collection<T> entityIds, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    int[] indexes  = Stripes.sortedDistinctIndexes(entityIds, mask);
+    long  deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+    int   locked   = 0;
+    try {
+      for (int index : indexes) {
+        if (!lockInternal(index, true, Math.max(0L, deadline - System.nanoTime()))) {
+          return false;
+        }
+        locked++;
+      }
+      return true;
+    } finally {
+      if (locked < indexes.length) {
+        unlockStripes(indexes, locked);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockIds(Collection<T> entityIds) {
+    int[] indexes = Stripes.sortedDistinctIndexes(entityIds, mask);
+    unlockStripes(indexes, indexes.length);
+  }
+
+  /**
+   * @return count of stripes used by this locker, it's always a power of two
+   */
+  public int getStripeCount() {
+    return mask + 1;
+  }
+
+  int stripeIndex(T entityId) {
+    return Stripes.indexFor(entityId, mask);
+  }
+
+  private void unlockStripes(int[] indexes, int locked) {
+    IllegalMonitorStateException failure = null;
+    for (int i = locked - 1; i >= 0; i--) {
+      try {
+        unlockStripe(indexes[i]);
+      } catch (IllegalMonitorStateException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void unlockStripe(int stripe) {
+    int  i      = stripe << PADDING_SHIFT;
+    long owner  = currentOwner();
+    for (; ; ) {
+      long state = states.get(i);
+      if ((state & OWNER_MASK) != owner) {
+        throw new IllegalMonitorStateException();
+      }
+      if ((state & COUNT_MASK) > 1) {
+        if (states.compareAndSet(i, state, state - 1)) {
+          return;
+        }
+      } else if (states.compareAndSet(i, state, 0L)) {
+        if ((state & WAITERS_FLAG) != 0) {
+          signalNext(stripe);
+        }
+        return;
+      }
+    }
+  }
+
+  private boolean lockInternal(int stripe, boolean timed, long nanoseconds) throws InterruptedException {
+    int  i     = stripe << PADDING_SHIFT;
+    long owner = currentOwner();
+    long state = states.get(i);
+    if (state == 0L && states.compareAndSet(i, 0L, owner | 1)) {
+      return true; // Fast path: stripe was free
+    }
+    if ((state & OWNER_MASK) == owner) {
+      incrementHoldCount(i);
+      return true;
+    }
+    return lockContended(stripe, owner, timed, System.nanoTime() + nanoseconds);
+  }
+
+  private boolean lockContended(int stripe, long owner, boolean timed, long deadline) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    int           i        = stripe << PADDING_SHIFT;
+    Thread        current  = Thread.currentThread();
+    Queue<Thread> queue    = waitQueue(stripe);
+    boolean       acquired = false;
+    queue.add(current);
+    try {
+      for (; ; ) {
+        long state = states.get(i);
+        if (state == 0L) { // Released stripe never has waiters flag, so the word is zero
+          if (states.compareAndSet(i, 0L, owner | 1)) {
+            acquired = true;
+            queue.remove(current);
+            if (!queue.isEmpty()) {
+              setWaitersFlag(i); // Next waiter should be woken up when we release the stripe
+            }
+            return true;
+          }
+          continue;
+        }
+        if ((state & WAITERS_FLAG) == 0 && !states.compareAndSet(i, state, state | WAITERS_FLAG)) {
+          continue; // State was changed, re-read it before parking
+        }
+        if (timed) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          LockSupport.parkNanos(this, remaining);
+        } else {
+          LockSupport.park(this);
+        }
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+    } finally {
+      if (!acquired) {
+        queue.remove(current);
+        signalNext(stripe); // We could consume the wake up that was addressed to us, so pass it to the next waiter
+      }
+    }
+  }
+
+  private void incrementHoldCount(int i) {
+    for (; ; ) {
+      long state = states.get(i);
+      if ((state & COUNT_MASK) == COUNT_MASK) {
+        throw new Error("Maximum lock count exceeded");
+      }
+      if (states.compareAndSet(i, state, state + 1)) {
+        return;
+      }
+    }
+  }
+
+  private void setWaitersFlag(int i) {
+    for (; ; ) {
+      long state = states.get(i);
+      if ((state & WAITERS_FLAG) != 0 || states.compareAndSet(i, state, state | WAITERS_FLAG)) {
+        return;
+      }
+    }
+  }
+
+  private void signalNext(int stripe) {
+    Queue<Thread> queue = waitQueues.get(stripe);
+    if (queue != null) {
+      Thread next = queue.peek();
+      if (next != null) {
+        LockSupport.unpark(next);
+      }
+    }
+  }
+
+  private Queue<Thread> waitQueue(int stripe) {
+    Queue<Thread> queue = waitQueues.get(stripe);
+    if (queue == null) {
+      waitQueues.compareAndSet(stripe, null, new ConcurrentLinkedQueue<>());
+      queue = waitQueues.get(stripe);
+    }
+    return queue;
+  }
+
+  private static long currentOwner() {
+    return Thread.currentThread().getId() << OWNER_SHIFT;
+  }
+
+}
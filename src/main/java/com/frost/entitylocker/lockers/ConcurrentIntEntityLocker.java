@@ -0,0 +1,53 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IntEntityLocker thread safe implementation based on segmented open-addressing lock table
+ * that stores primitive entity ids without boxing.
+ */
+public class ConcurrentIntEntityLocker implements IntEntityLocker {
+
+  private final LongLockTable table;
+
+  /**
+   * Constructs new ConcurrentIntEntityLocker with default count of segments
+   */
+  public ConcurrentIntEntityLocker() {
+    this(LongLockTable.DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * Constructs new ConcurrentIntEntityLocker, segment count is rounded up to the nearest power of two
+   *
+   * @param segmentCount minimal count of independently locked segments of the lock table
+   * @throws IllegalArgumentException if segment count is not positive or too big
+   */
+  public ConcurrentIntEntityLocker(int segmentCount) {
+    this.table = new LongLockTable(segmentCount);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(int entityId) throws InterruptedException {
+    table.lock(entityId, false, 0L);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(int entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return table.lock(entityId, true, LongLockTable.toNanos(timeout, timeUnit));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(int entityId) {
+    table.unlock(entityId);
+  }
+}
@@ -0,0 +1,53 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LongEntityLocker thread safe implementation based on segmented open-addressing lock table
+ * that stores primitive entity ids without boxing.
+ */
+public class ConcurrentLongEntityLocker implements LongEntityLocker {
+
+  private final LongLockTable table;
+
+  /**
+   * Constructs new ConcurrentLongEntityLocker with default count of segments
+   */
+  public ConcurrentLongEntityLocker() {
+    this(LongLockTable.DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * Constructs new ConcurrentLongEntityLocker, segment count is rounded up to the nearest power of two
+   *
+   * @param segmentCount minimal count of independently locked segments of the lock table
+   * @throws IllegalArgumentException if segment count is not positive or too big
+   */
+  public ConcurrentLongEntityLocker(int segmentCount) {
+    this.table = new LongLockTable(segmentCount);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(long entityId) throws InterruptedException {
+    table.lock(entityId, false, 0L);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(long entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return table.lock(entityId, true, LongLockTable.toNanos(timeout, timeUnit));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(long entityId) {
+    table.unlock(entityId);
+  }
+}
@@ -1,27 +1,49 @@
 package com.frost.entitylocker.lockers;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import com.frost.entitylocker.metrics.LockMetrics;
 
 /**
  * EntityLocker thread safe implementation based on ConcurrentHashMap.
+ * Optional features are configured through ConcurrentMapEntityLockerBuilder.
  *
  * @param <T> type of Entity id
  **/
 public class ConcurrentMapEntityLocker<T> implements EntityLocker<T> {
 
+  /**
+   * Maximal count of threads that can take the free lock ahead of waiting threads in a row
+   * if FairnessPolicy.BOUNDED_BARGING is used
+   */
+  public static final  int                          MAX_CONSECUTIVE_BARGES = 4;
+
   private final static long                         NO_WAITING = -1;
   private final        ConcurrentMap<T, EntityLock> lockingMap;
+  private final        EntityLockPool               lockPool; // null if recycling of locks is disabled
+  private final        Function<T, EntityLock>      lockFactory;
+  private final        DeadlockDetector             deadlockDetector; // null if deadlock detection is disabled
+  private final        LockMetrics                  metrics; // null if metrics are disabled
+  private final        HotKeyTracker                hotKeyTracker; // null if hot keys are not tracked
+  private final        AdaptiveSpin                 adaptiveSpin; // null if waiting threads park immediately
+  private final        boolean                      observeWaiting; // Free lock is acquired without waiting to tell contended acquisitions apart
+  private final        boolean                      measureHold;
+  private final        FairnessPolicy               fairness;
+  private final        boolean                      keepQueuedLocks; // Lock stays in the map while threads wait for it
 
   /**
    * Constructs new ConcurrentMapEntityLocker based on default ConcurrentMap implementation
    */
   public ConcurrentMapEntityLocker() {
-    lockingMap = new ConcurrentHashMap<>();
+    this(new ConcurrentMapEntityLockerBuilder<>());
   }
 
   /**
@@ -30,11 +52,41 @@ public class ConcurrentMapEntityLocker<T> implements EntityLocker<T> {
    * @param concurrentMap map that will be used for storing locks
    */
   ConcurrentMapEntityLocker(ConcurrentMap<T, EntityLock> concurrentMap) {
-    this.lockingMap = concurrentMap;
+    this(new ConcurrentMapEntityLockerBuilder<T>().withLockingMap(concurrentMap));
+  }
+
+  /**
+   * Constructs new ConcurrentMapEntityLocker configured by builder
+   *
+   * @param builder builder with locker options
+   */
+  ConcurrentMapEntityLocker(ConcurrentMapEntityLockerBuilder<T> builder) {
+    this.lockingMap = builder.lockingMap != null ? builder.lockingMap : new ConcurrentHashMap<>();
+    this.fairness = builder.fairnessPolicy;
+    this.keepQueuedLocks = fairness != FairnessPolicy.BARGING;
+    boolean fair = keepQueuedLocks;
+    if (builder.lockPoolCapacity > 0) {
+      EntityLockPool pool = new EntityLockPool(builder.lockPoolCapacity, fair);
+      this.lockPool = pool;
+      this.lockFactory = (key) -> pool.acquire();
+    } else {
+      this.lockPool = null;
+      this.lockFactory = (key) -> new EntityLock(fair);
+    }
+    this.deadlockDetector = builder.deadlockCheckInterval > 0 ?
+        new DeadlockDetector(builder.deadlockCheckInterval, TimeUnit.NANOSECONDS) : null;
+    this.metrics = builder.metrics;
+    this.hotKeyTracker = builder.hotKeyCapacity > 0 ? new HotKeyTracker(builder.hotKeyCapacity) : null;
+    this.adaptiveSpin = builder.acquisitionPolicy == AcquisitionPolicy.ADAPTIVE_SPIN ? new AdaptiveSpin() : null;
+    this.observeWaiting = deadlockDetector != null || metrics != null || hotKeyTracker != null || adaptiveSpin != null ||
+        fairness == FairnessPolicy.BOUNDED_BARGING;
+    this.measureHold = metrics != null || hotKeyTracker != null || adaptiveSpin != null;
   }
 
   /**
    * {@inheritDoc}
+   *
+   * @throws DeadlockException if deadlock detection is enabled and the current thread was chosen as a victim
    */
   @Override
   public void lockId(T entityId) throws InterruptedException {
@@ -43,13 +95,15 @@ public class ConcurrentMapEntityLocker<T> implements EntityLocker<T> {
 
   /**
    * {@inheritDoc}
+   *
+   * @throws DeadlockException if deadlock detection is enabled and the current thread was chosen as a victim
    */
   @Override
   public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
     if (timeout < 0) {
       throw new IllegalArgumentException("Timeout should be greater than zero");
     }
-    return lockIdInternal(entityId, timeUnit.toNanos(timeout));
+    return lockIdInternal(entityId, timeUnit.toNanos(timeout)) != null;
   }
 
   /**
@@ -60,53 +114,384 @@ public class ConcurrentMapEntityLocker<T> implements EntityLocker<T> {
     Objects.requireNonNull(entityId, "Entity id must not be null");
     EntityLock entityLock = lockingMap.get(entityId);
     if (entityLock != null) {
-      if (entityLock.owner != Thread.currentThread()) {
-        throw new IllegalMonitorStateException();
+      unlock(entityId, entityLock);
+    } else {
+      throw new IllegalMonitorStateException();
+    }
+  }
+
+  /**
+   * Lock entity by id and return a handle that releases this acquisition on close without looking the id up
+   * in the map again, so it can be used in try-with-resources instead of unlockId. Reentrant acquisitions
+   * of the same thread return the same handle object, each of them must be closed once.
+   *
+   * @param entityId entity id to lock
+   * @return handle of the held lock
+   * @throws InterruptedException if locking was interrupted
+   * @throws NullPointerException in case entity id is null
+   * @throws DeadlockException    if deadlock detection is enabled and the current thread was chosen as a victim
+   */
+  public LockHandle acquire(T entityId) throws InterruptedException {
+    return handleOf(entityId, lockIdInternal(entityId, NO_WAITING));
+  }
+
+  /**
+   * @param entityId entity id to lock
+   * @param timeout  the time to wait for the lock
+   * @param timeUnit the time unit of the timeout argument
+   * @return handle of the held lock or {@code null} if the waiting time elapsed before the lock could be acquired
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case entity id is null
+   * @throws IllegalArgumentException if timeout is negative
+   * @throws DeadlockException        if deadlock detection is enabled and the current thread was chosen as a victim
+   */
+  public LockHandle tryAcquire(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    EntityLock entityLock = lockIdInternal(entityId, timeUnit.toNanos(timeout));
+    return entityLock != null ? handleOf(entityId, entityLock) : null;
+  }
+
+  private LockHandle handleOf(T entityId, EntityLock entityLock) {
+    if (entityLock.handle == null) {
+      entityLock.handle = new Handle(entityId, entityLock); // Reentrant acquisitions reuse the handle of the outermost one
+    }
+    return entityLock.handle;
+  }
+
+  private void unlock(T entityId, EntityLock entityLock) {
+    if (entityLock.owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    if (entityLock.count == 1) {
+      if (measureHold) {
+        recordHold(entityId, entityLock);
       }
-      if (entityLock.count == 1) {
-        lockingMap.remove(entityId); // Remove used lock to avoid memory leaks
+      entityLock.count = 0;
+      entityLock.owner = null;
+      entityLock.handle = null;
+      if (entityLock.waiters > 0 || keepQueuedLocks && entityLock.lock.hasQueuedThreads()) {
+        entityLock.lock.unlock(); // Hand the lock over to the longest waiting thread, it stays in the map
       } else {
-        entityLock.count--;
+        lockingMap.remove(entityId); // Remove used lock to avoid memory leaks
+        entityLock.lock.unlock();
+        if (lockPool != null) {
+          lockPool.release(entityLock); // Threads that still wait on this lock will find that it was replaced
+        }
       }
-      entityLock.lock.unlock();
     } else {
-      throw new IllegalMonitorStateException();
+      entityLock.count--;
+      entityLock.lock.unlock();
+    }
+  }
+
+  /**
+   * Atomically releases the entity held by the current thread and waits until another thread signals it,
+   * then re-acquires the entity with the same hold count. Lock entry stays in the map while threads wait
+   * for its condition, so signalling threads lock the same entry. Re-acquisition after signal isn't observed
+   * by deadlock detection.
+   *
+   * @param entityId entity id held by the current thread
+   * @throws InterruptedException         if waiting was interrupted, the entity is re-acquired before throwing
+   * @throws NullPointerException         in case entity id is null
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  public void awaitCondition(T entityId) throws InterruptedException {
+    awaitConditionInternal(entityId, NO_WAITING);
+  }
+
+  /**
+   * Waits for a signal like awaitCondition(entityId) with a waiting time. The entity is re-acquired after
+   * the time elapses too, waiting for re-acquisition isn't limited by the timeout.
+   *
+   * @param entityId entity id held by the current thread
+   * @param timeout  the time to wait for a signal
+   * @param timeUnit the time unit of the timeout argument
+   * @return {@code false} if the waiting time elapsed before a signal, else {@code true}
+   * @throws InterruptedException         if waiting was interrupted, the entity is re-acquired before throwing
+   * @throws NullPointerException         in case entity id is null
+   * @throws IllegalArgumentException     if timeout is negative
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  public boolean awaitCondition(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return awaitConditionInternal(entityId, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Wakes up the longest waiting thread that awaits the condition of the entity, it continues after
+   * the current thread releases the entity
+   *
+   * @param entityId entity id held by the current thread
+   * @throws NullPointerException         in case entity id is null
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  public void signal(T entityId) {
+    EntityLock entityLock = heldLock(entityId);
+    if (entityLock.waiters > 0) {
+      entityLock.condition.signal();
+    }
+  }
+
+  /**
+   * Wakes up all threads that await the condition of the entity, they continue one by one after
+   * the current thread releases the entity
+   *
+   * @param entityId entity id held by the current thread
+   * @throws NullPointerException         in case entity id is null
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  public void signalAll(T entityId) {
+    EntityLock entityLock = heldLock(entityId);
+    if (entityLock.waiters > 0) {
+      entityLock.condition.signalAll();
+    }
+  }
+
+  /**
+   * @return count of locks taken from the pool of released locks, zero if recycling is disabled
+   */
+  public long getLockPoolHitCount() {
+    return lockPool != null ? lockPool.getHitCount() : 0;
+  }
+
+  /**
+   * @return count of locks allocated because the pool of released locks was empty, zero if recycling is disabled
+   */
+  public long getLockPoolMissCount() {
+    return lockPool != null ? lockPool.getMissCount() : 0;
+  }
+
+  /**
+   * Returns the most contended entity ids with estimated count of acquisitions that had to wait for them
+   * and mean time they were held while other threads waited
+   *
+   * @param k maximal count of returned ids
+   * @return ids in descending order of contention count, empty list if hot keys are not tracked
+   * @throws IllegalArgumentException if k is not positive
+   */
+  public List<HotKey<T>> hotKeys(int k) {
+    if (hotKeyTracker == null) {
+      if (k <= 0) {
+        throw new IllegalArgumentException("Count of keys should be greater than zero");
+      }
+      return Collections.emptyList();
     }
+    return hotKeyTracker.hotKeys(k);
   }
 
-  private boolean lockIdInternal(T entityId, long nanoseconds) throws InterruptedException {
+  /**
+   * @return count of lock acquisitions failed with DeadlockException, zero if deadlock detection is disabled
+   */
+  public long getDeadlockCount() {
+    return deadlockDetector != null ? deadlockDetector.getDeadlockCount() : 0;
+  }
+
+  /**
+   * @return the acquired lock or {@code null} if the waiting time elapsed
+   */
+  private EntityLock lockIdInternal(T entityId, long nanoseconds) throws InterruptedException {
     Objects.requireNonNull(entityId, "Entity id must not be null");
-    boolean locked;
-    long    timeout = System.nanoTime() + nanoseconds; //We use System.nanoTime() because System.currentTimeMillis() can produce negative time difference
+    EntityLock entityLock;
+    boolean    locked;
+    boolean    contended = false;
+    int        retries   = 0;
+    long       start     = System.nanoTime();
+    long       timeout   = start + nanoseconds; //We use System.nanoTime() because System.currentTimeMillis() can produce negative time difference
     do {
-      EntityLock entityLock = lockingMap.computeIfAbsent(entityId, (key) -> new EntityLock());
-      Lock       lock       = entityLock.lock;
-      if (nanoseconds == NO_WAITING) {
-        lock.lockInterruptibly(); //We use lockInterruptibly to be able to handle interrupt method on the thread
-      } else {
-        if (!lock.tryLock(timeout - System.nanoTime(), TimeUnit.NANOSECONDS)) {
-          return false; //If we can't acquire the lock than just return false immediately
+      entityLock = lockingMap.computeIfAbsent(entityId, lockFactory);
+      ReentrantLock lock   = entityLock.lock;
+      boolean       barged = tryLockWithoutWaiting(entityLock);
+      if (!barged) {
+        contended = true;
+        boolean acquired = false;
+        try {
+          acquired = lockWaiting(entityId, entityLock, nanoseconds, timeout);
+        } finally {
+          if (!acquired && keepQueuedLocks) {
+            removeAbandoned(entityId, entityLock);
+          }
+        }
+        if (hotKeyTracker != null) {
+          hotKeyTracker.recordContention(entityId);
+        }
+        if (!acquired) {
+          if (metrics != null) {
+            metrics.recordTimeout(System.nanoTime() - start, retries);
+          }
+          return null; //If we can't acquire the lock than just return null immediately
         }
       }
-      entityLock.count++;
-      entityLock.owner = Thread.currentThread();
       locked = entityLock == lockingMap.get(entityId); //Check that we still use the actual lock
-      if (!locked) { // Release this lock if it was replaced in the backing map
+      if (locked) {
+        if (entityLock.count++ == 0) {
+          if (measureHold) {
+            entityLock.lockedAt = System.nanoTime();
+          }
+          if (fairness == FairnessPolicy.BOUNDED_BARGING) { // Count barges until a waiting thread gets the lock
+            entityLock.barges = barged && lock.hasQueuedThreads() ? entityLock.barges + 1 : 0;
+          }
+        }
+        entityLock.owner = Thread.currentThread();
+      } else { // Release this lock if it was replaced in the backing map, it can be already reused for another id
         lock.unlock();
+        retries++;
       }
     } while (!locked); // Wait until we lock entity id successfully
-    return true;
+    if (metrics != null) {
+      metrics.recordAcquisition(contended, System.nanoTime() - start, retries);
+    }
+    return entityLock;
+  }
+
+  private boolean awaitConditionInternal(T entityId, long nanoseconds) throws InterruptedException {
+    EntityLock entityLock = heldLock(entityId);
+    if (entityLock.condition == null) {
+      entityLock.condition = entityLock.lock.newCondition(); // Created by the holder, signalling threads hold the lock too
+    }
+    if (measureHold) {
+      recordHold(entityId, entityLock);
+    }
+    int        count  = entityLock.count;
+    LockHandle handle = entityLock.handle;
+    entityLock.count = 0;
+    entityLock.owner = null;
+    entityLock.handle = null; // Threads that lock the id meanwhile get their own handle
+    entityLock.waiters++; // Keeps the lock in the map until the waiter re-acquires it
+    try {
+      if (nanoseconds == NO_WAITING) {
+        entityLock.condition.await(); // Releases all holds of the lock and restores them before return
+        return true;
+      }
+      return entityLock.condition.await(nanoseconds, TimeUnit.NANOSECONDS);
+    } finally {
+      entityLock.waiters--;
+      entityLock.count = count;
+      entityLock.owner = Thread.currentThread();
+      entityLock.handle = handle;
+      if (measureHold) {
+        entityLock.lockedAt = System.nanoTime();
+      }
+    }
+  }
+
+  private EntityLock heldLock(T entityId) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    EntityLock entityLock = lockingMap.get(entityId);
+    if (entityLock == null || entityLock.owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    return entityLock;
+  }
+
+  private void recordHold(T entityId, EntityLock entityLock) {
+    long holdNanos = System.nanoTime() - entityLock.lockedAt;
+    if (metrics != null) {
+      metrics.recordHold(holdNanos);
+    }
+    if (hotKeyTracker != null && entityLock.lock.hasQueuedThreads()) { // Only holds that made other threads wait
+      hotKeyTracker.recordHold(entityId, holdNanos);
+    }
+    if (adaptiveSpin != null) {
+      adaptiveSpin.recordHold(entityId, holdNanos);
+    }
+  }
+
+  /**
+   * Acquires the free lock without waiting, it's tried only if waiting threads are observed by deadlock detector,
+   * metrics, hot key tracker, spin before parking or bounded barging, so threads that don't wait are never added
+   * to the wait-for graph. Fair locks are taken ahead of waiting threads only while barging is allowed.
+   */
+  private boolean tryLockWithoutWaiting(EntityLock entityLock) throws InterruptedException {
+    if (!observeWaiting) {
+      return false;
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    switch (fairness) {
+      case FIFO:
+        return entityLock.lock.tryLock(0, TimeUnit.NANOSECONDS); // Timed tryLock honors fairness
+      case BOUNDED_BARGING:
+        return entityLock.barges < MAX_CONSECUTIVE_BARGES ? entityLock.lock.tryLock() :
+            entityLock.lock.tryLock(0, TimeUnit.NANOSECONDS);
+      default:
+        return entityLock.lock.tryLock();
+    }
+  }
+
+  /**
+   * Removes the lock that stayed in the map for waiting threads if this thread was the last one and gave up waiting.
+   * Lock is removed only by a thread that holds it, so a thread that acquired it finds that it was replaced.
+   */
+  private void removeAbandoned(T entityId, EntityLock entityLock) {
+    ReentrantLock lock = entityLock.lock;
+    if (lock.tryLock()) {
+      try {
+        if (entityLock.count == 0 && entityLock.waiters == 0 && !lock.hasQueuedThreads()) {
+          lockingMap.remove(entityId, entityLock);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private boolean lockWaiting(T entityId, EntityLock entityLock, long nanoseconds, long timeout) throws InterruptedException {
+    if (adaptiveSpin != null &&
+        adaptiveSpin.spin(entityId, entityLock.lock, nanoseconds == NO_WAITING ? Long.MAX_VALUE : timeout - System.nanoTime())) {
+      return true;
+    }
+    if (deadlockDetector != null) {
+      return deadlockDetector.await(entityLock, nanoseconds != NO_WAITING, timeout);
+    }
+    if (nanoseconds == NO_WAITING) {
+      entityLock.lock.lockInterruptibly(); //We use lockInterruptibly to be able to handle interrupt method on the thread
+      return true;
+    }
+    return entityLock.lock.tryLock(timeout - System.nanoTime(), TimeUnit.NANOSECONDS);
+  }
+
+  private final class Handle implements LockHandle {
+
+    final T          entityId;
+    final EntityLock entityLock;
+
+    Handle(T entityId, EntityLock entityLock) {
+      this.entityId = entityId;
+      this.entityLock = entityLock;
+    }
+
+    @Override
+    public void close() {
+      if (entityLock.owner != Thread.currentThread() || entityLock.handle != this) { // Handle of a released acquisition
+        throw new IllegalMonitorStateException();
+      }
+      unlock(entityId, entityLock);
+    }
   }
 
   static class EntityLock {
 
-    final Lock lock;
-    Thread owner;
-    int    count;
+    final    ReentrantLock lock;
+    volatile Thread        owner; // Read by DeadlockDetector of other threads
+    int                    count;
+    long                   lockedAt; // Time of the outermost acquisition, set only if hold time is measured
+    volatile int           barges; // Count of consecutive acquisitions ahead of waiting threads
+    Condition              condition; // Created on the first await, accessed only by the holder
+    int                    waiters; // Threads that await the condition, changed only by the holder
+    LockHandle             handle; // Handle of the current acquisition, accessed only by the holder
 
     public EntityLock() {
-      this.lock = new ReentrantLock();
-      this.owner = Thread.currentThread();
+      this(false);
+    }
+
+    public EntityLock(boolean fair) {
+      this.lock = new ReentrantLock(fair);
+      this.owner = null;
       this.count = 0;
     }
   }
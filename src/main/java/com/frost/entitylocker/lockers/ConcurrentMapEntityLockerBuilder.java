@@ -0,0 +1,123 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.lockers.ConcurrentMapEntityLocker.EntityLock;
+import com.frost.entitylocker.metrics.LockMetrics;
+
+/**
+ * Builder for ConcurrentMapEntityLocker with optional features
+ *
+ * @param <T> type of Entity id
+ */
+public class ConcurrentMapEntityLockerBuilder<T> {
+
+  ConcurrentMap<T, EntityLock> lockingMap;
+  int                          lockPoolCapacity;
+  long                         deadlockCheckInterval; // Nanoseconds, zero disables deadlock detection
+  LockMetrics                  metrics;
+  int                          hotKeyCapacity; // Zero disables tracking of hot keys
+  AcquisitionPolicy            acquisitionPolicy = AcquisitionPolicy.PARK;
+  FairnessPolicy               fairnessPolicy    = FairnessPolicy.BARGING;
+
+  public ConcurrentMapEntityLockerBuilder() {
+  }
+
+  /**
+   * Enables recycling of released locks through a bounded per-thread pool
+   *
+   * @param capacity maximal count of free locks kept by each thread, zero disables recycling
+   * @return this builder
+   * @throws IllegalArgumentException if capacity is negative
+   */
+  public ConcurrentMapEntityLockerBuilder<T> withLockPool(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Pool capacity should not be negative");
+    }
+    this.lockPoolCapacity = capacity;
+    return this;
+  }
+
+  /**
+   * Enables detection of deadlocks between threads waiting for entity ids. Thread that can't acquire the lock
+   * immediately is added to the wait-for graph and checks it for a cycle when it starts waiting and then every
+   * check interval. One thread of the cycle fails with DeadlockException.
+   *
+   * @param checkInterval maximal time between checks of a waiting thread
+   * @param timeUnit      time unit of the interval
+   * @return this builder
+   * @throws IllegalArgumentException if interval is not positive
+   */
+  public ConcurrentMapEntityLockerBuilder<T> withDeadlockDetection(long checkInterval, TimeUnit timeUnit) {
+    if (checkInterval <= 0) {
+      throw new IllegalArgumentException("Check interval should be greater than zero");
+    }
+    this.deadlockCheckInterval = timeUnit.toNanos(checkInterval);
+    return this;
+  }
+
+  /**
+   * Enables recording of acquisitions, contention, timeouts, retries and wait and hold time histograms.
+   * Metrics can be shared by several lockers and registered in JMX by LockMetrics.registerMBean.
+   *
+   * @param metrics metrics to record into
+   * @return this builder
+   * @throws NullPointerException in case metrics is null
+   */
+  public ConcurrentMapEntityLockerBuilder<T> withMetrics(LockMetrics metrics) {
+    this.metrics = Objects.requireNonNull(metrics, "Metrics must be not null");
+    return this;
+  }
+
+  /**
+   * Enables tracking of the most contended entity ids reported by ConcurrentMapEntityLocker.hotKeys.
+   * Memory is bounded by capacity, ids are recorded only by threads that had to wait for them.
+   *
+   * @param capacity minimal count of tracked ids
+   * @return this builder
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public ConcurrentMapEntityLockerBuilder<T> withHotKeyTracking(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity should be greater than zero");
+    }
+    this.hotKeyCapacity = capacity;
+    return this;
+  }
+
+  /**
+   * Sets strategy of waiting for the lock held by another thread, default is AcquisitionPolicy.PARK
+   *
+   * @param policy acquisition policy
+   * @return this builder
+   * @throws NullPointerException in case policy is null
+   */
+  public ConcurrentMapEntityLockerBuilder<T> withAcquisitionPolicy(AcquisitionPolicy policy) {
+    this.acquisitionPolicy = Objects.requireNonNull(policy, "Acquisition policy must be not null");
+    return this;
+  }
+
+  /**
+   * Sets order in which the lock is granted to competing threads, default is FairnessPolicy.BARGING
+   *
+   * @param policy fairness policy
+   * @return this builder
+   * @throws NullPointerException in case policy is null
+   */
+  public ConcurrentMapEntityLockerBuilder<T> withFairnessPolicy(FairnessPolicy policy) {
+    this.fairnessPolicy = Objects.requireNonNull(policy, "Fairness policy must be not null");
+    return this;
+  }
+
+  ConcurrentMapEntityLockerBuilder<T> withLockingMap(ConcurrentMap<T, EntityLock> lockingMap) {
+    this.lockingMap = lockingMap;
+    return this;
+  }
+
+  public ConcurrentMapEntityLocker<T> build() {
+    return new ConcurrentMapEntityLocker<>(this);
+  }
+
+}
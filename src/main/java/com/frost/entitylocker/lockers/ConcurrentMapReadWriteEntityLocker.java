@@ -0,0 +1,191 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ReadWriteEntityLocker thread safe implementation based on ConcurrentHashMap of read-write locks.
+ * Each entry counts threads that hold or wait for its lock, so the entry is never replaced while it's in use
+ * and it's removed from the map by the last thread that releases it. The count is changed by CAS, so the map
+ * is written only when an entry is created or removed, shared locking of a used entry doesn't contend on the map bin.
+ *
+ * @param <T> type of Entity id
+ */
+public class ConcurrentMapReadWriteEntityLocker<T> implements ReadWriteEntityLocker<T> {
+
+  private final static long NO_WAITING = -1;
+
+  private final ConcurrentMap<T, ReadWriteEntityLock> lockingMap;
+
+  /**
+   * Constructs new ConcurrentMapReadWriteEntityLocker based on default ConcurrentMap implementation
+   */
+  public ConcurrentMapReadWriteEntityLocker() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Constructs new ConcurrentMapReadWriteEntityLocker based on provided map
+   *
+   * @param concurrentMap map that will be used for storing locks
+   */
+  ConcurrentMapReadWriteEntityLocker(ConcurrentMap<T, ReadWriteEntityLock> concurrentMap) {
+    this.lockingMap = concurrentMap;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockShared(T entityId) throws InterruptedException {
+    lockInternal(entityId, true, NO_WAITING);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockShared(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return lockInternal(entityId, true, toNanos(timeout, timeUnit));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockShared(T entityId) {
+    unlockInternal(entityId, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockExclusive(T entityId) throws InterruptedException {
+    lockInternal(entityId, false, NO_WAITING);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockExclusive(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return lockInternal(entityId, false, toNanos(timeout, timeUnit));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockExclusive(T entityId) {
+    unlockInternal(entityId, false);
+  }
+
+  private boolean lockInternal(T entityId, boolean shared, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    ReadWriteEntityLock entry  = retain(entityId);
+    Lock                lock   = shared ? entry.lock.readLock() : entry.lock.writeLock();
+    boolean             locked = false;
+    try {
+      if (nanoseconds == NO_WAITING) {
+        lock.lockInterruptibly();
+        locked = true;
+      } else {
+        locked = lock.tryLock(nanoseconds, TimeUnit.NANOSECONDS);
+      }
+      return locked;
+    } finally {
+      if (!locked) {
+        release(entityId, entry);
+      }
+    }
+  }
+
+  private void unlockInternal(T entityId, boolean shared) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    ReadWriteEntityLock entry = lockingMap.get(entityId);
+    if (entry == null) {
+      throw new IllegalMonitorStateException();
+    }
+    if (shared) {
+      if (entry.lock.getReadHoldCount() == 0) {
+        throw new IllegalMonitorStateException();
+      }
+      entry.lock.readLock().unlock();
+    } else {
+      if (!entry.lock.isWriteLockedByCurrentThread()) {
+        throw new IllegalMonitorStateException();
+      }
+      entry.lock.writeLock().unlock();
+    }
+    release(entityId, entry);
+  }
+
+  private ReadWriteEntityLock retain(T entityId) {
+    for (; ; ) {
+      ReadWriteEntityLock entry = lockingMap.get(entityId);
+      if (entry == null) {
+        entry = lockingMap.computeIfAbsent(entityId, key -> new ReadWriteEntityLock());
+      }
+      if (entry.retain()) {
+        return entry;
+      }
+      lockingMap.remove(entityId, entry); // Retired entry is being removed by its last user, help it and retry
+    }
+  }
+
+  private void release(T entityId, ReadWriteEntityLock entry) {
+    if (entry.release()) {
+      lockingMap.remove(entityId, entry); // Remove unused lock to avoid memory leaks
+    }
+  }
+
+  private static long toNanos(long timeout, TimeUnit timeUnit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return timeUnit.toNanos(timeout);
+  }
+
+  static class ReadWriteEntityLock {
+
+    static final int RETIRED = -1;
+
+    final ReentrantReadWriteLock lock  = new ReentrantReadWriteLock();
+    final AtomicInteger          users = new AtomicInteger(); // Count of threads that hold or wait for the lock
+
+    /**
+     * @return {@code false} if the entry is retired and must not be used anymore
+     */
+    boolean retain() {
+      for (; ; ) {
+        int current = users.get();
+        if (current == RETIRED) {
+          return false;
+        }
+        if (users.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * @return {@code true} if the last user released the entry and retired it
+     */
+    boolean release() {
+      for (; ; ) {
+        int current = users.get();
+        int next    = current == 1 ? RETIRED : current - 1;
+        if (users.compareAndSet(current, next)) {
+          return next == RETIRED;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.frost.entitylocker.lockers.ConcurrentMapEntityLocker.EntityLock;
+
+/**
+ * Wait-for graph of threads waiting on entity locks: waiting thread → entity lock → owner thread.
+ * Only threads that failed to acquire the lock immediately are registered in the graph, each of them checks
+ * whether it closes a cycle when it starts waiting and then every check interval.
+ * The thread with the greatest id in the cycle is chosen as a victim, so exactly one thread of the cycle fails
+ * even if several threads find the same cycle.
+ */
+final class DeadlockDetector {
+
+  private final ConcurrentMap<Thread, EntityLock> waitingFor = new ConcurrentHashMap<>();
+  private final LongAdder                         deadlocks  = new LongAdder();
+  private final long                              checkIntervalNanos;
+
+  /**
+   * @param checkInterval maximal time between checks of a waiting thread
+   * @param timeUnit      time unit of the interval
+   * @throws IllegalArgumentException if interval is not positive
+   */
+  DeadlockDetector(long checkInterval, TimeUnit timeUnit) {
+    if (checkInterval <= 0) {
+      throw new IllegalArgumentException("Check interval should be greater than zero");
+    }
+    this.checkIntervalNanos = timeUnit.toNanos(checkInterval);
+  }
+
+  /**
+   * Waits for the entity lock checking the wait-for graph for cycles
+   *
+   * @param entityLock lock to acquire
+   * @param timed      {@code true} if waiting time is limited by deadline
+   * @param deadline   value of System.nanoTime() when waiting should be stopped
+   * @return {@code true} if the lock was acquired
+   * @throws InterruptedException if waiting was interrupted
+   * @throws DeadlockException    if the current thread was chosen as a victim of a deadlock
+   */
+  boolean await(EntityLock entityLock, boolean timed, long deadline) throws InterruptedException {
+    Thread current = Thread.currentThread();
+    waitingFor.put(current, entityLock);
+    try {
+      for (; ; ) {
+        List<Thread> cycle = findCycle(current, entityLock);
+        if (cycle != null && isVictim(current, cycle)) {
+          deadlocks.increment();
+          throw new DeadlockException(cycle);
+        }
+        long wait = checkIntervalNanos;
+        if (timed) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          wait = Math.min(wait, remaining);
+        }
+        if (entityLock.lock.tryLock(wait, TimeUnit.NANOSECONDS)) {
+          return true;
+        }
+      }
+    } finally {
+      waitingFor.remove(current);
+    }
+  }
+
+  /**
+   * @return count of threads failed with DeadlockException
+   */
+  long getDeadlockCount() {
+    return deadlocks.sum();
+  }
+
+  private List<Thread> findCycle(Thread current, EntityLock entityLock) {
+    List<Thread> path  = new ArrayList<>();
+    Thread       owner = entityLock.owner;
+    path.add(current);
+    for (int steps = waitingFor.size(); owner != null && steps >= 0; steps--) { // Cycles without us are found by their members
+      if (owner == current) {
+        return path;
+      }
+      EntityLock next = waitingFor.get(owner);
+      if (next == null) {
+        return null; // Owner isn't waiting, so it will release the lock eventually
+      }
+      path.add(owner);
+      owner = next.owner;
+    }
+    return null;
+  }
+
+  private static boolean isVictim(Thread current, List<Thread> cycle) {
+    for (Thread thread : cycle) {
+      if (thread.getId() > current.getId()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
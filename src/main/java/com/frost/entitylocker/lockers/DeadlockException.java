@@ -0,0 +1,40 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown to the thread chosen as a victim of a deadlock instead of acquiring the lock on entity id.
+ * Locks that were already held by the thread are not released, the caller should release them to break the cycle.
+ */
+public class DeadlockException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient List<Thread> cycle;
+
+  /**
+   * @param cycle threads of the wait-for cycle starting with the victim, each thread waits for the next one
+   */
+  public DeadlockException(List<Thread> cycle) {
+    super(describe(cycle));
+    this.cycle = Collections.unmodifiableList(new ArrayList<>(cycle));
+  }
+
+  /**
+   * @return threads of the wait-for cycle starting with the victim, each thread waits for the next one
+   */
+  public List<Thread> getCycle() {
+    return cycle;
+  }
+
+  private static String describe(List<Thread> cycle) {
+    StringBuilder sb = new StringBuilder("Deadlock detected: ");
+    for (Thread thread : cycle) {
+      sb.append(thread.getName()).append(" -> ");
+    }
+    return sb.append(cycle.get(0).getName()).toString();
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.frost.entitylocker.lockers.ConcurrentMapEntityLocker.EntityLock;
+
+/**
+ * Bounded per-thread free-list of EntityLock instances used by ConcurrentMapEntityLocker to avoid
+ * producing garbage for entity ids that are locked and unlocked frequently.
+ * Lock is returned to the free-list of the thread that released it, which is usually the thread that locks next.
+ */
+final class EntityLockPool {
+
+  private final int                               capacity;
+  private final boolean                           fair;
+  private final ThreadLocal<ArrayDeque<EntityLock>> freeLists;
+  private final LongAdder                         hits   = new LongAdder();
+  private final LongAdder                         misses = new LongAdder();
+
+  /**
+   * @param capacity maximal count of free locks kept by each thread
+   * @param fair     fairness of created locks
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  EntityLockPool(int capacity, boolean fair) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Pool capacity should be greater than zero");
+    }
+    this.capacity = capacity;
+    this.fair = fair;
+    this.freeLists = ThreadLocal.withInitial(ArrayDeque::new);
+  }
+
+  /**
+   * @return free lock from the current thread free-list or new lock if the free-list is empty
+   */
+  EntityLock acquire() {
+    EntityLock entityLock = freeLists.get().pollFirst();
+    if (entityLock != null) {
+      hits.increment();
+      return entityLock;
+    }
+    misses.increment();
+    return new EntityLock(fair);
+  }
+
+  /**
+   * Returns released lock to the current thread free-list, lock is discarded if the free-list is full
+   *
+   * @param entityLock lock that is not held by any thread and removed from the locking map
+   */
+  void release(EntityLock entityLock) {
+    ArrayDeque<EntityLock> freeList = freeLists.get();
+    if (freeList.size() < capacity) {
+      freeList.addFirst(entityLock);
+    }
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  long getHitCount() {
+    return hits.sum();
+  }
+
+  long getMissCount() {
+    return misses.sum();
+  }
+}
@@ -1,6 +1,9 @@
 package com.frost.entitylocker.lockers;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Reusable utility class that provides synchronization mechanism similar to row-level DB locking.
@@ -17,6 +20,9 @@ import java.util.concurrent.TimeUnit;
  * Bonus requirements (Implemented):
  * I. Allow reentrant locking.
  * II. Allow the caller to specify timeout for locking an entity.
+ * <p>
+ * Several entity ids can be locked at once by lockIds and tryLockIds methods, ids are always acquired
+ * in the same canonical order, so such calls can't deadlock with each other.
  *
  * @param <T> type of Entity id
  */
@@ -54,5 +60,90 @@ public interface EntityLocker<T> {
    */
   void unlockId(T entityId);
 
-}
+  /**
+   * Lock several entities by ids in canonical order, so concurrent calls with the same ids in different order
+   * can't deadlock. Duplicated ids are locked once. Ids that have no canonical order between them (not Comparable
+   * ids with the same hash code) are acquired under a global tie lock.
+   *
+   * @param entityIds entity ids to lock
+   * @throws InterruptedException if locking was interrupted, already acquired locks are released in this case
+   * @throws NullPointerException in case collection or any entity id is null
+   */
+  default void lockIds(Collection<T> entityIds) throws InterruptedException {
+    List<T>       ordered = MultiLockSupport.sortedDistinct(entityIds);
+    ReentrantLock tieLock = MultiLockSupport.tieLockFor(ordered);
+    int           locked  = 0;
+    if (tieLock != null) {
+      tieLock.lockInterruptibly();
+    }
+    try {
+      for (T entityId : ordered) {
+        lockId(entityId);
+        locked++;
+      }
+    } finally {
+      if (locked < ordered.size()) {
+        MultiLockSupport.unlockAll(this, ordered, locked);
+      }
+      if (tieLock != null) {
+        tieLock.unlock();
+      }
+    }
+  }
 
+  /**
+   * Trying to lock several entities by ids in canonical order within the given waiting time for all ids.
+   * Duplicated ids are locked once.
+   *
+   * @param entityIds entity ids to lock
+   * @param timeout   the time to wait for all locks
+   * @param timeUnit  the time unit of the timeout argument
+   * @return {@code true} if all locks were acquired and {@code false} if the waiting time elapsed before
+   * all locks could be acquired, already acquired locks are released in this case
+   * @throws InterruptedException     if locking was interrupted, already acquired locks are released in this case
+   * @throws NullPointerException     in case collection or any entity id is null
+   * @throws IllegalArgumentException if timeout is negative
+   */
+  default boolean tryLockIds(Collection<T> entityIds, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    List<T>       ordered  = MultiLockSupport.sortedDistinct(entityIds);
+    ReentrantLock tieLock  = MultiLockSupport.tieLockFor(ordered);
+    long          deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+    int           locked   = 0;
+    if (tieLock != null && !tieLock.tryLock(timeout, timeUnit)) {
+      return false;
+    }
+    try {
+      for (T entityId : ordered) {
+        if (!tryLockId(entityId, Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+          return false;
+        }
+        locked++;
+      }
+      return true;
+    } finally {
+      if (locked < ordered.size()) {
+        MultiLockSupport.unlockAll(this, ordered, locked);
+      }
+      if (tieLock != null) {
+        tieLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Unlock several entities by ids that were locked by lockIds or tryLockIds methods
+   *
+   * @param entityIds entity ids to unlock
+   * @throws NullPointerException         in case collection or any entity id is null
+   * @throws IllegalMonitorStateException if the current thread does not hold any of these locks,
+   *                                      the rest of the locks are released anyway
+   */
+  default void unlockIds(Collection<T> entityIds) {
+    List<T> ordered = MultiLockSupport.sortedDistinct(entityIds);
+    MultiLockSupport.unlockAll(this, ordered, ordered.size());
+  }
+
+}
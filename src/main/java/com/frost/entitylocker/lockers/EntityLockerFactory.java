@@ -13,6 +13,74 @@ public class EntityLockerFactory {
     return new ConcurrentMapEntityLocker<>();
   }
 
+  public static <T> EntityLocker<T> getConcurrentEntityLocker(AcquisitionPolicy policy) {
+    return new ConcurrentMapEntityLockerBuilder<T>().withAcquisitionPolicy(policy).build();
+  }
+
+  public static <T> EntityLocker<T> getConcurrentEntityLocker(FairnessPolicy policy) {
+    return new ConcurrentMapEntityLockerBuilder<T>().withFairnessPolicy(policy).build();
+  }
+
+  public static <T> ConcurrentMapEntityLockerBuilder<T> getConcurrentEntityLockerBuilder() {
+    return new ConcurrentMapEntityLockerBuilder<>();
+  }
+
+  public static <T> EscalatingEntityLocker<T> getEscalatingEntityLocker(int threshold) {
+    return new EscalatingEntityLocker<>(getConcurrentEntityLocker(), threshold);
+  }
+
+  public static <T> LeaseEntityLocker<T> getLeaseEntityLocker() {
+    return new LeaseEntityLocker<>();
+  }
+
+  public static <T> OwnerTokenEntityLocker<T> getOwnerTokenEntityLocker() {
+    return new OwnerTokenEntityLocker<>();
+  }
+
+  public static <T> HierarchicalEntityLocker<T> getHierarchicalEntityLocker() {
+    return new HierarchicalEntityLocker<>();
+  }
+
+  public static <T extends Comparable<T>> RangeEntityLocker<T> getRangeEntityLocker() {
+    return new RangeEntityLocker<>();
+  }
+
+  public static <T> ReadWriteEntityLocker<T> getReadWriteEntityLocker() {
+    return new ConcurrentMapReadWriteEntityLocker<>();
+  }
+
+  public static <T> StampedEntityLocker<T> getStampedEntityLocker() {
+    return new StampedEntityLocker<>();
+  }
+
+  public static <T> StampedEntityLocker<T> getStampedEntityLocker(int stripeCount) {
+    return new StampedEntityLocker<>(stripeCount);
+  }
+
+  public static <T> EntityLocker<T> getStripedEntityLocker() {
+    return new StripedEntityLocker<>();
+  }
+
+  public static <T> EntityLocker<T> getStripedEntityLocker(int stripeCount) {
+    return new StripedEntityLocker<>(stripeCount);
+  }
+
+  public static <T> EntityLocker<T> getCasEntityLocker() {
+    return new CasEntityLocker<>();
+  }
+
+  public static <T> EntityLocker<T> getCasEntityLocker(int stripeCount) {
+    return new CasEntityLocker<>(stripeCount);
+  }
+
+  public static LongEntityLocker getLongEntityLocker() {
+    return new ConcurrentLongEntityLocker();
+  }
+
+  public static IntEntityLocker getIntEntityLocker() {
+    return new ConcurrentIntEntityLocker();
+  }
+
   public static <T> EntityLocker<T> getUnsafeEntityLocker() {
     return new UnsafeEntityLocker<>();
   }
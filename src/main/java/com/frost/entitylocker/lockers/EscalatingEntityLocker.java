@@ -0,0 +1,275 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EntityLocker decorator that escalates entity locks of a thread to a global exclusive lock once the thread holds
+ * more than threshold entity locks. Escalated thread releases its entries in the backing locker and continues
+ * without touching it, other threads wait for the global lock before acquiring their first entity lock.
+ * <p>
+ * Each thread registers itself before acquiring its first entity lock and unregisters after releasing the last one.
+ * Thread escalates only when it's the only registered thread, so it never waits for other threads and
+ * escalation can't cause a deadlock. Until that happens the escalation stays pending: new threads wait,
+ * already registered threads continue and the thread retries escalation on each new entity id.
+ *
+ * @param <T> type of Entity id
+ */
+public class EscalatingEntityLocker<T> implements EntityLocker<T> {
+
+  private final static long NO_WAITING = -1;
+  private final static int  ESCALATED  = -1;
+
+  private final EntityLocker<T>             delegate;
+  private final int                         threshold;
+  private final EscalationListener          listener;
+  private final AtomicInteger               registered        = new AtomicInteger(); // Count of threads or ESCALATED
+  private final AtomicReference<Thread>     pendingEscalation = new AtomicReference<>();
+  private final LongAdder                   escalations       = new LongAdder();
+  private final ReentrantLock               monitor           = new ReentrantLock();
+  private final Condition                   released          = monitor.newCondition();
+  private final ThreadLocal<Holdings<T>>    holdings          = ThreadLocal.withInitial(Holdings::new);
+  private volatile Thread                   escalatedOwner;
+
+  /**
+   * Constructs new EscalatingEntityLocker without listener
+   *
+   * @param delegate  locker that is used until escalation
+   * @param threshold maximal count of distinct entity ids held by a thread without escalation
+   * @throws NullPointerException     in case delegate is null
+   * @throws IllegalArgumentException if threshold is not positive
+   */
+  public EscalatingEntityLocker(EntityLocker<T> delegate, int threshold) {
+    this(delegate, threshold, new EscalationListener() {
+    });
+  }
+
+  /**
+   * Constructs new EscalatingEntityLocker
+   *
+   * @param delegate  locker that is used until escalation
+   * @param threshold maximal count of distinct entity ids held by a thread without escalation
+   * @param listener  listener of escalation events
+   * @throws NullPointerException     in case delegate or listener is null
+   * @throws IllegalArgumentException if threshold is not positive
+   */
+  public EscalatingEntityLocker(EntityLocker<T> delegate, int threshold, EscalationListener listener) {
+    Objects.requireNonNull(delegate, "Locker must be not null");
+    Objects.requireNonNull(listener, "Listener must be not null");
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("Threshold should be greater than zero");
+    }
+    this.delegate = delegate;
+    this.threshold = threshold;
+    this.listener = listener;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    lockIdInternal(entityId, NO_WAITING);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockIdInternal(entityId, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Holdings<T> current = holdings.get();
+    int[]       count   = current.counts.get(entityId);
+    if (count == null) {
+      throw new IllegalMonitorStateException();
+    }
+    if (!current.escalated) {
+      delegate.unlockId(entityId);
+    }
+    if (--count[0] == 0) {
+      current.counts.remove(entityId);
+      if (current.counts.isEmpty()) {
+        if (current.escalated) {
+          current.escalated = false;
+          deescalate();
+        } else {
+          unregister();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return maximal count of distinct entity ids held by a thread without escalation
+   */
+  public int getEscalationThreshold() {
+    return threshold;
+  }
+
+  /**
+   * @return count of escalations since the locker was created
+   */
+  public long getEscalationCount() {
+    return escalations.sum();
+  }
+
+  /**
+   * @return thread that holds the global lock or null if there is no escalated thread
+   */
+  public Thread getEscalatedOwner() {
+    return escalatedOwner;
+  }
+
+  private boolean lockIdInternal(T entityId, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Holdings<T>   current = holdings.get();
+    Map<T, int[]> held    = current.counts;
+    int[]         count   = held.get(entityId);
+    if (current.escalated) { // We hold the global lock, so just count holds
+      if (count == null) {
+        held.put(entityId, new int[]{1});
+      } else {
+        count[0]++;
+      }
+      return true;
+    }
+    long deadline = System.nanoTime() + nanoseconds;
+    if (held.isEmpty() && !register(nanoseconds, deadline)) {
+      return false;
+    }
+    boolean locked = false;
+    try {
+      if (count != null) {
+        delegate.lockId(entityId); // Reentrant locking of already held id doesn't wait
+        count[0]++;
+      } else if (held.size() >= threshold && tryEscalate(current)) {
+        held.put(entityId, new int[]{1});
+      } else {
+        locked = nanoseconds == NO_WAITING ? lockDelegate(entityId) :
+            delegate.tryLockId(entityId, Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (!locked) {
+          return false;
+        }
+        held.put(entityId, new int[]{1});
+      }
+      locked = true;
+      return true;
+    } finally {
+      if (!locked && held.isEmpty()) {
+        unregister();
+      }
+    }
+  }
+
+  private boolean lockDelegate(T entityId) throws InterruptedException {
+    delegate.lockId(entityId);
+    return true;
+  }
+
+  private boolean register(long nanoseconds, long deadline) throws InterruptedException {
+    Thread current = Thread.currentThread();
+    for (; ; ) {
+      int    state   = registered.get();
+      Thread pending = pendingEscalation.get();
+      if (state != ESCALATED && (pending == null || pending == current)) {
+        if (registered.compareAndSet(state, state + 1)) {
+          return true;
+        }
+        continue;
+      }
+      monitor.lockInterruptibly();
+      try {
+        while (registered.get() == ESCALATED || !isPendingFor(current)) {
+          if (nanoseconds == NO_WAITING) {
+            released.await();
+          } else {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+              return false;
+            }
+            released.awaitNanos(remaining);
+          }
+        }
+      } finally {
+        monitor.unlock();
+      }
+    }
+  }
+
+  private boolean isPendingFor(Thread current) {
+    Thread pending = pendingEscalation.get();
+    return pending == null || pending == current;
+  }
+
+  private void unregister() {
+    registered.decrementAndGet();
+    if (pendingEscalation.compareAndSet(Thread.currentThread(), null)) {
+      signalWaiters(); // Escalation wasn't needed anymore, let new threads in
+    }
+  }
+
+  private boolean tryEscalate(Holdings<T> holdings) {
+    Thread        current = Thread.currentThread();
+    Map<T, int[]> held    = holdings.counts;
+    pendingEscalation.compareAndSet(null, current); // Stop new threads until we become the only registered thread
+    if (pendingEscalation.get() != current || !registered.compareAndSet(1, ESCALATED)) {
+      return false;
+    }
+    escalatedOwner = current;
+    holdings.escalated = true;
+    for (Map.Entry<T, int[]> entry : held.entrySet()) { // Release entries of the backing locker, nobody waits for them
+      for (int i = 0; i < entry.getValue()[0]; i++) {
+        delegate.unlockId(entry.getKey());
+      }
+    }
+    escalations.increment();
+    listener.onEscalation(current, held.size() + 1);
+    return true;
+  }
+
+  private void deescalate() {
+    Thread current = Thread.currentThread();
+    escalatedOwner = null;
+    pendingEscalation.set(null);
+    registered.set(0);
+    signalWaiters();
+    listener.onDeescalation(current);
+  }
+
+  private void signalWaiters() {
+    monitor.lock();
+    try {
+      released.signalAll();
+    } finally {
+      monitor.unlock();
+    }
+  }
+
+  /**
+   * Entity ids held by a thread with their hold counts
+   */
+  private static final class Holdings<T> {
+
+    final Map<T, int[]> counts = new HashMap<>();
+    boolean             escalated;
+  }
+
+}
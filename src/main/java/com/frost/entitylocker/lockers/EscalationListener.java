@@ -0,0 +1,24 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Listener of lock escalation events of EscalatingEntityLocker
+ */
+public interface EscalationListener {
+
+  /**
+   * Called by the thread that switched from entity locks to the global exclusive lock
+   *
+   * @param thread    escalated thread
+   * @param heldLocks count of distinct entity ids held by the thread including the one that caused escalation
+   */
+  default void onEscalation(Thread thread, int heldLocks) {
+  }
+
+  /**
+   * Called by the escalated thread when it releases the last entity id and the global lock
+   *
+   * @param thread escalated thread
+   */
+  default void onDeescalation(Thread thread) {
+  }
+}
@@ -0,0 +1,25 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Order in which ConcurrentMapEntityLocker grants the lock on entity id to competing threads
+ */
+public enum FairnessPolicy {
+
+  /**
+   * Lock is granted to any thread that asks when it's free. Lock is removed from the backing map on each release,
+   * so waiting threads compete with new threads again. It gives the maximal throughput, but waiting threads can starve.
+   */
+  BARGING,
+
+  /**
+   * Lock is handed directly to the longest waiting thread. Lock stays in the backing map while threads wait for it,
+   * so waiting threads never lose to a new lock. It bounds tail latency at the cost of throughput.
+   */
+  FIFO,
+
+  /**
+   * Like FIFO, but new threads may take the free lock ahead of waiting threads, at most
+   * ConcurrentMapEntityLocker.MAX_CONSECUTIVE_BARGES times in a row, after that the longest waiting thread gets it.
+   */
+  BOUNDED_BARGING
+}
@@ -0,0 +1,210 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer for a large number of approximate timeouts. Timeouts are kept in a wheel of buckets, the worker thread
+ * visits one bucket per tick and expires its timeouts whose remaining rounds are over. Scheduling and cancelling
+ * only add the timeout to a lock-free queue, the worker moves it to the wheel or unlinks it from its bucket,
+ * so each timeout costs O(1) regardless of their count. Timeouts expire up to one tick late.
+ */
+final class HashedWheelTimer {
+
+  private static final int MAX_TRANSFERS_PER_TICK = 100000; // Don't let a burst of new timeouts delay expiration
+
+  private final long           tickNanos;
+  private final Bucket[]       wheel;
+  private final int            mask;
+  private final long           startTime;
+  private final Queue<Timeout> added     = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+  private final Thread         worker;
+  private       long           tick; // Changed only by the worker thread
+
+  /**
+   * @param name         name of the daemon worker thread
+   * @param tickDuration duration of one tick
+   * @param timeUnit     the time unit of the tick duration
+   * @param wheelSize    minimal count of buckets, rounded up to the nearest power of two
+   * @throws IllegalArgumentException if tick duration or wheel size is not positive
+   */
+  HashedWheelTimer(String name, long tickDuration, TimeUnit timeUnit, int wheelSize) {
+    this.tickNanos = timeUnit.toNanos(tickDuration);
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("Tick duration should be greater than zero");
+    }
+    int size = Stripes.sizeFor(wheelSize);
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.startTime = System.nanoTime();
+    this.worker = new Thread(this::run, name);
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /**
+   * @param task     task executed by the worker thread when the timeout expires, it should be short
+   * @param delay    delay of the task
+   * @param timeUnit the time unit of the delay
+   * @return timeout that can be cancelled
+   */
+  Timeout schedule(Runnable task, long delay, TimeUnit timeUnit) {
+    Timeout timeout = new Timeout(task, System.nanoTime() - startTime + timeUnit.toNanos(delay));
+    added.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Stops the worker thread, timeouts that didn't expire yet are never executed
+   */
+  void stop() {
+    worker.interrupt();
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      long deadline = tickNanos * (tick + 1);
+      long sleep    = deadline - (System.nanoTime() - startTime);
+      if (sleep > 0) {
+        LockSupport.parkNanos(this, sleep);
+        continue;
+      }
+      removeCancelled();
+      transferAdded();
+      wheel[(int) (tick & mask)].expire(deadline);
+      tick++;
+    }
+  }
+
+  private void transferAdded() {
+    for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+      Timeout timeout = added.poll();
+      if (timeout == null) {
+        return;
+      }
+      if (timeout.state.get() == Timeout.CANCELLED) {
+        continue;
+      }
+      long expirationTick = timeout.deadline / tickNanos;
+      timeout.rounds = (expirationTick - tick) / wheel.length;
+      wheel[(int) (Math.max(expirationTick, tick) & mask)].add(timeout); // Overdue timeout expires on this tick
+    }
+  }
+
+  private void removeCancelled() {
+    for (; ; ) {
+      Timeout timeout = cancelled.poll();
+      if (timeout == null) {
+        return;
+      }
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  final class Timeout {
+
+    static final int WAITING   = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED   = 2;
+
+    private final Runnable      task;
+    private final long          deadline; // Nanoseconds since start of the timer
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+    private       long          rounds; // Fields below are changed only by the worker thread
+    private       Bucket        bucket;
+    private       Timeout       prev;
+    private       Timeout       next;
+
+    private Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * @return {@code true} if the timeout was cancelled and {@code false} if it has already expired or cancelled
+     */
+    boolean cancel() {
+      if (!state.compareAndSet(WAITING, CANCELLED)) {
+        return false;
+      }
+      cancelled.add(this); // Worker unlinks it from the bucket
+      return true;
+    }
+
+    private void expire() {
+      if (state.compareAndSet(WAITING, EXPIRED)) {
+        try {
+          task.run();
+        } catch (RuntimeException | Error e) { // Keep the worker alive
+          Thread worker = Thread.currentThread();
+          worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Doubly linked list of timeouts, used only by the worker thread
+   */
+  private final class Bucket {
+
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    void expire(long deadline) {
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+          remove(timeout);
+          timeout.expire();
+        } else if (timeout.state.get() == Timeout.CANCELLED) {
+          remove(timeout);
+        } else {
+          timeout.rounds--;
+        }
+        timeout = next;
+      }
+    }
+
+    void remove(Timeout timeout) {
+      if (timeout.bucket != this) {
+        return; // Already removed
+      }
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+    }
+  }
+
+}
@@ -0,0 +1,329 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * ReadWriteEntityLocker for nested entities identified by id path from the root, e.g. [tenant, account, order].
+ * Locking a path in shared or exclusive mode acquires intention mode (IS or IX) on each ancestor from the root
+ * down to the parent and the requested mode on the last node, so locking the whole tenant conflicts with locks
+ * of its accounts and orders, while siblings are locked concurrently. See LockMode for the compatibility matrix.
+ * <p>
+ * All modes are reentrant, modes held by the current thread never conflict with its new requests, so a thread
+ * that holds a tenant exclusively can lock any of its descendants. A thread that holds no locks of this locker
+ * doesn't take intention mode on a node ahead of threads waiting for conflicting S or X mode, so locking
+ * the whole tenant isn't starved by a stream of new child locks.
+ * <p>
+ * Each node counts threads that hold or wait for it and it's removed from the map by the last of them
+ * like in ConcurrentMapReadWriteEntityLocker. Several paths locked by lockIds are ordered as whole paths,
+ * so paths of different depth that overlap should not be locked by one call.
+ *
+ * @param <T> type of id of one level of the path
+ */
+public class HierarchicalEntityLocker<T> implements ReadWriteEntityLocker<List<T>> {
+
+  private final static long       NO_WAITING = -1;
+  private final static LockMode[] MODES      = LockMode.values();
+
+  private final BiFunction<List<T>, Node, Node> retain  = (key, node) -> {
+    Node result = node != null ? node : new Node();
+    result.users++;
+    return result;
+  };
+  private final BiFunction<List<T>, Node, Node> release = (key, node) ->
+      --node.users == 0 ? null : node; // Remove unused node to avoid memory leaks
+
+  private final ConcurrentMap<List<T>, Node> lockingMap;
+  private final ThreadLocal<int[]>           heldModes = ThreadLocal.withInitial(() -> new int[1]); // Count of modes held by the thread
+
+  /**
+   * Constructs new HierarchicalEntityLocker based on default ConcurrentMap implementation
+   */
+  public HierarchicalEntityLocker() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Constructs new HierarchicalEntityLocker based on provided map
+   *
+   * @param concurrentMap map that will be used for storing nodes
+   */
+  HierarchicalEntityLocker(ConcurrentMap<List<T>, Node> concurrentMap) {
+    this.lockingMap = concurrentMap;
+  }
+
+  /**
+   * Acquire the lock on the last node of the path in the given mode and intention mode on all its ancestors
+   *
+   * @param path id path from the root
+   * @param mode lock mode of the last node
+   * @throws InterruptedException     if locking was interrupted, already acquired intention modes are released
+   * @throws NullPointerException     in case path, any id of it or mode is null
+   * @throws IllegalArgumentException if path is empty
+   */
+  public void lock(List<T> path, LockMode mode) throws InterruptedException {
+    lockInternal(path, mode, NO_WAITING);
+  }
+
+  /**
+   * @param path     id path from the root
+   * @param mode     lock mode of the last node
+   * @param timeout  the time to wait for all nodes of the path
+   * @param timeUnit the time unit of the timeout argument
+   * @return {@code true} if the lock was acquired and {@code false} if the waiting time elapsed before
+   * the lock could be acquired, already acquired intention modes are released in this case
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case path, any id of it or mode is null
+   * @throws IllegalArgumentException if path is empty or timeout is negative
+   */
+  public boolean tryLock(List<T> path, LockMode mode, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockInternal(path, mode, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Release the lock on the last node of the path and intention mode on all its ancestors
+   *
+   * @param path id path from the root
+   * @param mode lock mode of the last node
+   * @throws NullPointerException         in case path, any id of it or mode is null
+   * @throws IllegalArgumentException     if path is empty
+   * @throws IllegalMonitorStateException if the current thread does not hold the last node in this mode
+   */
+  public void unlock(List<T> path, LockMode mode) {
+    Objects.requireNonNull(mode, "Lock mode must not be null");
+    List<List<T>> nodes = nodesOf(path);
+    unlockNode(nodes.get(nodes.size() - 1), mode); // Fails before touching ancestors if the node isn't held
+    unlockAncestors(nodes, mode, nodes.size() - 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockShared(List<T> path) throws InterruptedException {
+    lock(path, LockMode.S);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockShared(List<T> path, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return tryLock(path, LockMode.S, timeout, timeUnit);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockShared(List<T> path) {
+    unlock(path, LockMode.S);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockExclusive(List<T> path) throws InterruptedException {
+    lock(path, LockMode.X);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockExclusive(List<T> path, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return tryLock(path, LockMode.X, timeout, timeUnit);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockExclusive(List<T> path) {
+    unlock(path, LockMode.X);
+  }
+
+  private boolean lockInternal(List<T> path, LockMode mode, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(mode, "Lock mode must not be null");
+    List<List<T>> nodes    = nodesOf(path);
+    long          deadline = System.nanoTime() + nanoseconds;
+    int           locked   = 0;
+    try {
+      for (List<T> node : nodes) { // From the root down to the last node
+        LockMode nodeMode = locked == nodes.size() - 1 ? mode : mode.intention();
+        long     nanos    = nanoseconds == NO_WAITING ? NO_WAITING : Math.max(0L, deadline - System.nanoTime());
+        if (!lockNode(node, nodeMode, nanos)) {
+          return false;
+        }
+        locked++;
+      }
+      return true;
+    } finally {
+      if (locked < nodes.size()) {
+        unlockAncestors(nodes, mode, locked); // Only intention modes were acquired
+      }
+    }
+  }
+
+  private boolean lockNode(List<T> key, LockMode mode, long nanoseconds) throws InterruptedException {
+    int[]   held   = heldModes.get();
+    Node    node   = lockingMap.compute(key, retain);
+    boolean locked = false;
+    try {
+      locked = node.acquire(mode, nanoseconds, held[0] == 0);
+      if (locked) {
+        held[0]++;
+      }
+      return locked;
+    } finally {
+      if (!locked) {
+        lockingMap.computeIfPresent(key, release);
+      }
+    }
+  }
+
+  private void unlockNode(List<T> key, LockMode mode) {
+    Node node = lockingMap.get(key);
+    if (node == null) {
+      throw new IllegalMonitorStateException();
+    }
+    node.release(mode);
+    heldModes.get()[0]--;
+    lockingMap.computeIfPresent(key, release);
+  }
+
+  private void unlockAncestors(List<List<T>> nodes, LockMode mode, int count) {
+    for (int i = count - 1; i >= 0; i--) {
+      unlockNode(nodes.get(i), mode.intention());
+    }
+  }
+
+  /**
+   * @return keys of all nodes of the path from the root, they are views of the immutable copy of the path
+   */
+  private List<List<T>> nodesOf(List<T> path) {
+    Objects.requireNonNull(path, "Entity id must not be null");
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("Path should contain at least one id");
+    }
+    List<T> copy = Collections.unmodifiableList(new ArrayList<>(path));
+    for (T entityId : copy) {
+      Objects.requireNonNull(entityId, "Entity id must not be null");
+    }
+    List<List<T>> nodes = new ArrayList<>(copy.size());
+    for (int i = 1; i <= copy.size(); i++) {
+      nodes.add(copy.subList(0, i));
+    }
+    return nodes;
+  }
+
+  static class Node {
+
+    final ReentrantLock      lock    = new ReentrantLock();
+    final Condition          changed = lock.newCondition();
+    final int[]              granted = new int[MODES.length]; // Count of holds of each mode by all threads
+    final int[]              waiting = new int[MODES.length]; // Count of threads waiting for each mode
+    final Map<Thread, int[]> holders = new HashMap<>(); // Holds of each mode by thread
+    int                      users; // Count of threads that hold or wait for the node, changed only inside of map compute methods
+
+    boolean acquire(LockMode mode, long nanoseconds, boolean yield) throws InterruptedException {
+      Thread current = Thread.currentThread();
+      lock.lockInterruptibly();
+      try {
+        int[] own = holders.get(current);
+        while (!isGrantable(mode, own, yield)) {
+          if (nanoseconds != NO_WAITING && nanoseconds <= 0) {
+            return false;
+          }
+          boolean grantable = false;
+          waiting[mode.ordinal()]++;
+          try {
+            if (nanoseconds == NO_WAITING) {
+              changed.await();
+            } else {
+              nanoseconds = changed.awaitNanos(nanoseconds);
+            }
+            grantable = isGrantable(mode, own, yield);
+          } finally {
+            waiting[mode.ordinal()]--;
+            if (!grantable && (mode == LockMode.S || mode == LockMode.X)) {
+              changed.signalAll(); // Threads that yielded to us may proceed if we give up
+            }
+          }
+        }
+        if (own == null) {
+          own = new int[MODES.length];
+          holders.put(current, own);
+        }
+        own[mode.ordinal()]++;
+        granted[mode.ordinal()]++;
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void release(LockMode mode) {
+      Thread current = Thread.currentThread();
+      lock.lock();
+      try {
+        int[] own = holders.get(current);
+        if (own == null || own[mode.ordinal()] == 0) {
+          throw new IllegalMonitorStateException();
+        }
+        own[mode.ordinal()]--;
+        granted[mode.ordinal()]--;
+        if (isEmpty(own)) {
+          holders.remove(current);
+        }
+        if (!isEmpty(waiting)) {
+          changed.signalAll();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Mode is granted if it's compatible with all modes held by other threads. Intention mode is not granted
+     * to a thread that yields while another thread waits for a conflicting S or X mode.
+     */
+    private boolean isGrantable(LockMode mode, int[] own, boolean yield) {
+      for (LockMode held : MODES) {
+        int others = granted[held.ordinal()] - (own != null ? own[held.ordinal()] : 0);
+        if (others > 0 && !mode.isCompatibleWith(held)) {
+          return false;
+        }
+      }
+      if (yield && own == null && (mode == LockMode.IS || mode == LockMode.IX)) {
+        return (waiting[LockMode.S.ordinal()] == 0 || mode.isCompatibleWith(LockMode.S)) &&
+            waiting[LockMode.X.ordinal()] == 0;
+      }
+      return true;
+    }
+
+    private static boolean isEmpty(int[] counts) {
+      for (int count : counts) {
+        if (count != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Contended entity id reported by ConcurrentMapEntityLocker.hotKeys
+ *
+ * @param <T> type of Entity id
+ */
+public final class HotKey<T> {
+
+  private final T    entityId;
+  private final long contentionCount;
+  private final long error;
+  private final long holdCount;
+  private final long holdNanos;
+
+  HotKey(T entityId, long contentionCount, long error, long holdCount, long holdNanos) {
+    this.entityId = entityId;
+    this.contentionCount = contentionCount;
+    this.error = error;
+    this.holdCount = holdCount;
+    this.holdNanos = holdNanos;
+  }
+
+  /**
+   * @return contended entity id
+   */
+  public T getEntityId() {
+    return entityId;
+  }
+
+  /**
+   * @return estimated count of acquisitions that had to wait for this id, it's never less than the real count
+   */
+  public long getContentionCount() {
+    return contentionCount;
+  }
+
+  /**
+   * @return maximal overestimation of contention count, real count is at least contentionCount - error
+   */
+  public long getError() {
+    return error;
+  }
+
+  /**
+   * @return mean time the id was held while other threads waited for it, zero if it wasn't measured yet
+   */
+  public long getMeanHoldNanos() {
+    return holdCount == 0 ? 0 : holdNanos / holdCount;
+  }
+
+  @Override
+  public String toString() {
+    return entityId + " (contention: " + contentionCount + " ± " + error + ", mean hold: " + getMeanHoldNanos() + "ns)";
+  }
+
+}
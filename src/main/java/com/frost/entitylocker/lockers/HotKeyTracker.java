@@ -0,0 +1,158 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded memory heavy hitters sketch of contended entity ids based on Space-Saving algorithm: each stripe keeps
+ * a fixed number of counters, an id that isn't tracked replaces the id with the minimal count and inherits
+ * this count as its error. Ids are distributed between stripes by hash, so counts of different stripes
+ * are independent. Recording only tries to lock the stripe and drops the sample if it's busy,
+ * so tracking never makes contention worse. It's called only by threads that already had to wait.
+ */
+final class HotKeyTracker {
+
+  private static final int STRIPE_CAPACITY = 16;
+
+  private final Stripe[]  stripes;
+  private final int       mask;
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * @param capacity minimal count of tracked ids
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  HotKeyTracker(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity should be greater than zero");
+    }
+    int size = Stripes.sizeFor((capacity + STRIPE_CAPACITY - 1) / STRIPE_CAPACITY);
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new Stripe((capacity + size - 1) / size);
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * Records acquisition of entity id that had to wait
+   */
+  void recordContention(Object entityId) {
+    Stripe stripe = stripes[Stripes.indexFor(entityId, mask)];
+    if (!stripe.tryLock()) {
+      dropped.increment();
+      return;
+    }
+    try {
+      int i = stripe.indexOf(entityId);
+      if (i < 0) {
+        i = stripe.replaceMinimal(entityId);
+      }
+      stripe.counts[i]++;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * Records hold time of entity id released while other threads waited for it, untracked ids are ignored
+   */
+  void recordHold(Object entityId, long nanoseconds) {
+    Stripe stripe = stripes[Stripes.indexFor(entityId, mask)];
+    if (!stripe.tryLock()) {
+      dropped.increment();
+      return;
+    }
+    try {
+      int i = stripe.indexOf(entityId);
+      if (i >= 0) {
+        stripe.holdCounts[i]++;
+        stripe.holdNanos[i] += nanoseconds;
+      }
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * @param k maximal count of returned ids
+   * @return the most contended ids in descending order of contention count
+   */
+  @SuppressWarnings("unchecked")
+  <T> List<HotKey<T>> hotKeys(int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("Count of keys should be greater than zero");
+    }
+    List<HotKey<T>> result = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      stripe.lock();
+      try {
+        for (int i = 0; i < stripe.size; i++) {
+          result.add(new HotKey<>((T) stripe.keys[i], stripe.counts[i], stripe.errors[i], stripe.holdCounts[i],
+              stripe.holdNanos[i]));
+        }
+      } finally {
+        stripe.unlock();
+      }
+    }
+    result.sort(Comparator.comparingLong((HotKey<T> key) -> key.getContentionCount()).reversed());
+    return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+  }
+
+  /**
+   * @return count of samples dropped because the stripe was busy
+   */
+  long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  @SuppressWarnings("serial")
+  private static final class Stripe extends ReentrantLock {
+
+    final Object[] keys;
+    final long[]   counts;
+    final long[]   errors;
+    final long[]   holdCounts;
+    final long[]   holdNanos;
+    int            size;
+
+    Stripe(int capacity) {
+      this.keys = new Object[capacity];
+      this.counts = new long[capacity];
+      this.errors = new long[capacity];
+      this.holdCounts = new long[capacity];
+      this.holdNanos = new long[capacity];
+    }
+
+    int indexOf(Object key) {
+      for (int i = 0; i < size; i++) {
+        if (keys[i].equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    int replaceMinimal(Object key) {
+      if (size < keys.length) {
+        keys[size] = key;
+        return size++;
+      }
+      int min = 0;
+      for (int i = 1; i < size; i++) {
+        if (counts[i] < counts[min]) {
+          min = i;
+        }
+      }
+      keys[min] = key;
+      errors[min] = counts[min]; // New id inherits the count of evicted one, so counts are never underestimated
+      holdCounts[min] = 0;
+      holdNanos[min] = 0;
+      return min;
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same as EntityLocker but for primitive int entity ids, so locking doesn't box entity ids
+ *
+ * @see EntityLocker
+ */
+public interface IntEntityLocker {
+
+  /**
+   * Lock entity by id
+   *
+   * @param entityId entity id to lock
+   * @throws InterruptedException if locking was interrupted
+   */
+  void lockId(int entityId) throws InterruptedException;
+
+  /**
+   * @param entityId entity id to lock
+   * @param timeout  the time to wait for the lock
+   * @param timeUnit the time unit of the timeout argument
+   * @return {@code true} if the lock was free and was acquired by the
+   * current thread, or the lock was already held by the current
+   * thread; and {@code false} if the waiting time elapsed before
+   * the lock could be acquired
+   * @throws InterruptedException     if locking was interrupted
+   * @throws IllegalArgumentException if timeout is negative
+   */
+  boolean tryLockId(int entityId, long timeout, TimeUnit timeUnit) throws InterruptedException;
+
+  /**
+   * Unlock entity by id
+   *
+   * @param entityId entity id to unlock
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  void unlockId(int entityId);
+
+}
@@ -0,0 +1,39 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Lease on entity id granted by LeaseEntityLocker. The lease is valid until it's released or its TTL expires,
+ * fencing token identifies the grant: tokens of later grants are always greater, so storage that remembers
+ * the greatest token it has seen can reject writes of a holder whose lease has expired.
+ *
+ * @param <T> type of Entity id
+ */
+public final class Lease<T> {
+
+  private final T    entityId;
+  private final long token;
+
+  Lease(T entityId, long token) {
+    this.entityId = entityId;
+    this.token = token;
+  }
+
+  /**
+   * @return leased entity id
+   */
+  public T getEntityId() {
+    return entityId;
+  }
+
+  /**
+   * @return fencing token of this grant, it's greater than tokens of all previous grants of the locker
+   */
+  public long getToken() {
+    return token;
+  }
+
+  @Override
+  public String toString() {
+    return entityId + " (token: " + token + ")";
+  }
+
+}
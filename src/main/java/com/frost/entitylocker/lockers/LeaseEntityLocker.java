@@ -0,0 +1,242 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Locker that grants time limited leases on entity ids instead of locks held until unlock. Each acquisition
+ * takes a TTL, the lease that isn't released or renewed in time expires and the next waiting thread gets
+ * the entity, so a hung holder can't block the entity forever. Each grant returns a fencing token that's greater
+ * than tokens of all previous grants, pass it to the storage to reject late writes of an expired holder.
+ * <p>
+ * Lease is owned by its token, not by a thread, so it can be released or renewed by any thread. Leases aren't
+ * reentrant: a second acquisition of the same id waits for the first lease. Expiration is driven by a shared
+ * hashed wheel timer with O(1) cost per lease, so leases expire up to one tick (10ms by default) late.
+ * Each entry counts threads that wait for it and the current lease, it's removed from the map by the last of them
+ * like in ConcurrentMapReadWriteEntityLocker.
+ *
+ * @param <T> type of Entity id
+ */
+public class LeaseEntityLocker<T> {
+
+  public static final  long NO_LEASE   = 0; // Token of a free entry, real tokens start from 1
+  private final static long NO_WAITING = -1;
+
+  private final BiFunction<T, LeaseEntry, LeaseEntry> retain  = (key, entry) -> {
+    LeaseEntry result = entry != null ? entry : new LeaseEntry();
+    result.users++;
+    return result;
+  };
+  private final BiFunction<T, LeaseEntry, LeaseEntry> release = (key, entry) ->
+      --entry.users == 0 ? null : entry; // Remove unused entry to avoid memory leaks
+
+  private final ConcurrentMap<T, LeaseEntry> lockingMap = new ConcurrentHashMap<>();
+  private final AtomicLong                   tokens     = new AtomicLong(NO_LEASE);
+  private final LongAdder                    expired    = new LongAdder();
+  private final HashedWheelTimer             timer;
+
+  /**
+   * Constructs new LeaseEntityLocker that uses the shared timer
+   */
+  public LeaseEntityLocker() {
+    this(SharedTimer.INSTANCE);
+  }
+
+  LeaseEntityLocker(HashedWheelTimer timer) {
+    this.timer = timer;
+  }
+
+  /**
+   * Acquire lease on entity by id, waits until the current lease of the entity is released or expired
+   *
+   * @param entityId entity id to lease
+   * @param ttl      time to live of the lease
+   * @param ttlUnit  the time unit of the ttl argument
+   * @return granted lease
+   * @throws InterruptedException     if acquisition was interrupted
+   * @throws NullPointerException     in case entity id is null
+   * @throws IllegalArgumentException if ttl is not positive
+   */
+  public Lease<T> acquire(T entityId, long ttl, TimeUnit ttlUnit) throws InterruptedException {
+    return acquireInternal(entityId, toTtlNanos(ttl, ttlUnit), NO_WAITING);
+  }
+
+  /**
+   * @param entityId entity id to lease
+   * @param ttl      time to live of the lease
+   * @param ttlUnit  the time unit of the ttl argument
+   * @param timeout  the time to wait for the lease
+   * @param timeUnit the time unit of the timeout argument
+   * @return granted lease or {@code null} if the waiting time elapsed before the lease could be granted
+   * @throws InterruptedException     if acquisition was interrupted
+   * @throws NullPointerException     in case entity id is null
+   * @throws IllegalArgumentException if ttl is not positive or timeout is negative
+   */
+  public Lease<T> tryAcquire(T entityId, long ttl, TimeUnit ttlUnit, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return acquireInternal(entityId, toTtlNanos(ttl, ttlUnit), timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Release the lease and wake up the next waiting thread
+   *
+   * @param lease lease to release
+   * @return {@code true} if the lease was released and {@code false} if it has already expired or released
+   * @throws NullPointerException in case lease is null
+   */
+  public boolean release(Lease<T> lease) {
+    Objects.requireNonNull(lease, "Lease must not be null");
+    LeaseEntry entry = lockingMap.get(lease.getEntityId());
+    return entry != null && revoke(lease.getEntityId(), entry, lease.getToken(), false);
+  }
+
+  /**
+   * Extend the lease, new TTL is counted from now
+   *
+   * @param lease   lease to renew
+   * @param ttl     new time to live of the lease
+   * @param ttlUnit the time unit of the ttl argument
+   * @return {@code true} if the lease was renewed and {@code false} if it has already expired or released
+   * @throws NullPointerException     in case lease is null
+   * @throws IllegalArgumentException if ttl is not positive
+   */
+  public boolean renew(Lease<T> lease, long ttl, TimeUnit ttlUnit) {
+    Objects.requireNonNull(lease, "Lease must not be null");
+    long       ttlNanos = toTtlNanos(ttl, ttlUnit);
+    T          entityId = lease.getEntityId();
+    LeaseEntry entry    = lockingMap.get(entityId);
+    if (entry == null) {
+      return false;
+    }
+    entry.lock.lock();
+    try {
+      if (entry.token != lease.getToken()) {
+        return false;
+      }
+      entry.expiration.cancel();
+      entry.expiration = scheduleExpiration(entityId, entry, lease.getToken(), ttlNanos);
+      return true;
+    } finally {
+      entry.lock.unlock();
+    }
+  }
+
+  /**
+   * @param lease lease to check
+   * @return {@code true} if the lease is neither released nor expired
+   * @throws NullPointerException in case lease is null
+   */
+  public boolean isValid(Lease<T> lease) {
+    Objects.requireNonNull(lease, "Lease must not be null");
+    LeaseEntry entry = lockingMap.get(lease.getEntityId());
+    return entry != null && entry.token == lease.getToken();
+  }
+
+  /**
+   * @return count of leases that expired before they were released
+   */
+  public long getExpiredCount() {
+    return expired.sum();
+  }
+
+  /**
+   * @return count of entity ids that are leased or waited for, used by tests
+   */
+  int size() {
+    return lockingMap.size();
+  }
+
+  private Lease<T> acquireInternal(T entityId, long ttlNanos, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    LeaseEntry entry   = lockingMap.compute(entityId, retain);
+    boolean    granted = false;
+    try {
+      entry.lock.lockInterruptibly();
+      try {
+        while (entry.token != NO_LEASE) {
+          if (nanoseconds == NO_WAITING) {
+            entry.released.await();
+          } else if (nanoseconds > 0) {
+            nanoseconds = entry.released.awaitNanos(nanoseconds);
+          } else {
+            return null;
+          }
+        }
+        long token = tokens.incrementAndGet(); // Grants are ordered by the entry lock, so tokens of the id only grow
+        entry.token = token;
+        entry.expiration = scheduleExpiration(entityId, entry, token, ttlNanos);
+        granted = true;
+        return new Lease<>(entityId, token);
+      } finally {
+        entry.lock.unlock();
+      }
+    } finally {
+      if (!granted) {
+        lockingMap.computeIfPresent(entityId, release);
+      }
+    }
+  }
+
+  private HashedWheelTimer.Timeout scheduleExpiration(T entityId, LeaseEntry entry, long token, long ttlNanos) {
+    return timer.schedule(() -> revoke(entityId, entry, token, true), ttlNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Frees the entry if the lease is still current, the lease user is dropped by the one who freed it
+   * before waiters are signalled, so the next holder never sees the entry counted for the previous lease
+   */
+  private boolean revoke(T entityId, LeaseEntry entry, long token, boolean expiration) {
+    entry.lock.lock();
+    try {
+      if (entry.token != token) {
+        return false;
+      }
+      entry.token = NO_LEASE;
+      if (expiration) {
+        expired.increment();
+      } else {
+        entry.expiration.cancel();
+      }
+      entry.expiration = null;
+      lockingMap.computeIfPresent(entityId, release); // Waiters keep their own users, so the entry stays if they exist
+      entry.released.signalAll(); // Some of waiters could time out at the same moment
+    } finally {
+      entry.lock.unlock();
+    }
+    return true;
+  }
+
+  private static long toTtlNanos(long ttl, TimeUnit ttlUnit) {
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("TTL should be greater than zero");
+    }
+    return ttlUnit.toNanos(ttl);
+  }
+
+  static class LeaseEntry {
+
+    final ReentrantLock      lock     = new ReentrantLock();
+    final Condition          released = lock.newCondition();
+    volatile long            token    = NO_LEASE; // Changed only under the lock
+    HashedWheelTimer.Timeout expiration; // Guarded by the lock
+    int                      users; // Count of threads that wait for the entry and the current lease, changed only inside of map compute methods
+  }
+
+  /**
+   * Timer shared by all lockers, its daemon thread is started on first use
+   */
+  private static final class SharedTimer {
+
+    static final HashedWheelTimer INSTANCE = new HashedWheelTimer("entity-locker-lease-timer", 10, TimeUnit.MILLISECONDS, 512);
+  }
+
+}
@@ -0,0 +1,17 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Held entity lock returned by ConcurrentMapEntityLocker.acquire, closing the handle releases one acquisition
+ * of the lock, so the lock is released by try-with-resources block
+ */
+public interface LockHandle extends AutoCloseable {
+
+  /**
+   * Release one acquisition of the lock
+   *
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  @Override
+  void close();
+
+}
@@ -0,0 +1,59 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Lock modes of HierarchicalEntityLocker. Intention modes are held on all ancestors of the locked id path
+ * and tell that some descendant is locked in shared or exclusive mode.
+ * <pre>
+ *        IS   IX   S    X
+ *   IS   +    +    +    -
+ *   IX   +    +    -    -
+ *   S    +    -    +    -
+ *   X    -    -    -    -
+ * </pre>
+ */
+public enum LockMode {
+
+  /**
+   * Intention shared: some descendant is locked in shared mode
+   */
+  IS,
+
+  /**
+   * Intention exclusive: some descendant is locked in exclusive mode
+   */
+  IX,
+
+  /**
+   * Shared: the node and all its descendants are locked for reading
+   */
+  S,
+
+  /**
+   * Exclusive: the node and all its descendants are locked for writing
+   */
+  X;
+
+  /**
+   * @return intention mode held on ancestors of the node locked in this mode
+   */
+  public LockMode intention() {
+    return this == IS || this == S ? IS : IX;
+  }
+
+  /**
+   * @param other mode held by another thread
+   * @return {@code true} if this mode can be held together with the other mode
+   */
+  public boolean isCompatibleWith(LockMode other) {
+    switch (this) {
+      case IS:
+        return other != X;
+      case IX:
+        return other == IS || other == IX;
+      case S:
+        return other == IS || other == S;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock table for primitive long entity ids. Table is split into segments, each segment is an open-addressing
+ * hash table with linear probing guarded by its own lock, so neither locking nor unlocking boxes entity ids.
+ * Only currently held ids are stored in the table, entries are removed on the last unlock.
+ * Threads waiting for an id share a condition of that id, so unlocking wakes a single waiter of the released id
+ * instead of all waiters of the segment.
+ */
+final class LongLockTable {
+
+  static final         int  DEFAULT_SEGMENT_COUNT = 64;
+  private static final int  INITIAL_CAPACITY      = 16;
+  private static final int  MAX_COUNT             = Integer.MAX_VALUE;
+  private static final long GOLDEN_RATIO          = 0x9E3779B97F4A7C15L;
+
+  private final Segment[] segments;
+  private final int       segmentShift;
+  private final int       segmentMask;
+
+  /**
+   * @param segmentCount minimal count of segments, rounded up to the nearest power of two
+   * @throws IllegalArgumentException if segment count is not positive or too big
+   */
+  LongLockTable(int segmentCount) {
+    int size = Stripes.sizeFor(segmentCount);
+    this.segments = new Segment[size];
+    for (int i = 0; i < size; i++) {
+      segments[i] = new Segment();
+    }
+    this.segmentShift = 64 - Integer.numberOfTrailingZeros(size);
+    this.segmentMask = size - 1; // Shift by 64 is no-op in Java, mask handles the single segment case
+  }
+
+  /**
+   * Acquires the lock on entity id, waits if it's held by another thread
+   *
+   * @param entityId entity id to lock
+   * @param timed    {@code true} if waiting time is limited by nanoseconds
+   * @param nanos    maximal time to wait
+   * @return {@code true} if the lock was acquired
+   * @throws InterruptedException if locking was interrupted
+   */
+  boolean lock(long entityId, boolean timed, long nanos) throws InterruptedException {
+    long    hash    = hash(entityId);
+    Segment segment = segmentFor(hash);
+    Thread  current = Thread.currentThread();
+    Waiting waiting = null;
+    segment.lockInterruptibly();
+    try {
+      for (; ; ) {
+        int i = segment.indexOf(entityId, hash);
+        if (i < 0) {
+          segment.insert(entityId, hash, current);
+          return true;
+        }
+        if (segment.owners[i] == current) {
+          if (segment.counts[i] == MAX_COUNT) {
+            throw new Error("Maximum lock count exceeded");
+          }
+          segment.counts[i]++;
+          return true;
+        }
+        if (waiting == null) {
+          waiting = segment.join(entityId);
+        }
+        if (!timed) {
+          waiting.released.await();
+        } else if (nanos > 0) {
+          nanos = waiting.released.awaitNanos(nanos);
+        } else {
+          return false;
+        }
+      }
+    } finally {
+      if (waiting != null) {
+        segment.leave(waiting);
+      }
+      segment.unlock();
+    }
+  }
+
+  /**
+   * Releases the lock on entity id
+   *
+   * @param entityId entity id to unlock
+   * @throws IllegalMonitorStateException if the current thread does not hold this lock
+   */
+  void unlock(long entityId) {
+    long    hash    = hash(entityId);
+    Segment segment = segmentFor(hash);
+    segment.lock();
+    try {
+      int i = segment.indexOf(entityId, hash);
+      if (i < 0 || segment.owners[i] != Thread.currentThread()) {
+        throw new IllegalMonitorStateException();
+      }
+      if (--segment.counts[i] == 0) {
+        segment.removeAt(i);
+        if (segment.waiting != null) {
+          segment.signal(entityId);
+        }
+      }
+    } finally {
+      segment.unlock();
+    }
+  }
+
+  static long toNanos(long timeout, TimeUnit timeUnit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return timeUnit.toNanos(timeout);
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[(int) (hash >>> segmentShift) & segmentMask];
+  }
+
+  private static long hash(long entityId) {
+    long h = entityId * GOLDEN_RATIO; // Fibonacci hashing, high bits select segment and low bits select slot
+    return h ^ (h >>> 29);
+  }
+
+  @SuppressWarnings("serial")
+  static final class Segment extends ReentrantLock {
+
+    long[]   keys   = new long[INITIAL_CAPACITY];
+    Thread[] owners = new Thread[INITIAL_CAPACITY]; // null owner marks empty slot
+    int[]    counts = new int[INITIAL_CAPACITY];
+    int      size;
+    Waiting  waiting; // Waiters grouped by id, there are few of them, so the list is short
+
+    Waiting join(long key) {
+      Waiting w = find(key);
+      if (w == null) {
+        w = new Waiting(key, newCondition(), waiting);
+        waiting = w;
+      }
+      w.count++;
+      return w;
+    }
+
+    void leave(Waiting w) {
+      if (--w.count > 0) {
+        return;
+      }
+      if (waiting == w) {
+        waiting = w.next;
+        return;
+      }
+      Waiting prev = waiting;
+      while (prev.next != w) {
+        prev = prev.next;
+      }
+      prev.next = w.next;
+    }
+
+    void signal(long key) {
+      Waiting w = find(key);
+      if (w != null) {
+        w.released.signal(); // Only one waiter can take the id, it signals the next one on its unlock
+      }
+    }
+
+    private Waiting find(long key) {
+      for (Waiting w = waiting; w != null; w = w.next) {
+        if (w.key == key) {
+          return w;
+        }
+      }
+      return null;
+    }
+
+    int indexOf(long key, long hash) {
+      int mask = keys.length - 1;
+      for (int i = (int) hash & mask; owners[i] != null; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void insert(long key, long hash, Thread owner) {
+      if ((size + 1) * 2 > keys.length) { // Keep load factor not greater than 0.5
+        rehash(keys.length << 1);
+      }
+      int mask = keys.length - 1;
+      int i    = (int) hash & mask;
+      while (owners[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      owners[i] = owner;
+      counts[i] = 1;
+      size++;
+    }
+
+    void removeAt(int i) {
+      int mask = keys.length - 1;
+      // Backward shift deletion: move following entries of the probe sequence into the freed slot
+      for (int j = (i + 1) & mask; owners[j] != null; j = (j + 1) & mask) {
+        int home = (int) hash(keys[j]) & mask;
+        if (((j - home) & mask) >= ((j - i) & mask)) {
+          keys[i] = keys[j];
+          owners[i] = owners[j];
+          counts[i] = counts[j];
+          i = j;
+        }
+      }
+      owners[i] = null;
+      counts[i] = 0;
+      size--;
+      if (keys.length > INITIAL_CAPACITY && size * 8 < keys.length) { // Shrink after bursts of locked ids
+        rehash(keys.length >>> 1);
+      }
+    }
+
+    private void rehash(int capacity) {
+      long[]   oldKeys   = keys;
+      Thread[] oldOwners = owners;
+      int[]    oldCounts = counts;
+      keys = new long[capacity];
+      owners = new Thread[capacity];
+      counts = new int[capacity];
+      int mask = capacity - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldOwners[j] != null) {
+          int i = (int) hash(oldKeys[j]) & mask;
+          while (owners[i] != null) {
+            i = (i + 1) & mask;
+          }
+          keys[i] = oldKeys[j];
+          owners[i] = oldOwners[j];
+          counts[i] = oldCounts[j];
+        }
+      }
+    }
+  }
+
+  static final class Waiting {
+
+    final long      key;
+    final Condition released;
+    Waiting         next;
+    int             count;
+
+    Waiting(long key, Condition released, Waiting next) {
+      this.key = key;
+      this.released = released;
+      this.next = next;
+    }
+  }
+
+}
@@ -0,0 +1,216 @@
+package com.frost.entitylocker.lockers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * EntityLocker that excludes protected code of different processes of one host: locks are kept in a fixed-size
+ * open-addressed table in a memory-mapped file shared by all lockers opened on that file. Lock slots are claimed
+ * and freed with CAS on the mapped memory. Each locker registers itself in the table with its PID and a heartbeat
+ * refreshed by a daemon thread, locks of a process that crashed or stopped its heartbeat for longer than
+ * the liveness timeout are reclaimed by other lockers. Waiting for a lock of another process reads its heartbeat
+ * from the mapped memory and looks its PID up at most once per heartbeat period (a quarter of the timeout),
+ * so the lock path makes a system call only when such a lookup is due.
+ * <p>
+ * Threads of one locker wait for each other on a local reentrant lock per entity like in ConcurrentMapEntityLocker,
+ * only the thread that got the local lock claims the shared slot and waits for other processes with exponential
+ * backoff from 1 microsecond to 1 millisecond. Lock is reentrant, the shared slot is freed by the outermost unlock.
+ * <p>
+ * Entity ids are identified across processes by a 64-bit hash, so the hasher must return the same value for equal ids
+ * in all JVMs: default hashCode of String, boxed primitives and enums of one build is fine, identity hash codes are not.
+ * Ids whose hashes share the high 40 bits exclude each other, that's rare and safe. Lockers opened on one file must
+ * use the same slot count.
+ *
+ * @param <T> type of Entity id
+ */
+public class MappedFileEntityLocker<T> implements EntityLocker<T>, AutoCloseable {
+
+  public static final  int  DEFAULT_SLOT_COUNT          = 1 << 16;
+  public static final  long DEFAULT_LIVENESS_TIMEOUT_MS = 10_000L;
+  private final static long NO_WAITING                  = -1;
+  private final static long MIN_BACKOFF_NANOS           = 1_000L;
+  private final static long MAX_BACKOFF_NANOS           = 1_000_000L;
+
+  private final BiFunction<T, LocalLock, LocalLock> retain  = (key, lock) -> {
+    LocalLock result = lock != null ? lock : new LocalLock();
+    result.users++;
+    return result;
+  };
+  private final BiFunction<T, LocalLock, LocalLock> release = (key, lock) ->
+      --lock.users == 0 ? null : lock; // Remove unused lock to avoid memory leaks
+
+  private final ConcurrentMap<T, LocalLock> lockingMap = new ConcurrentHashMap<>();
+  private final MappedLockTable             table;
+  private final ToLongFunction<? super T>   hasher;
+
+  /**
+   * Opens the lock table file with default slot count, liveness timeout and hashCode of ids as the hash,
+   * the file is created if it doesn't exist
+   *
+   * @param file lock table file shared by processes
+   * @throws IOException              if the file can't be created or mapped
+   * @throws IllegalArgumentException if the file has another slot count or isn't a lock table
+   */
+  public MappedFileEntityLocker(Path file) throws IOException {
+    this(file, DEFAULT_SLOT_COUNT, DEFAULT_LIVENESS_TIMEOUT_MS, TimeUnit.MILLISECONDS, Object::hashCode);
+  }
+
+  /**
+   * Opens the lock table file, the file is created if it doesn't exist
+   *
+   * @param file            lock table file shared by processes
+   * @param slotCount       count of lock slots, rounded up to the nearest power of two
+   * @param livenessTimeout time without heartbeat after which locks of a process are reclaimed
+   * @param timeUnit        the time unit of the livenessTimeout argument
+   * @param hasher          hash of entity id that is equal for equal ids in all processes
+   * @throws IOException              if the file can't be created or mapped
+   * @throws IllegalArgumentException if slot count or liveness timeout is out of range, or the file has another slot
+   *                                  count or isn't a lock table
+   * @throws IllegalStateException    if the table has no free entry for one more process
+   * @throws NullPointerException     in case file, timeUnit or hasher is null
+   */
+  public MappedFileEntityLocker(Path file, int slotCount, long livenessTimeout, TimeUnit timeUnit,
+                                ToLongFunction<? super T> hasher) throws IOException {
+    Objects.requireNonNull(file, "File must not be null");
+    Objects.requireNonNull(hasher, "Hasher must not be null");
+    this.hasher = hasher;
+    this.table = new MappedLockTable(file, slotCount, timeUnit.toMillis(livenessTimeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    lockIdInternal(entityId, NO_WAITING);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockIdInternal(entityId, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    LocalLock local = lockingMap.get(entityId);
+    if (local == null || !local.lock.isHeldByCurrentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    if (local.lock.getHoldCount() > 1) {
+      local.lock.unlock();
+      return;
+    }
+    table.release(local.slot, local.hash);
+    local.slot = MappedLockTable.NO_SLOT;
+    local.lock.unlock();
+    lockingMap.computeIfPresent(entityId, release);
+  }
+
+  /**
+   * Unregisters this locker from the lock table, locks that are still held are reclaimed by other processes
+   * as locks of a dead one. The locker must not be used after closing.
+   */
+  @Override
+  public void close() {
+    table.close();
+  }
+
+  /**
+   * @return the shared lock table, used by tests
+   */
+  MappedLockTable getTable() {
+    return table;
+  }
+
+  private boolean lockIdInternal(T entityId, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    long      deadline = System.nanoTime() + nanoseconds;
+    long      hash     = hash(entityId);
+    LocalLock local    = lockingMap.compute(entityId, retain);
+    boolean   acquired = false;
+    try {
+      if (nanoseconds == NO_WAITING) {
+        local.lock.lockInterruptibly();
+      } else if (!local.lock.tryLock(nanoseconds, TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+      if (local.lock.getHoldCount() > 1) {
+        return true; // Reentrant locking, the outermost acquisition holds the slot and the user count
+      }
+      try {
+        acquired = claimSlot(local, hash, nanoseconds == NO_WAITING ? NO_WAITING : deadline);
+      } finally {
+        if (!acquired) {
+          local.lock.unlock();
+        }
+      }
+      return acquired;
+    } finally {
+      if (!acquired) {
+        lockingMap.computeIfPresent(entityId, release); // Reentrant acquisition isn't counted as a new user either
+      }
+    }
+  }
+
+  private boolean claimSlot(LocalLock local, long hash, long deadline) throws InterruptedException {
+    long backoff = MIN_BACKOFF_NANOS;
+    for (; ; ) {
+      int slot = table.tryClaim(hash);
+      if (slot != MappedLockTable.NO_SLOT) {
+        local.slot = slot;
+        local.hash = hash;
+        return true;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      long park = backoff;
+      if (deadline != NO_WAITING) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        park = Math.min(park, remaining);
+      }
+      LockSupport.parkNanos(this, park); // Another process holds the entity, it can't unpark us
+      backoff = Math.min(backoff << 1, MAX_BACKOFF_NANOS);
+    }
+  }
+
+  private long hash(T entityId) {
+    long h = hasher.applyAsLong(entityId); // Finalizer of MurmurHash3 spreads small hashes over fingerprint bits
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static final class LocalLock {
+
+    final ReentrantLock lock  = new ReentrantLock();
+    int                 users; // Threads that hold or wait for the lock, changed only inside compute methods
+    int                 slot  = MappedLockTable.NO_SLOT; // Changed only by the holder
+    long                hash;
+  }
+
+}
@@ -0,0 +1,287 @@
+package com.frost.entitylocker.lockers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-size open-addressed lock table in a memory-mapped file shared by processes of one host.
+ * <p>
+ * File starts with a header, then a table of participant entries and then the lock slots, all of them are 8-byte
+ * words changed only by CAS or volatile writes. Each participant (usually one per process) claims an entry that
+ * holds its PID and generation and refreshes the heartbeat word next to it. A lock slot is a single word with
+ * a 40-bit fingerprint of the entity hash and the 24-bit token (generation and index) of the owner entry,
+ * zero means free. Owner is dead if its entry was released or claimed again, its heartbeat is older than
+ * the liveness timeout or its process doesn't exist, then its slots are reclaimed by the next participant that
+ * meets them. Heartbeat is checked on every meeting, while the process of a participant is looked up at most once
+ * per heartbeat period, so polling a held slot doesn't make a system call each time.
+ * <p>
+ * Slot of a hash can be anywhere in the probe window of PROBE_LENGTH slots from its home slot. A participant claims
+ * the first free slot of the window after checking that no other live participant holds the fingerprint, and checks
+ * the whole window again after the claim, so of two participants claiming the same fingerprint concurrently at
+ * least one sees the other and backs off. Slots are freed on release, the fixed window keeps this safe without
+ * tombstones. Different entities with the same fingerprint exclude each other, that's safe but rare.
+ */
+final class MappedLockTable implements AutoCloseable {
+
+  static final int  NO_SLOT       = -1;
+  static final int  PROBE_LENGTH  = 16;
+  static final int  MAX_PROCESSES = 256;
+  static final int  MAX_SLOTS     = 1 << 24;
+
+  private static final long MAGIC          = 0x454E544C4F434B31L; // "ENTLOCK1"
+  private static final int  MAGIC_OFFSET   = 0;
+  private static final int  SLOTS_FIELD    = 8;
+  private static final int  HEADER_SIZE    = 64;
+  private static final int  PROCESS_SIZE   = 16; // Claim word and heartbeat word
+  private static final int  SLOTS_OFFSET   = HEADER_SIZE + MAX_PROCESSES * PROCESS_SIZE;
+  private static final int  TOKEN_BITS     = 24;
+  private static final long TOKEN_MASK     = (1L << TOKEN_BITS) - 1;
+  private static final long ACTIVE         = 1L << 48; // Claim word: generation in bits 32-47, PID in bits 0-31
+  private static final long MAX_GENERATION = 0xFFFF;
+
+  private final MappedWords    words;
+  private final int            mask;
+  private final long           timeoutMillis;
+  private final long           periodMillis; // Heartbeat period, also the period of process lookups
+  private final ProcessCheck[] processChecks = new ProcessCheck[MAX_PROCESSES]; // Racy cache, a lost write costs a lookup
+  private final int            processOffset;
+  private final long           claim;
+  private final long           token;
+  private final Thread         heartbeat;
+  private volatile boolean     closed;
+
+  /**
+   * Maps the table file, creates it if it doesn't exist, and registers a new participant
+   *
+   * @param file          file of the table
+   * @param slotCount     count of lock slots, rounded up to the nearest power of two
+   * @param timeoutMillis participants whose heartbeat is older are dead
+   * @throws IOException              if the file can't be mapped
+   * @throws IllegalArgumentException if the file has another slot count or isn't a lock table
+   * @throws IllegalStateException    if all participant entries are used by live participants
+   */
+  MappedLockTable(Path file, int slotCount, long timeoutMillis) throws IOException {
+    if (slotCount < PROBE_LENGTH || slotCount > MAX_SLOTS) {
+      throw new IllegalArgumentException("Slot count should be in range [" + PROBE_LENGTH + ", " + MAX_SLOTS + "]");
+    }
+    if (timeoutMillis <= 0) {
+      throw new IllegalArgumentException("Liveness timeout should be greater than zero");
+    }
+    int slots = Stripes.sizeFor(slotCount);
+    int size  = SLOTS_OFFSET + slots * Long.BYTES;
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      if (channel.size() < size) {
+        channel.write(ByteBuffer.allocate(1), size - 1); // New pages are zero, i.e. free
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // Mapping stays valid after the channel is closed
+    }
+    this.words = new MappedWords(buffer);
+    this.mask = slots - 1;
+    this.timeoutMillis = timeoutMillis;
+    this.periodMillis = Math.max(1L, timeoutMillis / 4);
+    checkHeader(slots);
+    long pid   = ProcessIds.current() & 0xFFFFFFFFL;
+    int  index = register(pid);
+    this.processOffset = HEADER_SIZE + index * PROCESS_SIZE;
+    this.claim = words.getVolatile(processOffset);
+    this.token = generationOf(claim) << 8 | index;
+    this.heartbeat = new Thread(this::beat, "entity-locker-heartbeat");
+    heartbeat.setDaemon(true);
+    heartbeat.start();
+  }
+
+  /**
+   * Claims a slot for the hash if no other live participant holds it
+   *
+   * @param hash 64-bit hash of entity id
+   * @return claimed slot or NO_SLOT if the hash is held by another participant or the probe window is full
+   */
+  int tryClaim(long hash) {
+    long fingerprint = hash >>> TOKEN_BITS;
+    long word        = fingerprint << TOKEN_BITS | token;
+    int  home        = (int) hash & mask;
+    for (; ; ) {
+      int free = NO_SLOT;
+      int held = findHeld(fingerprint, home, NO_SLOT);
+      if (held == RESCAN) {
+        continue;
+      }
+      if (held != NO_SLOT) {
+        return NO_SLOT;
+      }
+      for (int i = 0; i < PROBE_LENGTH && free == NO_SLOT; i++) {
+        int slot = (home + i) & mask;
+        if (words.getVolatile(slotOffset(slot)) == 0) {
+          free = slot;
+        }
+      }
+      if (free == NO_SLOT) {
+        return NO_SLOT; // Window is full of other locks, wait for their release like for a held lock
+      }
+      if (!words.compareAndSet(slotOffset(free), 0, word)) {
+        continue; // Slot was taken meanwhile
+      }
+      do {
+        held = findHeld(fingerprint, home, free); // Somebody could claim another slot of the window concurrently
+      } while (held == RESCAN);
+      if (held != NO_SLOT) {
+        words.compareAndSet(slotOffset(free), word, 0);
+        return NO_SLOT;
+      }
+      return free;
+    }
+  }
+
+  /**
+   * Frees the slot claimed for the hash, the slot isn't changed if it was reclaimed by another participant
+   */
+  void release(int slot, long hash) {
+    words.compareAndSet(slotOffset(slot), (hash >>> TOKEN_BITS) << TOKEN_BITS | token, 0);
+  }
+
+  /**
+   * Releases the participant entry, its remaining slots are reclaimed by other participants
+   */
+  @Override
+  public void close() {
+    closed = true;
+    heartbeat.interrupt();
+    words.compareAndSet(processOffset, claim, claim & ~ACTIVE); // Keeps generation for the next participant
+  }
+
+  /**
+   * @return count of claimed slots, used by tests
+   */
+  int size() {
+    int count = 0;
+    for (int slot = 0; slot <= mask; slot++) {
+      if (words.getVolatile(slotOffset(slot)) != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Stops the heartbeat without releasing anything like a crashed process, used by tests
+   */
+  void stopHeartbeat() {
+    heartbeat.interrupt();
+  }
+
+  private static final int RESCAN = -2;
+
+  /**
+   * @return slot of the fingerprint held by another live participant, NO_SLOT if there is no such slot
+   *         or RESCAN if a slot of a dead participant couldn't be reclaimed
+   */
+  private int findHeld(long fingerprint, int home, int own) {
+    for (int i = 0; i < PROBE_LENGTH; i++) {
+      int  slot = (home + i) & mask;
+      long word = words.getVolatile(slotOffset(slot));
+      if (slot == own || word == 0 || word >>> TOKEN_BITS != fingerprint || (word & TOKEN_MASK) == token) {
+        continue; // Own slots belong to other entities with the same fingerprint, the local lock excludes the same entity
+      }
+      if (isAlive(word & TOKEN_MASK)) {
+        return slot;
+      }
+      if (!words.compareAndSet(slotOffset(slot), word, 0)) {
+        return RESCAN;
+      }
+    }
+    return NO_SLOT;
+  }
+
+  private boolean isAlive(long ownerToken) {
+    int  index  = (int) (ownerToken & 0xFF);
+    int  offset = HEADER_SIZE + index * PROCESS_SIZE;
+    long owner  = words.getVolatile(offset);
+    if ((owner & ACTIVE) == 0 || generationOf(owner) != ownerToken >>> 8) {
+      return false;
+    }
+    long now = System.currentTimeMillis();
+    if (now - words.getVolatile(offset + Long.BYTES) > timeoutMillis) {
+      return false;
+    }
+    ProcessCheck check = processChecks[index];
+    if (check != null && check.claim == owner && now - check.checkedAt < periodMillis) {
+      return true;
+    }
+    if (!ProcessIds.isAlive(owner & 0xFFFFFFFFL)) {
+      return false;
+    }
+    processChecks[index] = new ProcessCheck(owner, now);
+    return true;
+  }
+
+  private boolean isAlive(long owner, int offset) {
+    return System.currentTimeMillis() - words.getVolatile(offset + Long.BYTES) <= timeoutMillis
+        && ProcessIds.isAlive(owner & 0xFFFFFFFFL);
+  }
+
+  private int register(long pid) {
+    for (int index = 0; index < MAX_PROCESSES; index++) {
+      int  offset  = HEADER_SIZE + index * PROCESS_SIZE;
+      long current = words.getVolatile(offset);
+      if ((current & ACTIVE) != 0 && isAlive(current, offset)) {
+        continue;
+      }
+      words.setVolatile(offset + Long.BYTES, System.currentTimeMillis()); // Fresh heartbeat before the claim becomes visible
+      long generation = generationOf(current) % MAX_GENERATION + 1; // Slots of previous participants of the entry stay dead
+      if (words.compareAndSet(offset, current, ACTIVE | generation << 32 | pid)) {
+        return index;
+      }
+    }
+    throw new IllegalStateException("All " + MAX_PROCESSES + " participant entries of the lock table are used");
+  }
+
+  private void checkHeader(int slots) {
+    words.compareAndSet(MAGIC_OFFSET, 0, MAGIC);
+    if (words.getVolatile(MAGIC_OFFSET) != MAGIC) {
+      throw new IllegalArgumentException("File is not an entity lock table");
+    }
+    words.compareAndSet(SLOTS_FIELD, 0, slots);
+    long existing = words.getVolatile(SLOTS_FIELD);
+    if (existing != slots) {
+      throw new IllegalArgumentException("Lock table file has " + existing + " slots instead of " + slots);
+    }
+  }
+
+  private void beat() {
+    long period = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+    while (!closed && !Thread.currentThread().isInterrupted()) {
+      words.setVolatile(processOffset + Long.BYTES, System.currentTimeMillis());
+      LockSupport.parkNanos(this, period);
+    }
+  }
+
+  private static long generationOf(long claim) {
+    return claim >>> 32 & MAX_GENERATION;
+  }
+
+  private static int slotOffset(int slot) {
+    return SLOTS_OFFSET + slot * Long.BYTES;
+  }
+
+  /**
+   * Claim word of a participant whose process was found alive at the given time
+   */
+  private static final class ProcessCheck {
+
+    final long claim;
+    final long checkedAt;
+
+    ProcessCheck(long claim, long checkedAt) {
+      this.claim = claim;
+      this.checkedAt = checkedAt;
+    }
+  }
+
+}
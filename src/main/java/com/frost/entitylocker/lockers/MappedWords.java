@@ -0,0 +1,101 @@
+package com.frost.entitylocker.lockers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Java 8 version of atomic access to 8-byte words of a memory-mapped file, it uses sun.misc.Unsafe through
+ * method handles because the Java 8 API has no atomic operations on buffers. The multi-release jar replaces it
+ * with a VarHandle based version on Java 9 and newer. Atomic operations on mapped memory are visible to all
+ * processes that map the same file.
+ */
+final class MappedWords {
+
+  private static final MethodHandle GET_VOLATILE; // (long address) -> long
+  private static final MethodHandle PUT_VOLATILE; // (long address, long value) -> void
+  private static final MethodHandle COMPARE_AND_SET; // (long address, long expected, long value) -> boolean
+  private static final MethodHandle ADDRESS_OF; // (Object buffer, long offset) -> long
+  private static final long         ADDRESS_OFFSET; // Offset of Buffer.address field
+
+  static {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field    field       = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      Object               unsafe = field.get(null);
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      MethodHandle getVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile",
+          MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+      MethodHandle putVolatile = lookup.findVirtual(unsafeClass, "putLongVolatile",
+          MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+      MethodHandle compareAndSet = lookup.findVirtual(unsafeClass, "compareAndSwapLong",
+          MethodType.methodType(boolean.class, Object.class, long.class, long.class, long.class)).bindTo(unsafe);
+      MethodHandle fieldOffset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+          MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+      GET_VOLATILE = MethodHandles.insertArguments(getVolatile, 0, (Object) null); // Null base means absolute address
+      PUT_VOLATILE = MethodHandles.insertArguments(putVolatile, 0, (Object) null);
+      COMPARE_AND_SET = MethodHandles.insertArguments(compareAndSet, 0, (Object) null);
+      ADDRESS_OFFSET = (long) fieldOffset.invoke(Buffer.class.getDeclaredField("address"));
+      ADDRESS_OF = lookup.findVirtual(unsafeClass, "getLong",
+          MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+    } catch (Throwable e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final MappedByteBuffer buffer; // Keeps the mapping alive
+  private final long             address;
+
+  /**
+   * @param buffer mapped buffer, its start should be aligned to 8 bytes
+   */
+  MappedWords(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+    try {
+      this.address = (long) ADDRESS_OF.invokeExact((Object) buffer, ADDRESS_OFFSET);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Can't get address of mapped buffer", e);
+    }
+  }
+
+  /**
+   * @param offset offset of the word in bytes, multiple of 8
+   */
+  long getVolatile(int offset) {
+    checkIndex(offset);
+    try {
+      return (long) GET_VOLATILE.invokeExact(address + offset);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  void setVolatile(int offset, long value) {
+    checkIndex(offset);
+    try {
+      PUT_VOLATILE.invokeExact(address + offset, value);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  boolean compareAndSet(int offset, long expected, long value) {
+    checkIndex(offset);
+    try {
+      return (boolean) COMPARE_AND_SET.invokeExact(address + offset, expected, value);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void checkIndex(int offset) {
+    if (offset < 0 || offset > buffer.capacity() - Long.BYTES || (offset & 7) != 0) {
+      throw new IndexOutOfBoundsException("Offset " + offset);
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Helper methods for locking several entity ids at once.
+ * To avoid deadlocks ids are always locked in canonical order: ids are ordered by spread hash code, then by class name
+ * and then by natural order if they are Comparable ids of the same class. Different ids that are still equal in this
+ * order (not Comparable ids with the same hash code) are ordered by identity hash code, that isn't the same for equal
+ * instances, so calls with such ties acquire their locks under the global tie lock and can't deadlock with each other.
+ */
+final class MultiLockSupport {
+
+  private static final Comparator<Object> ORDER    = MultiLockSupport::compare;
+  private static final ReentrantLock      TIE_LOCK = new ReentrantLock();
+
+  private MultiLockSupport() {
+  }
+
+  /**
+   * @param entityIds entity ids to lock
+   * @param <T>       type of Entity id
+   * @return distinct entity ids in canonical order
+   * @throws NullPointerException in case collection or any entity id is null
+   */
+  static <T> List<T> sortedDistinct(Collection<T> entityIds) {
+    Objects.requireNonNull(entityIds, "Entity ids must not be null");
+    List<T> sorted = new ArrayList<>(entityIds);
+    for (T entityId : sorted) {
+      Objects.requireNonNull(entityId, "Entity id must not be null");
+    }
+    sorted.sort(ORDER);
+    List<T> distinct = new ArrayList<>(sorted.size());
+    int     runStart = 0; // First id of the run of ids with the same hash code
+    for (T entityId : sorted) {
+      if (!distinct.isEmpty() && spread(distinct.get(runStart)) != spread(entityId)) {
+        runStart = distinct.size();
+      }
+      if (!distinct.subList(runStart, distinct.size()).contains(entityId)) {
+        distinct.add(entityId);
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * @param ordered distinct entity ids in canonical order
+   * @return the global tie lock that should be held while ids are acquired if canonical order of some ids
+   *         depends on their instances, or {@code null} if the order is total
+   */
+  static ReentrantLock tieLockFor(List<?> ordered) {
+    for (int i = 1; i < ordered.size(); i++) {
+      if (compareValues(ordered.get(i - 1), ordered.get(i)) == 0) {
+        return TIE_LOCK;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Unlock first locked ids of the ordered list in reverse order. All of them are unlocked even if some unlock fails,
+   * the first failure is rethrown after that.
+   *
+   * @param locker  locker that holds the locks
+   * @param ordered entity ids in canonical order
+   * @param locked  count of locked ids at the beginning of the list
+   * @param <T>     type of Entity id
+   */
+  static <T> void unlockAll(EntityLocker<T> locker, List<T> ordered, int locked) {
+    RuntimeException failure = null;
+    for (int i = locked - 1; i >= 0; i--) {
+      try {
+        locker.unlockId(ordered.get(i));
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static int compare(Object first, Object second) {
+    int result = compareValues(first, second);
+    if (result == 0) {
+      result = Integer.compare(System.identityHashCode(first), System.identityHashCode(second)); // Order under the tie lock
+    }
+    return result;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareValues(Object first, Object second) {
+    int result = Integer.compare(spread(first), spread(second));
+    if (result == 0 && first.getClass() != second.getClass()) {
+      result = first.getClass().getName().compareTo(second.getClass().getName());
+    }
+    if (result == 0 && first instanceof Comparable && first.getClass() == second.getClass()) {
+      result = ((Comparable) first).compareTo(second);
+    }
+    return result;
+  }
+
+  private static int spread(Object entityId) {
+    int h = entityId.hashCode();
+    return h ^ (h >>> 16);
+  }
+}
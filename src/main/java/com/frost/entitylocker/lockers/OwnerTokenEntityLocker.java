@@ -0,0 +1,174 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * EntityLocker thread safe implementation where the lock on entity id is owned by an explicit owner token instead
+ * of the thread. The token can be any object compared by identity: request, transaction or continuation context,
+ * so the lock can be acquired by one thread and released by another one that continues the same work.
+ * Methods of EntityLocker use the current thread as the owner token.
+ * <p>
+ * Waiting threads are parked on a binary semaphore of the entry and the locker never blocks inside of synchronized
+ * blocks, so waiting virtual threads are unmounted from their carriers. Each entry counts owners that hold or wait
+ * for it and it's removed from the map by the last of them like in ConcurrentMapReadWriteEntityLocker.
+ *
+ * @param <T> type of Entity id
+ */
+public class OwnerTokenEntityLocker<T> implements EntityLocker<T> {
+
+  private final static long NO_WAITING = -1;
+  private final static int  MAX_COUNT  = Integer.MAX_VALUE;
+
+  private final BiFunction<T, TokenLock, TokenLock> retain  = (key, entry) -> {
+    TokenLock result = entry != null ? entry : new TokenLock();
+    result.users++;
+    return result;
+  };
+  private final BiFunction<T, TokenLock, TokenLock> release = (key, entry) ->
+      --entry.users == 0 ? null : entry; // Remove unused lock to avoid memory leaks
+
+  private final ConcurrentMap<T, TokenLock> lockingMap;
+
+  /**
+   * Constructs new OwnerTokenEntityLocker based on default ConcurrentMap implementation
+   */
+  public OwnerTokenEntityLocker() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Constructs new OwnerTokenEntityLocker based on provided map
+   *
+   * @param concurrentMap map that will be used for storing locks
+   */
+  OwnerTokenEntityLocker(ConcurrentMap<T, TokenLock> concurrentMap) {
+    this.lockingMap = concurrentMap;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    lockInternal(entityId, Thread.currentThread(), NO_WAITING);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockInternal(entityId, Thread.currentThread(), timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    unlockId(entityId, Thread.currentThread());
+  }
+
+  /**
+   * Acquires the lock on entity id for owner token, waits if it's held by another owner.
+   * Lock is reentrant for the same owner token.
+   *
+   * @param entityId entity id to lock
+   * @param owner    owner token compared by identity
+   * @throws InterruptedException if locking was interrupted
+   * @throws NullPointerException in case entityId or owner is null
+   */
+  public void lockId(T entityId, Object owner) throws InterruptedException {
+    lockInternal(entityId, owner, NO_WAITING);
+  }
+
+  /**
+   * Trying to acquire the lock on entity id for owner token within the given waiting time
+   *
+   * @param entityId entity id to lock
+   * @param owner    owner token compared by identity
+   * @param timeout  the time to wait
+   * @param timeUnit time unit of the timeout
+   * @return {@code true} if the lock was acquired and {@code false} if the waiting time elapsed
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case entityId or owner is null
+   * @throws IllegalArgumentException if timeout is negative
+   */
+  public boolean tryLockId(T entityId, Object owner, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockInternal(entityId, owner, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Releases the lock on entity id held by owner token, it can be called by any thread
+   *
+   * @param entityId entity id to unlock
+   * @param owner    owner token that holds the lock
+   * @throws IllegalMonitorStateException if the lock is not held by owner token
+   * @throws NullPointerException         in case entityId or owner is null
+   */
+  public void unlockId(T entityId, Object owner) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Objects.requireNonNull(owner, "Owner must not be null");
+    TokenLock entry = lockingMap.get(entityId);
+    if (entry == null || entry.owner != owner) {
+      throw new IllegalMonitorStateException();
+    }
+    if (--entry.count == 0) {
+      entry.owner = null;
+      entry.permit.release();
+    }
+    lockingMap.computeIfPresent(entityId, release);
+  }
+
+  private boolean lockInternal(T entityId, Object owner, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    Objects.requireNonNull(owner, "Owner must not be null");
+    TokenLock entry  = lockingMap.compute(entityId, retain);
+    boolean   locked = false;
+    try {
+      if (entry.owner == owner) {
+        if (entry.count == MAX_COUNT) {
+          throw new Error("Maximum lock count exceeded");
+        }
+        entry.count++;
+        locked = true;
+      } else {
+        if (nanoseconds == NO_WAITING) {
+          entry.permit.acquire();
+          locked = true;
+        } else {
+          locked = entry.permit.tryAcquire(nanoseconds, TimeUnit.NANOSECONDS);
+        }
+        if (locked) {
+          entry.count = 1;
+          entry.owner = owner;
+        }
+      }
+      return locked;
+    } finally {
+      if (!locked) {
+        lockingMap.computeIfPresent(entityId, release);
+      }
+    }
+  }
+
+  static class TokenLock {
+
+    final    Semaphore permit = new Semaphore(1);
+    volatile Object    owner; // null if the lock is free
+    int                count; // Hold count, changed only by the owner
+    int                users; // Count of owners that hold or wait for the lock, changed only inside of map compute methods
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.frost.entitylocker.lockers;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Java 8 version of process id helpers, the multi-release jar replaces it with a ProcessHandle based version
+ * on Java 9 and newer
+ */
+final class ProcessIds {
+
+  private static final Path PROC = Paths.get("/proc");
+
+  private ProcessIds() {
+  }
+
+  /**
+   * @return id of the current process
+   */
+  static long current() {
+    String name = ManagementFactory.getRuntimeMXBean().getName(); // pid@host on HotSpot
+    int    at   = name.indexOf('@');
+    try {
+      return Long.parseLong(at > 0 ? name.substring(0, at) : name);
+    } catch (NumberFormatException e) {
+      return 0L; // Unknown, liveness is decided by heartbeat only
+    }
+  }
+
+  /**
+   * @param pid id of a process on this host
+   * @return {@code false} if the process surely doesn't exist, {@code true} if it exists or it's unknown
+   */
+  static boolean isAlive(long pid) {
+    if (pid == 0L || !Files.isDirectory(PROC)) {
+      return true;
+    }
+    return Files.exists(PROC.resolve(Long.toString(pid)));
+  }
+
+}
@@ -0,0 +1,382 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EntityLocker for Comparable entity ids that locks both single ids and closed intervals of ids [from, to],
+ * e.g. all ids from 1,000,000 to 2,000,000 for a bulk job while normal traffic locks single ids.
+ * <p>
+ * Held and requested locks are kept in two concurrent skip lists: point locks ordered by id and range locks ordered
+ * by lower bound. Point lock looks up its own id and scans only range locks, that are expected to be few, so point
+ * locks of different ids don't slow down each other while a range is held. Each request is added to the skip list
+ * first and gets a sequence number after that. Then it announces that it's trying to take the lock and takes it
+ * if no overlapping request of another thread is held, being taken or queued before it, otherwise it steps back and
+ * waits. Two requests that try concurrently always see each other, the one that goes later in the queue gives way.
+ * <p>
+ * Requests are queued by sequence numbers only if a range is involved, so a range is never starved by a stream
+ * of point locks inside of it, while point locks of one id barge like a non-fair lock and don't form convoys behind
+ * a waiting thread that isn't scheduled yet. Request of a thread that already holds locks of this locker goes before
+ * requests of threads that hold nothing and waits only for held locks, so nested locking doesn't deadlock
+ * with a range requested in between.
+ * <p>
+ * Locks are reentrant: request covered by a lock held by the current thread increments its hold count.
+ * Several ids passed to lockIds or tryLockIds are locked one by one in canonical order, the current thread is
+ * a holder after the first one.
+ *
+ * @param <T> type of Entity id
+ */
+public class RangeEntityLocker<T extends Comparable<T>> implements EntityLocker<T> {
+
+  private final static long NO_WAITING = -1;
+  private final static long UNASSIGNED = 0;
+
+  private final static int WAITING = 0; // Request states
+  private final static int TRYING  = 1;
+  private final static int GRANTED = 2;
+
+  @SuppressWarnings("rawtypes")
+  private final static AtomicLongFieldUpdater<Request> SEQ   = AtomicLongFieldUpdater.newUpdater(Request.class, "seq");
+  @SuppressWarnings("rawtypes")
+  private final static Request                         FIRST = new Request<>(null, null, Long.MIN_VALUE, null, false);
+
+  private final ConcurrentSkipListSet<Request<T>> points    = new ConcurrentSkipListSet<>();
+  private final ConcurrentSkipListSet<Request<T>> ranges    = new ConcurrentSkipListSet<>();
+  private final AtomicLong                        sequence  = new AtomicLong(); // Source of sequence numbers and tie breakers
+  private final AtomicInteger                     parked    = new AtomicInteger(); // Threads that could park, others skip wake-ups
+  private final ThreadLocal<List<Request<T>>>     heldLocks = ThreadLocal.withInitial(ArrayList::new);
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    lockRange(entityId, entityId);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return tryLockRange(entityId, entityId, timeout, timeUnit);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    unlockRange(entityId, entityId);
+  }
+
+  /**
+   * Lock all entity ids from the lower bound to the upper bound inclusive
+   *
+   * @param from lower bound of the range
+   * @param to   upper bound of the range
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case any bound is null
+   * @throws IllegalArgumentException if the lower bound is greater than the upper bound
+   */
+  public void lockRange(T from, T to) throws InterruptedException {
+    lockInternal(from, to, NO_WAITING);
+  }
+
+  /**
+   * @param from     lower bound of the range
+   * @param to       upper bound of the range
+   * @param timeout  the time to wait for the lock
+   * @param timeUnit the time unit of the timeout argument
+   * @return {@code true} if the range was locked and {@code false} if the waiting time elapsed before
+   * the lock could be acquired
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case any bound is null
+   * @throws IllegalArgumentException if timeout is negative or the lower bound is greater than the upper bound
+   */
+  public boolean tryLockRange(T from, T to, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockInternal(from, to, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Unlock the range locked by lockRange or tryLockRange methods
+   *
+   * @param from lower bound of the range
+   * @param to   upper bound of the range
+   * @throws NullPointerException         in case any bound is null
+   * @throws IllegalMonitorStateException if the current thread does not hold this range
+   */
+  public void unlockRange(T from, T to) {
+    Objects.requireNonNull(from, "Entity id must not be null");
+    Objects.requireNonNull(to, "Entity id must not be null");
+    List<Request<T>> held    = heldLocks.get();
+    Request<T>       request = null;
+    for (int i = 0; i < held.size() && request == null; i++) {
+      if (held.get(i).isSame(from, to)) {
+        request = held.get(i);
+      }
+    }
+    if (request == null) { // Request could be covered by a held range, then it was counted by that range
+      request = findCovering(held, from, to);
+    }
+    if (request == null) {
+      throw new IllegalMonitorStateException();
+    }
+    if (--request.count == 0) {
+      held.remove(request);
+      remove(request);
+    }
+  }
+
+  /**
+   * @return count of held and requested locks, used by tests
+   */
+  int getRequestCount() {
+    return points.size() + ranges.size();
+  }
+
+  private boolean lockInternal(T from, T to, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(from, "Entity id must not be null");
+    Objects.requireNonNull(to, "Entity id must not be null");
+    if (from.compareTo(to) > 0) {
+      throw new IllegalArgumentException("Lower bound should not be greater than upper bound");
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    List<Request<T>> held     = heldLocks.get();
+    Request<T>       covering = findCovering(held, from, to);
+    if (covering != null) {
+      covering.count++;
+      return true;
+    }
+    Request<T> request = new Request<>(from, to, sequence.incrementAndGet(), Thread.currentThread(), !held.isEmpty());
+    requestsOf(request).add(request);
+    SEQ.compareAndSet(request, UNASSIGNED, sequence.incrementAndGet()); // Unless somebody met the request already
+    boolean locked = false;
+    try {
+      locked = await(request, System.nanoTime() + nanoseconds, nanoseconds == NO_WAITING);
+      return locked;
+    } finally {
+      if (locked) {
+        held.add(request);
+      } else {
+        remove(request);
+      }
+    }
+  }
+
+  private boolean await(Request<T> request, long deadline, boolean untimed) throws InterruptedException {
+    boolean counted = false;
+    try {
+      for (; ; ) {
+        request.state = TRYING;
+        Request<T> blocker = scan(request, BLOCKING);
+        if (blocker == null) {
+          request.state = GRANTED;
+          wakeUpWatchers(request);
+          return true;
+        }
+        int state = blocker.state;
+        if (state != TRYING || precedes(blocker, request)) {
+          request.state = WAITING; // Keeps trying only while a request that goes later gives way
+          wakeUpWatchers(request);
+        }
+        if (state == TRYING && !blocker.watched) {
+          blocker.watched = true;
+          continue; // Checks again, so the blocker either sees it watched or isn't trying any more
+        }
+        if (!counted) {
+          counted = true;
+          parked.incrementAndGet();
+          continue; // Checks again, so the blocker either sees this thread counted or isn't there any more
+        }
+        if (untimed) {
+          LockSupport.park(this);
+        } else {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          LockSupport.parkNanos(this, remaining);
+        }
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+    } finally {
+      if (counted) {
+        parked.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Removes released or abandoned request and wakes up overlapping requests that could wait for it
+   */
+  private void remove(Request<T> request) {
+    requestsOf(request).remove(request);
+    if (request.watched || parked.get() > 0) {
+      scan(request, UNPARKING);
+    }
+  }
+
+  /**
+   * Wakes up requests that saw this request trying and wait for the outcome
+   */
+  private void wakeUpWatchers(Request<T> request) {
+    if (request.watched) {
+      scan(request, UNPARKING);
+    }
+  }
+
+  private static final int BLOCKING  = 0; // Finds a request that this request has to wait for
+  private static final int UNPARKING = 1; // Wakes up requests that don't hold the lock
+
+  /**
+   * Visits overlapping requests of other threads, navigation methods are used instead of views
+   * to avoid allocations on the point lock path
+   *
+   * @return the first blocking request or {@code null}, always {@code null} for UNPARKING mode
+   */
+  private Request<T> scan(Request<T> request, int mode) {
+    T from = request.from;
+    T to   = request.to;
+    if (request.isPoint()) {
+      for (Request<T> other = points.lower(request); other != null && other.from.compareTo(from) == 0; other = points.lower(other)) {
+        if (matches(request, other, mode)) {
+          return other;
+        }
+      }
+      for (Request<T> other = points.higher(request); other != null && other.from.compareTo(from) == 0; other = points.higher(other)) {
+        if (matches(request, other, mode)) {
+          return other;
+        }
+      }
+    } else {
+      Request<T> lowest = new Request<>(from, from, Long.MIN_VALUE, null, false);
+      for (Request<T> other = points.ceiling(lowest); other != null && other.from.compareTo(to) <= 0; other = points.higher(other)) {
+        if (matches(request, other, mode)) {
+          return other;
+        }
+      }
+    }
+    if (ranges.isEmpty()) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    Request<T> first = FIRST;
+    for (Request<T> other = ranges.higher(first); other != null && other.from.compareTo(to) <= 0; other = ranges.higher(other)) {
+      if (other.to.compareTo(from) >= 0 && matches(request, other, mode)) { // Ranges starting after the upper bound can't overlap
+        return other;
+      }
+    }
+    return null;
+  }
+
+  private boolean matches(Request<T> request, Request<T> other, int mode) {
+    if (other.owner == request.owner) {
+      return false;
+    }
+    int state = other.state;
+    if (mode == UNPARKING) {
+      if (state != GRANTED) {
+        LockSupport.unpark(other.owner);
+      }
+      return false; // Visits all overlapping requests
+    }
+    if (state != WAITING) {
+      return true; // Held or being taken right now
+    }
+    return !request.precedes && precedes(other, request) && !(request.isPoint() && other.isPoint());
+  }
+
+  /**
+   * Requests of holders go first, requests of the same kind are ordered by sequence numbers
+   */
+  private boolean precedes(Request<T> other, Request<T> request) {
+    if (other.precedes != request.precedes) {
+      return other.precedes;
+    }
+    return seqOf(other) < request.seq;
+  }
+
+  /**
+   * Request is visible in the skip list a moment before its sequence number is assigned. Instead of waiting
+   * for the owner, the number is assigned by the thread that meets it, it's greater than the number of that thread.
+   */
+  private long seqOf(Request<T> request) {
+    long seq = request.seq;
+    if (seq == UNASSIGNED) {
+      SEQ.compareAndSet(request, UNASSIGNED, sequence.incrementAndGet()); // The first assigned number wins
+      seq = request.seq;
+    }
+    return seq;
+  }
+
+  private ConcurrentSkipListSet<Request<T>> requestsOf(Request<T> request) {
+    return request.isPoint() ? points : ranges;
+  }
+
+  private static <T extends Comparable<T>> Request<T> findCovering(List<Request<T>> held, T from, T to) {
+    for (int i = 0; i < held.size(); i++) {
+      if (held.get(i).covers(from, to)) {
+        return held.get(i);
+      }
+    }
+    return null;
+  }
+
+  static final class Request<T extends Comparable<T>> implements Comparable<Request<T>> {
+
+    final    T       from; // null only in FIRST
+    final    T       to;
+    final    long    order; // Tie breaker of requests with the same lower bound
+    final    Thread  owner;
+    final    boolean precedes; // Requested by a thread that already holds locks
+    volatile long    seq; // Requests of the same kind with smaller sequence number go first
+    volatile int     state;
+    volatile boolean watched; // Somebody waits until it stops trying
+    int              count = 1; // Hold count, changed only by the owner
+
+    Request(T from, T to, long order, Thread owner, boolean precedes) {
+      this.from = from;
+      this.to = to;
+      this.order = order;
+      this.owner = owner;
+      this.precedes = precedes;
+    }
+
+    boolean isPoint() {
+      return from.compareTo(to) == 0;
+    }
+
+    boolean covers(T from, T to) {
+      return this.from.compareTo(from) <= 0 && this.to.compareTo(to) >= 0;
+    }
+
+    boolean isSame(T from, T to) {
+      return this.from.compareTo(from) == 0 && this.to.compareTo(to) == 0;
+    }
+
+    @Override
+    public int compareTo(Request<T> other) {
+      if (from == null || other.from == null) { // FIRST goes before all requests
+        return from == other.from ? 0 : from == null ? -1 : 1;
+      }
+      int result = from.compareTo(other.from);
+      return result != 0 ? result : Long.compare(order, other.order);
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityLocker that distinguishes shared (read) and exclusive (write) locking of an entity.
+ * Any number of threads can hold shared lock on the same entity id at the same time,
+ * exclusive lock is held by one thread only and excludes shared locks.
+ * Both locks are reentrant, thread that holds exclusive lock can acquire shared lock too,
+ * but thread that holds only shared lock can't acquire exclusive lock on the same entity (it will wait forever).
+ * <p>
+ * Methods of EntityLocker work with exclusive lock.
+ *
+ * @param <T> type of Entity id
+ */
+public interface ReadWriteEntityLocker<T> extends EntityLocker<T> {
+
+  /**
+   * Acquire shared lock on entity by id
+   *
+   * @param entityId entity id to lock
+   * @throws InterruptedException if locking was interrupted
+   * @throws NullPointerException in case entity id is null
+   */
+  void lockShared(T entityId) throws InterruptedException;
+
+  /**
+   * @param entityId entity id to lock
+   * @param timeout  the time to wait for the shared lock
+   * @param timeUnit the time unit of the timeout argument
+   * @return {@code true} if the shared lock was acquired and {@code false} if the waiting time elapsed before
+   * the lock could be acquired
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case entity id is null
+   * @throws IllegalArgumentException if timeout is negative
+   */
+  boolean tryLockShared(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException;
+
+  /**
+   * Release shared lock on entity by id
+   *
+   * @param entityId entity id to unlock
+   * @throws NullPointerException         in case entity id is null
+   * @throws IllegalMonitorStateException if the current thread does not hold shared lock
+   */
+  void unlockShared(T entityId);
+
+  /**
+   * Acquire exclusive lock on entity by id
+   *
+   * @param entityId entity id to lock
+   * @throws InterruptedException if locking was interrupted
+   * @throws NullPointerException in case entity id is null
+   */
+  void lockExclusive(T entityId) throws InterruptedException;
+
+  /**
+   * @param entityId entity id to lock
+   * @param timeout  the time to wait for the exclusive lock
+   * @param timeUnit the time unit of the timeout argument
+   * @return {@code true} if the exclusive lock was acquired and {@code false} if the waiting time elapsed before
+   * the lock could be acquired
+   * @throws InterruptedException     if locking was interrupted
+   * @throws NullPointerException     in case entity id is null
+   * @throws IllegalArgumentException if timeout is negative
+   */
+  boolean tryLockExclusive(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException;
+
+  /**
+   * Release exclusive lock on entity by id
+   *
+   * @param entityId entity id to unlock
+   * @throws NullPointerException         in case entity id is null
+   * @throws IllegalMonitorStateException if the current thread does not hold exclusive lock
+   */
+  void unlockExclusive(T entityId);
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  default void lockId(T entityId) throws InterruptedException {
+    lockExclusive(entityId);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  default boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    return tryLockExclusive(entityId, timeout, timeUnit);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  default void unlockId(T entityId) {
+    unlockExclusive(entityId);
+  }
+
+}
@@ -0,0 +1,14 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Java 8 version of busy-waiting hint, the multi-release jar replaces it with Thread.onSpinWait on Java 9 and newer
+ */
+final class SpinWait {
+
+  private SpinWait() {
+  }
+
+  static void onSpinWait() {
+  }
+
+}
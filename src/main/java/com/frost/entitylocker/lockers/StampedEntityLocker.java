@@ -0,0 +1,240 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ReadWriteEntityLocker based on a fixed array of stripes that additionally supports optimistic reading similar to
+ * StampedLock. Optimistic reader takes a stamp of entity id without writing to shared memory, reads the entity
+ * and validates the stamp afterwards. Stamp becomes invalid when any writer acquires exclusive lock on the stripe.
+ * <p>
+ * Each stripe consists of reentrant read-write lock that is used for shared and exclusive locking and StampedLock
+ * that is write locked only while the stripe is exclusively locked and used only for stamps.
+ * Different ids can share the same stripe, in that case they are locked and invalidated together.
+ * Several ids are locked exclusively in ascending order of their stripes, so lockIds doesn't deadlock.
+ *
+ * @param <T> type of Entity id
+ */
+public class StampedEntityLocker<T> implements ReadWriteEntityLocker<T> {
+
+  public static final int DEFAULT_STRIPE_COUNT = 1024;
+
+  private final ReentrantReadWriteLock[] locks;
+  private final StampedLock[]            versions;
+  private final long[]                   writeStamps; // Accessed only by the thread that holds the stripe write lock
+  private final int                      mask;
+
+  /**
+   * Constructs new StampedEntityLocker with default count of stripes
+   */
+  public StampedEntityLocker() {
+    this(DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * Constructs new StampedEntityLocker, stripe count is rounded up to the nearest power of two
+   *
+   * @param stripeCount minimal count of stripes
+   * @throws IllegalArgumentException if stripe count is not positive or too big
+   */
+  public StampedEntityLocker(int stripeCount) {
+    int size = Stripes.sizeFor(stripeCount);
+    this.locks = new ReentrantReadWriteLock[size];
+    this.versions = new StampedLock[size];
+    this.writeStamps = new long[size];
+    for (int i = 0; i < size; i++) {
+      locks[i] = new ReentrantReadWriteLock();
+      versions[i] = new StampedLock();
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * Returns a stamp that can be validated after optimistic reading of entity, doesn't block and doesn't write
+   * to shared memory.
+   *
+   * @param entityId entity id to read
+   * @return a stamp, or zero if the entity is exclusively locked
+   * @throws NullPointerException in case entity id is null
+   */
+  public long tryOptimisticRead(T entityId) {
+    return versions[Stripes.indexFor(entityId, mask)].tryOptimisticRead();
+  }
+
+  /**
+   * Checks that the entity wasn't exclusively locked since the stamp was issued
+   *
+   * @param entityId entity id that was read
+   * @param stamp    stamp returned by tryOptimisticRead
+   * @return {@code true} if the entity wasn't exclusively locked since the stamp was issued,
+   * {@code false} if it was or the stamp is zero
+   * @throws NullPointerException in case entity id is null
+   */
+  public boolean validate(T entityId, long stamp) {
+    return versions[Stripes.indexFor(entityId, mask)].validate(stamp);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockShared(T entityId) throws InterruptedException {
+    locks[Stripes.indexFor(entityId, mask)].readLock().lockInterruptibly();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockShared(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return locks[Stripes.indexFor(entityId, mask)].readLock().tryLock(timeout, timeUnit);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockShared(T entityId) {
+    locks[Stripes.indexFor(entityId, mask)].readLock().unlock();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockExclusive(T entityId) throws InterruptedException {
+    lockStripe(Stripes.indexFor(entityId, mask));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockExclusive(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return tryLockStripe(Stripes.indexFor(entityId, mask), timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockExclusive(T entityId) {
+    unlockStripe(Stripes.indexFor(entityId, mask));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockIds(Collection<T> entityIds) throws InterruptedException {
+    int[] indexes = Stripes.sortedDistinctIndexes(entityIds, mask);
+    int   locked  = 0;
+    try {
+      for (int index : indexes) {
+        lockStripe(index);
+        locked++;
+      }
+    } finally {
+      if (locked < indexes.length) {
+        unlockStripes(indexes, locked);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockIds(Collection<T> entityIds, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    int[] indexes  = Stripes.sortedDistinctIndexes(entityIds, mask);
+    long  deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+    int   locked   = 0;
+    try {
+      for (int index : indexes) {
+        if (!tryLockStripe(index, Math.max(0L, deadline - System.nanoTime()))) {
+          return false;
+        }
+        locked++;
+      }
+      return true;
+    } finally {
+      if (locked < indexes.length) {
+        unlockStripes(indexes, locked);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockIds(Collection<T> entityIds) {
+    int[] indexes = Stripes.sortedDistinctIndexes(entityIds, mask);
+    unlockStripes(indexes, indexes.length);
+  }
+
+  /**
+   * @return count of stripes used by this locker, it's always a power of two
+   */
+  public int getStripeCount() {
+    return locks.length;
+  }
+
+  private void lockStripe(int index) throws InterruptedException {
+    locks[index].writeLock().lockInterruptibly();
+    onWriteLocked(index);
+  }
+
+  private boolean tryLockStripe(int index, long timeoutNanos) throws InterruptedException {
+    if (!locks[index].writeLock().tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+      return false;
+    }
+    onWriteLocked(index);
+    return true;
+  }
+
+  private void unlockStripe(int index) {
+    ReentrantReadWriteLock lock = locks[index];
+    if (!lock.isWriteLockedByCurrentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    if (lock.getWriteHoldCount() == 1) {
+      versions[index].unlockWrite(writeStamps[index]); // The last release of write lock publishes the new version
+    }
+    lock.writeLock().unlock();
+  }
+
+  private void unlockStripes(int[] indexes, int locked) {
+    IllegalMonitorStateException failure = null;
+    for (int i = locked - 1; i >= 0; i--) {
+      try {
+        unlockStripe(indexes[i]);
+      } catch (IllegalMonitorStateException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void onWriteLocked(int index) {
+    if (locks[index].getWriteHoldCount() == 1) {
+      writeStamps[index] = versions[index].writeLock(); // Never waits, only the holder of stripe write lock gets here
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EntityLocker thread safe implementation based on a fixed array of preallocated reentrant locks (stripes).
+ * Entity id is mapped to a stripe by spread hash of the id, so locking and unlocking never allocate objects.
+ * Different ids can share the same stripe, in that case they are executed sequentially.
+ * Several ids are locked by stripes in ascending order of stripe index, ids of the same stripe are locked once.
+ *
+ * @param <T> type of Entity id
+ */
+public class StripedEntityLocker<T> implements EntityLocker<T> {
+
+  public static final int DEFAULT_STRIPE_COUNT = 1024;
+
+  private final ReentrantLock[] stripes;
+  private final int             mask;
+
+  /**
+   * Constructs new StripedEntityLocker with default count of stripes
+   */
+  public StripedEntityLocker() {
+    this(DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * Constructs new StripedEntityLocker, stripe count is rounded up to the nearest power of two
+   *
+   * @param stripeCount minimal count of stripes
+   * @throws IllegalArgumentException if stripe count is not positive or too big
+   */
+  public StripedEntityLocker(int stripeCount) {
+    int size = Stripes.sizeFor(stripeCount);
+    this.stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    this.mask = size - 1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    stripeFor(entityId).lockInterruptibly();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return stripeFor(entityId).tryLock(timeout, timeUnit);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    stripeFor(entityId).unlock(); // ReentrantLock throws IllegalMonitorStateException if it isn't held by current thread
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockIds(Collection<T> entityIds) throws InterruptedException {
+    int[] indexes = Stripes.sortedDistinctIndexes(entityIds, mask);
+    int   locked  = 0;
+    try {
+      for (int index : indexes) {
+        stripes[index].lockInterruptibly();
+        locked++;
+      }
+    } finally {
+      if (locked < indexes.length) {
+        unlockStripes(indexes, locked);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockIds(Collection<T> entityIds, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    int[] indexes  = Stripes.sortedDistinctIndexes(entityIds, mask);
+    long  deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+    int   locked   = 0;
+    try {
+      for (int index : indexes) {
+        if (!stripes[index].tryLock(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+          return false;
+        }
+        locked++;
+      }
+      return true;
+    } finally {
+      if (locked < indexes.length) {
+        unlockStripes(indexes, locked);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockIds(Collection<T> entityIds) {
+    int[] indexes = Stripes.sortedDistinctIndexes(entityIds, mask);
+    unlockStripes(indexes, indexes.length);
+  }
+
+  /**
+   * @return count of stripes used by this locker, it's always a power of two
+   */
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  int stripeIndex(T entityId) {
+    return Stripes.indexFor(entityId, mask);
+  }
+
+  private void unlockStripes(int[] indexes, int locked) {
+    IllegalMonitorStateException failure = null;
+    for (int i = locked - 1; i >= 0; i--) {
+      try {
+        stripes[indexes[i]].unlock();
+      } catch (IllegalMonitorStateException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private ReentrantLock stripeFor(T entityId) {
+    return stripes[stripeIndex(entityId)];
+  }
+
+}
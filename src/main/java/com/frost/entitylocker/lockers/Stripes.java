@@ -0,0 +1,64 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Helper methods for lockers that map entity ids to a fixed power-of-two count of stripes
+ */
+final class Stripes {
+
+  static final int MAX_STRIPE_COUNT = 1 << 30;
+
+  private Stripes() {
+  }
+
+  /**
+   * @param stripeCount minimal count of stripes
+   * @return stripe count rounded up to the nearest power of two
+   * @throws IllegalArgumentException if stripe count is not positive or too big
+   */
+  static int sizeFor(int stripeCount) {
+    if (stripeCount <= 0 || stripeCount > MAX_STRIPE_COUNT) {
+      throw new IllegalArgumentException("Stripe count should be in range [1, " + MAX_STRIPE_COUNT + "]");
+    }
+    int size = Integer.highestOneBit(stripeCount);
+    return size < stripeCount ? size << 1 : size;
+  }
+
+  /**
+   * @param entityId entity id
+   * @param mask     stripe count minus one
+   * @return stripe index of entity id
+   * @throws NullPointerException in case entity id is null
+   */
+  static int indexFor(Object entityId, int mask) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    int h = entityId.hashCode();
+    return (h ^ (h >>> 16)) & mask; // Spread higher bits downward like ConcurrentHashMap does
+  }
+
+  /**
+   * @param entityIds entity ids
+   * @param mask      stripe count minus one
+   * @return distinct stripe indexes of entity ids in ascending order, it's the canonical locking order of stripes
+   * @throws NullPointerException in case collection or any entity id is null
+   */
+  static int[] sortedDistinctIndexes(Collection<?> entityIds, int mask) {
+    Objects.requireNonNull(entityIds, "Entity ids must not be null");
+    int[] indexes = new int[entityIds.size()];
+    int   size    = 0;
+    for (Object entityId : entityIds) {
+      indexes[size++] = indexFor(entityId, mask);
+    }
+    Arrays.sort(indexes);
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (distinct == 0 || indexes[distinct - 1] != indexes[i]) {
+        indexes[distinct++] = indexes[i];
+      }
+    }
+    return Arrays.copyOf(indexes, distinct);
+  }
+}
@@ -0,0 +1,45 @@
+package com.frost.entitylocker.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with power of two buckets: bucket i counts values in range [2^(i-1), 2^i),
+ * bucket 0 counts zero values. Each bucket is a striped LongAdder, so concurrent recording doesn't contend on
+ * a single counter and doesn't allocate after cells of the adders were created.
+ */
+public final class Histogram {
+
+  static final int BUCKET_COUNT = 65;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private final LongAdder   sum     = new LongAdder();
+
+  public Histogram() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a value, negative values are recorded as zero
+   *
+   * @param nanoseconds value to record
+   */
+  public void record(long nanoseconds) {
+    long value = Math.max(0L, nanoseconds);
+    buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+    sum.add(value);
+  }
+
+  /**
+   * @return snapshot of recorded values, it's not atomic with respect to concurrent recording
+   */
+  public HistogramSnapshot snapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return new HistogramSnapshot(counts, sum.sum());
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.frost.entitylocker.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable state of Histogram
+ */
+public final class HistogramSnapshot {
+
+  private final long[] buckets;
+  private final long   count;
+  private final long   sum;
+
+  HistogramSnapshot(long[] buckets, long sum) {
+    long count = 0;
+    for (long bucket : buckets) {
+      count += bucket;
+    }
+    this.buckets = buckets;
+    this.count = count;
+    this.sum = sum;
+  }
+
+  /**
+   * @return count of recorded values
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return sum of recorded values in nanoseconds
+   */
+  public long getSum() {
+    return sum;
+  }
+
+  /**
+   * @return mean of recorded values in nanoseconds, zero if nothing was recorded
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * @param percentile percentile in range [0, 100]
+   * @return upper bound of the bucket that contains the value at percentile, zero if nothing was recorded
+   * @throws IllegalArgumentException if percentile is out of range
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile should be in range [0, 100]");
+    }
+    long rank  = (long) Math.ceil(percentile / 100 * count);
+    long total = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      total += buckets[i];
+      if (total >= rank && total > 0) {
+        return upperBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return copy of bucket counts, bucket i counts values in range [2^(i-1), 2^i) nanoseconds
+   */
+  public long[] getBuckets() {
+    return Arrays.copyOf(buckets, buckets.length);
+  }
+
+  private static long upperBound(int bucket) {
+    return bucket == Histogram.BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+}
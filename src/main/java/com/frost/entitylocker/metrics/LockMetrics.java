@@ -0,0 +1,153 @@
+package com.frost.entitylocker.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Contention metrics of an EntityLocker: count of acquisitions, contended acquisitions that had to wait,
+ * timeouts of tryLockId, retries of acquisition when the lock was replaced in the backing map
+ * and histograms of wait and hold time. All values are striped counters, recording doesn't allocate,
+ * so metrics can stay enabled in production.
+ *
+ * @see com.frost.entitylocker.lockers.ConcurrentMapEntityLockerBuilder#withMetrics(LockMetrics)
+ */
+public final class LockMetrics implements LockMetricsMXBean {
+
+  private final LongAdder acquisitions          = new LongAdder();
+  private final LongAdder contendedAcquisitions = new LongAdder();
+  private final LongAdder timeouts              = new LongAdder();
+  private final LongAdder retries               = new LongAdder();
+  private final Histogram waitTime              = new Histogram();
+  private final Histogram holdTime              = new Histogram();
+
+  private volatile ObjectName objectName; // null if MBean isn't registered
+
+  /**
+   * Records successful acquisition of entity id
+   *
+   * @param contended   {@code true} if the lock wasn't acquired immediately
+   * @param waitNanos   time spent in acquisition
+   * @param retryCount  count of retries because the lock was replaced in the backing map
+   */
+  public void recordAcquisition(boolean contended, long waitNanos, int retryCount) {
+    acquisitions.increment();
+    if (contended) {
+      contendedAcquisitions.increment();
+    }
+    if (retryCount > 0) {
+      retries.add(retryCount);
+    }
+    waitTime.record(waitNanos);
+  }
+
+  /**
+   * Records acquisition of entity id failed because waiting time elapsed
+   *
+   * @param waitNanos  time spent in acquisition
+   * @param retryCount count of retries because the lock was replaced in the backing map
+   */
+  public void recordTimeout(long waitNanos, int retryCount) {
+    timeouts.increment();
+    if (retryCount > 0) {
+      retries.add(retryCount);
+    }
+    waitTime.record(waitNanos);
+  }
+
+  /**
+   * Records time from the outermost acquisition till the last release of entity id
+   *
+   * @param holdNanos hold time
+   */
+  public void recordHold(long holdNanos) {
+    holdTime.record(holdNanos);
+  }
+
+  /**
+   * @return current values of all metrics
+   */
+  public LockMetricsSnapshot snapshot() {
+    return new LockMetricsSnapshot(acquisitions.sum(), contendedAcquisitions.sum(), timeouts.sum(), retries.sum(),
+        waitTime.snapshot(), holdTime.snapshot());
+  }
+
+  /**
+   * Registers these metrics in the platform MBean server
+   *
+   * @param name value of name key of the object name, it should be unique for the locker
+   * @return registered object name {@code com.frost.entitylocker:type=LockMetrics,name=<name>}
+   * @throws IllegalStateException if registration failed
+   */
+  public ObjectName registerMBean(String name) {
+    try {
+      ObjectName  result = new ObjectName("com.frost.entitylocker:type=LockMetrics,name=" + ObjectName.quote(name));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(this, result);
+      objectName = result;
+      return result;
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to register metrics MBean", e);
+    }
+  }
+
+  /**
+   * Unregisters these metrics from the platform MBean server if they were registered
+   *
+   * @throws IllegalStateException if unregistration failed
+   */
+  public void unregisterMBean() {
+    ObjectName name = objectName;
+    if (name != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        objectName = null;
+      } catch (JMException e) {
+        throw new IllegalStateException("Unable to unregister metrics MBean", e);
+      }
+    }
+  }
+
+  @Override
+  public long getAcquisitionCount() {
+    return acquisitions.sum();
+  }
+
+  @Override
+  public long getContendedAcquisitionCount() {
+    return contendedAcquisitions.sum();
+  }
+
+  @Override
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  @Override
+  public long getRetryCount() {
+    return retries.sum();
+  }
+
+  @Override
+  public double getMeanWaitTimeNanos() {
+    return waitTime.snapshot().getMean();
+  }
+
+  @Override
+  public long getWaitTime99thPercentileNanos() {
+    return waitTime.snapshot().getValueAtPercentile(99);
+  }
+
+  @Override
+  public double getMeanHoldTimeNanos() {
+    return holdTime.snapshot().getMean();
+  }
+
+  @Override
+  public long getHoldTime99thPercentileNanos() {
+    return holdTime.snapshot().getValueAtPercentile(99);
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.frost.entitylocker.metrics;
+
+/**
+ * JMX view of LockMetrics, percentiles are upper bounds of power of two buckets
+ */
+public interface LockMetricsMXBean {
+
+  long getAcquisitionCount();
+
+  long getContendedAcquisitionCount();
+
+  long getTimeoutCount();
+
+  long getRetryCount();
+
+  double getMeanWaitTimeNanos();
+
+  long getWaitTime99thPercentileNanos();
+
+  double getMeanHoldTimeNanos();
+
+  long getHoldTime99thPercentileNanos();
+
+}
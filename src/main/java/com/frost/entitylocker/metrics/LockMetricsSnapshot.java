@@ -0,0 +1,67 @@
+package com.frost.entitylocker.metrics;
+
+/**
+ * Immutable state of LockMetrics
+ */
+public final class LockMetricsSnapshot {
+
+  private final long              acquisitions;
+  private final long              contendedAcquisitions;
+  private final long              timeouts;
+  private final long              retries;
+  private final HistogramSnapshot waitTime;
+  private final HistogramSnapshot holdTime;
+
+  LockMetricsSnapshot(long acquisitions, long contendedAcquisitions, long timeouts, long retries,
+                      HistogramSnapshot waitTime, HistogramSnapshot holdTime) {
+    this.acquisitions = acquisitions;
+    this.contendedAcquisitions = contendedAcquisitions;
+    this.timeouts = timeouts;
+    this.retries = retries;
+    this.waitTime = waitTime;
+    this.holdTime = holdTime;
+  }
+
+  /**
+   * @return count of successful acquisitions including reentrant ones
+   */
+  public long getAcquisitions() {
+    return acquisitions;
+  }
+
+  /**
+   * @return count of successful acquisitions that had to wait
+   */
+  public long getContendedAcquisitions() {
+    return contendedAcquisitions;
+  }
+
+  /**
+   * @return count of tryLockId calls failed because waiting time elapsed
+   */
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * @return count of retries because the acquired lock was replaced in the backing map
+   */
+  public long getRetries() {
+    return retries;
+  }
+
+  /**
+   * @return time spent in acquisitions including timed out ones
+   */
+  public HistogramSnapshot getWaitTime() {
+    return waitTime;
+  }
+
+  /**
+   * @return time from the outermost acquisition till the last release
+   */
+  public HistogramSnapshot getHoldTime() {
+    return holdTime;
+  }
+
+}
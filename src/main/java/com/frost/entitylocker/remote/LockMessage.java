@@ -0,0 +1,109 @@
+package com.frost.entitylocker.remote;
+
+import java.util.Objects;
+
+/**
+ * Message of the lock protocol between RemoteEntityLocker and a lock server. Client sends ACQUIRE, RELEASE
+ * and CANCEL messages, server answers each ACQUIRE by GRANTED or DENIED with the same request id and sends REVOKE
+ * when another client waits for an entity whose grant is cached by this client.
+ * <p>
+ * Server counts grants per client: each GRANTED is paired with exactly one RELEASE of the same entity id.
+ */
+public final class LockMessage {
+
+  /**
+   * Type of the message
+   */
+  public enum Type {
+    /**
+     * Client asks for the lock on entity id, timeoutNanos limits waiting, negative for unlimited waiting
+     */
+    ACQUIRE,
+    /**
+     * Client returns one grant of entity id
+     */
+    RELEASE,
+    /**
+     * Client gives up waiting for the ACQUIRE request, server answers DENIED if the request was still waiting
+     */
+    CANCEL,
+    /**
+     * Server granted the lock requested by ACQUIRE
+     */
+    GRANTED,
+    /**
+     * Server didn't grant the lock requested by ACQUIRE in time or the request was cancelled
+     */
+    DENIED,
+    /**
+     * Server asks client to release the cached grant of entity id as soon as it isn't used
+     */
+    REVOKE
+  }
+
+  public static final long NO_REQUEST = 0;
+
+  private final Type   type;
+  private final long   requestId;
+  private final Object entityId;
+  private final long   timeoutNanos;
+
+  private LockMessage(Type type, long requestId, Object entityId, long timeoutNanos) {
+    this.type = type;
+    this.requestId = requestId;
+    this.entityId = Objects.requireNonNull(entityId, "Entity id must not be null");
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  public static LockMessage acquire(long requestId, Object entityId, long timeoutNanos) {
+    return new LockMessage(Type.ACQUIRE, requestId, entityId, timeoutNanos);
+  }
+
+  public static LockMessage release(Object entityId) {
+    return new LockMessage(Type.RELEASE, NO_REQUEST, entityId, 0);
+  }
+
+  public static LockMessage cancel(long requestId, Object entityId) {
+    return new LockMessage(Type.CANCEL, requestId, entityId, 0);
+  }
+
+  public static LockMessage granted(long requestId, Object entityId) {
+    return new LockMessage(Type.GRANTED, requestId, entityId, 0);
+  }
+
+  public static LockMessage denied(long requestId, Object entityId) {
+    return new LockMessage(Type.DENIED, requestId, entityId, 0);
+  }
+
+  public static LockMessage revoke(Object entityId) {
+    return new LockMessage(Type.REVOKE, NO_REQUEST, entityId, 0);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return id of ACQUIRE request, it's the same in CANCEL, GRANTED and DENIED messages of that request
+   */
+  public long getRequestId() {
+    return requestId;
+  }
+
+  public Object getEntityId() {
+    return entityId;
+  }
+
+  /**
+   * @return maximal time the ACQUIRE request waits on the server, negative for unlimited waiting
+   */
+  public long getTimeoutNanos() {
+    return timeoutNanos;
+  }
+
+  @Override
+  public String toString() {
+    return type + "(" + entityId + (requestId != NO_REQUEST ? ", request: " + requestId : "") + ")";
+  }
+
+}
@@ -0,0 +1,17 @@
+package com.frost.entitylocker.remote;
+
+import java.util.List;
+
+/**
+ * Receives messages delivered by LockTransport
+ */
+@FunctionalInterface
+public interface LockMessageHandler {
+
+  /**
+   * Handles a batch of messages in order, it's called by the transport thread and should not block
+   *
+   * @param messages received messages
+   */
+  void onMessages(List<LockMessage> messages);
+}
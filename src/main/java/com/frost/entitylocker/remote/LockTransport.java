@@ -0,0 +1,32 @@
+package com.frost.entitylocker.remote;
+
+import java.util.List;
+
+/**
+ * SPI of the channel between RemoteEntityLocker and a lock server. Implementations deliver batches of messages
+ * in order in both directions, e.g. over TCP or a message broker; LoopbackLockServer provides an in-process one.
+ * Messages are sent asynchronously and several requests can be in flight at the same time.
+ */
+public interface LockTransport extends AutoCloseable {
+
+  /**
+   * Opens the channel, messages from the server are passed to the handler after that
+   *
+   * @param handler handler of server messages
+   */
+  void open(LockMessageHandler handler);
+
+  /**
+   * Sends a batch of messages to the server without waiting for answers
+   *
+   * @param messages messages in order of sending
+   * @throws IllegalStateException if the transport is closed
+   */
+  void send(List<LockMessage> messages);
+
+  /**
+   * Closes the channel, the server releases all grants of this client
+   */
+  @Override
+  void close();
+}
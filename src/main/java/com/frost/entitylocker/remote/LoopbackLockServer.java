@@ -0,0 +1,278 @@
+package com.frost.entitylocker.remote;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process reference lock server for RemoteEntityLocker, used in tests and as a model for real servers.
+ * Each call of connect creates a client session with its own LockTransport.
+ * <p>
+ * All state is owned by one event loop thread, so the server needs no locks: sessions post received batches
+ * to the inbound queue and the loop grants locks in request order, expires waiting requests by their timeouts
+ * and sends answers for one inbound batch to each session as one batch. A lock is reentrant per session,
+ * the owner session gets REVOKE when another session starts waiting for the lock. Grants of a closed session
+ * are released.
+ */
+public class LoopbackLockServer implements AutoCloseable {
+
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  private final BlockingQueue<Runnable> events    = new LinkedBlockingQueue<>();
+  private final Map<Object, ServerLock> locks     = new HashMap<>(); // Fields below are used only by the loop thread
+  private final Queue<Waiter>           deadlines = new PriorityQueue<>(Comparator.comparingLong(w -> w.deadline));
+  private final Set<Session>            answered  = new LinkedHashSet<>(); // Sessions with unsent answers
+  private final Thread                  loop;
+  private volatile boolean              closed;
+
+  public LoopbackLockServer() {
+    this.loop = new Thread(this::run, "loopback-lock-server");
+    loop.setDaemon(true);
+    loop.start();
+  }
+
+  /**
+   * @return transport of a new client session
+   */
+  public LockTransport connect() {
+    return new Session();
+  }
+
+  /**
+   * Stops the server, sessions can't send messages after that
+   */
+  @Override
+  public void close() {
+    closed = true;
+    loop.interrupt();
+  }
+
+  /**
+   * @return count of held and requested locks, used by tests
+   */
+  int getLockCount() {
+    CompletableFuture<Integer> count = new CompletableFuture<>();
+    post(() -> count.complete(locks.size()));
+    return count.join();
+  }
+
+  private void post(Runnable event) {
+    if (closed) {
+      throw new IllegalStateException("Server is closed");
+    }
+    events.add(event);
+  }
+
+  private void run() {
+    try {
+      while (!closed) {
+        Waiter   next  = deadlines.peek();
+        Runnable event = next == null ? events.take()
+            : events.poll(next.deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (event != null) {
+          event.run();
+        }
+        expireWaiters();
+        flushAnswers();
+      }
+    } catch (InterruptedException ignored) { // Server is closed
+    }
+  }
+
+  private void receive(Session session, List<LockMessage> messages) {
+    if (session.closed) {
+      return;
+    }
+    for (LockMessage message : messages) {
+      switch (message.getType()) {
+        case ACQUIRE:
+          acquire(session, message);
+          break;
+        case RELEASE:
+          release(session, message.getEntityId());
+          break;
+        case CANCEL:
+          Waiter waiter = session.waiting.get(message.getRequestId());
+          if (waiter != null) {
+            deny(waiter);
+          }
+          break;
+        default:
+          break; // Server messages are ignored
+      }
+    }
+  }
+
+  private void acquire(Session session, LockMessage message) {
+    Object     entityId = message.getEntityId();
+    ServerLock lock     = locks.computeIfAbsent(entityId, k -> new ServerLock());
+    if (lock.owner == null || lock.owner == session) {
+      grant(lock, session, message.getRequestId(), entityId);
+    } else if (message.getTimeoutNanos() == 0) {
+      answer(session, LockMessage.denied(message.getRequestId(), entityId));
+    } else {
+      long   timeout = message.getTimeoutNanos();
+      Waiter waiter  = new Waiter(session, message.getRequestId(), entityId,
+          timeout < 0 ? NO_DEADLINE : System.nanoTime() + timeout);
+      lock.waiters.add(waiter);
+      session.waiting.put(waiter.requestId, waiter);
+      if (waiter.deadline != NO_DEADLINE) {
+        deadlines.add(waiter);
+      }
+      revokeIfWaited(lock, entityId);
+    }
+  }
+
+  private void grant(ServerLock lock, Session session, long requestId, Object entityId) {
+    lock.owner = session;
+    lock.count++;
+    session.owned.add(entityId);
+    answer(session, LockMessage.granted(requestId, entityId));
+    revokeIfWaited(lock, entityId);
+  }
+
+  private void revokeIfWaited(ServerLock lock, Object entityId) {
+    if (!lock.waiters.isEmpty() && !lock.revoked) {
+      lock.revoked = true;
+      answer(lock.owner, LockMessage.revoke(entityId));
+    }
+  }
+
+  private void release(Session session, Object entityId) {
+    ServerLock lock = locks.get(entityId);
+    if (lock == null || lock.owner != session) {
+      return; // Session doesn't hold the lock, ignore the protocol error
+    }
+    if (--lock.count == 0) {
+      releaseAll(session, entityId, lock);
+    }
+  }
+
+  private void releaseAll(Session session, Object entityId, ServerLock lock) {
+    session.owned.remove(entityId);
+    lock.owner = null;
+    lock.count = 0;
+    lock.revoked = false;
+    Waiter next = lock.waiters.poll();
+    if (next != null) {
+      next.session.waiting.remove(next.requestId);
+      deadlines.remove(next);
+      grant(lock, next.session, next.requestId, entityId);
+    } else {
+      locks.remove(entityId);
+    }
+  }
+
+  private void deny(Waiter waiter) {
+    waiter.session.waiting.remove(waiter.requestId);
+    deadlines.remove(waiter);
+    ServerLock lock = locks.get(waiter.entityId);
+    lock.waiters.remove(waiter);
+    answer(waiter.session, LockMessage.denied(waiter.requestId, waiter.entityId));
+  }
+
+  private void disconnect(Session session) {
+    session.closed = true;
+    for (Waiter waiter : new ArrayList<>(session.waiting.values())) {
+      deny(waiter);
+    }
+    for (Object entityId : new ArrayList<>(session.owned)) {
+      releaseAll(session, entityId, locks.get(entityId));
+    }
+  }
+
+  private void expireWaiters() {
+    long now = System.nanoTime();
+    for (Waiter next = deadlines.peek(); next != null && next.deadline - now <= 0; next = deadlines.peek()) {
+      deny(next);
+    }
+  }
+
+  private void answer(Session session, LockMessage message) {
+    if (!session.closed) {
+      session.outbox.add(message);
+      answered.add(session);
+    }
+  }
+
+  private void flushAnswers() {
+    for (Session session : answered) {
+      List<LockMessage> batch = session.outbox;
+      session.outbox = new ArrayList<>();
+      try {
+        session.handler.onMessages(batch);
+      } catch (RuntimeException e) { // Keep the loop alive
+        Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+      }
+    }
+    answered.clear();
+  }
+
+  private final class Session implements LockTransport {
+
+    private volatile LockMessageHandler handler;
+    private volatile boolean            disconnected; // Set by close, the loop thread uses the closed field
+    private          List<LockMessage>  outbox  = new ArrayList<>(); // Fields below are used only by the loop thread
+    private final    Map<Long, Waiter>  waiting = new HashMap<>();
+    private final    Set<Object>        owned   = new HashSet<>();
+    private          boolean            closed;
+
+    @Override
+    public void open(LockMessageHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void send(List<LockMessage> messages) {
+      if (disconnected) {
+        throw new IllegalStateException("Transport is closed");
+      }
+      post(() -> receive(this, messages));
+    }
+
+    @Override
+    public void close() {
+      disconnected = true;
+      if (!LoopbackLockServer.this.closed) {
+        events.add(() -> disconnect(this));
+      }
+    }
+  }
+
+  private static final class ServerLock {
+
+    private       Session       owner;
+    private       int           count; // Grants of the owner session
+    private       boolean       revoked; // REVOKE was sent to the owner
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+  }
+
+  private static final class Waiter {
+
+    private final Session session;
+    private final long    requestId;
+    private final Object  entityId;
+    private final long    deadline;
+
+    private Waiter(Session session, long requestId, Object entityId, long deadline) {
+      this.session = session;
+      this.requestId = requestId;
+      this.entityId = entityId;
+      this.deadline = deadline;
+    }
+  }
+
+}
@@ -0,0 +1,314 @@
+package com.frost.entitylocker.remote;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+import com.frost.entitylocker.lockers.EntityLocker;
+
+/**
+ * EntityLocker that coordinates threads of several JVMs through a lock server reached by LockTransport.
+ * <p>
+ * Threads of this JVM are first serialized by a local reentrant lock of the entity id, so only the outermost
+ * acquisition of one thread at a time talks to the server and reentrant acquisition never leaves the JVM.
+ * The grant received from the server is cached after unlock, so the next acquisition of the same id in this JVM
+ * is local too. The server sends REVOKE when another client waits for the id, then the cached grant is released
+ * as soon as it isn't used. At most maxCachedGrants unused grants are cached, other grants are released on unlock.
+ * <p>
+ * Requests of concurrent threads are pipelined: each thread waits only for the answer to its own request,
+ * and requests made while the previous batch is being sent are sent together in the next batch.
+ * The timeout of tryLockId is enforced by the server, the thread waits for the answer one more round trip grace
+ * and gives up only if the server doesn't answer in that time.
+ *
+ * @param <T> type of Entity id, ids should be supported by the transport
+ */
+public class RemoteEntityLocker<T> implements EntityLocker<T>, AutoCloseable {
+
+  public static final  int  DEFAULT_MAX_CACHED_GRANTS = 1024;
+  private final static long NO_WAITING                = -1;
+  private final static long ANSWER_GRACE_NANOS        = TimeUnit.SECONDS.toNanos(1); // Round trip to the server
+
+  private final BiFunction<T, RemoteLock, RemoteLock> retain     = (key, entry) -> {
+    RemoteLock result = entry != null ? entry : new RemoteLock();
+    result.users++;
+    return result;
+  };
+  private final BiFunction<T, RemoteLock, RemoteLock> release    = (key, entry) ->
+      --entry.users == 0 && !entry.granted ? null : entry; // Entry with cached grant stays in the map
+  private final BiFunction<T, RemoteLock, RemoteLock> removeIdle = (key, entry) ->
+      entry.users == 0 && !entry.granted ? null : entry;
+
+  private final ConcurrentMap<T, RemoteLock>                    lockingMap         = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Long, CompletableFuture<Boolean>> pending            = new ConcurrentHashMap<>(); // Answers by request id
+  private final AtomicLong                                      requestIds         = new AtomicLong();
+  private final AtomicInteger                                   cachedGrants       = new AtomicInteger(); // Count of unused cached grants
+  private final LongAdder                                       cacheHits          = new LongAdder();
+  private final LongAdder                                       remoteAcquisitions = new LongAdder();
+  private final LockTransport                                   transport;
+  private final RequestBatcher                                  batcher;
+  private final int                                             maxCachedGrants;
+
+  /**
+   * Constructs new RemoteEntityLocker with default count of cached grants
+   *
+   * @param transport transport to the lock server, it's opened by this constructor
+   * @throws NullPointerException in case transport is null
+   */
+  public RemoteEntityLocker(LockTransport transport) {
+    this(transport, DEFAULT_MAX_CACHED_GRANTS);
+  }
+
+  /**
+   * @param transport       transport to the lock server, it's opened by this constructor
+   * @param maxCachedGrants maximal count of unused grants kept after unlock, zero disables caching
+   * @throws NullPointerException     in case transport is null
+   * @throws IllegalArgumentException if maxCachedGrants is negative
+   */
+  public RemoteEntityLocker(LockTransport transport, int maxCachedGrants) {
+    Objects.requireNonNull(transport, "Transport must not be null");
+    if (maxCachedGrants < 0) {
+      throw new IllegalArgumentException("Max cached grants should not be negative");
+    }
+    this.transport = transport;
+    this.batcher = new RequestBatcher(transport);
+    this.maxCachedGrants = maxCachedGrants;
+    transport.open(this::onMessages);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void lockId(T entityId) throws InterruptedException {
+    lockInternal(entityId, NO_WAITING);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryLockId(T entityId, long timeout, TimeUnit timeUnit) throws InterruptedException {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Timeout should be greater than zero");
+    }
+    return lockInternal(entityId, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void unlockId(T entityId) {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    RemoteLock entry = lockingMap.get(entityId);
+    if (entry == null || !entry.local.isHeldByCurrentThread()) {
+      throw new IllegalMonitorStateException();
+    }
+    if (entry.local.getHoldCount() == 1) {
+      if (entry.revoked || cachedGrants.get() >= maxCachedGrants) {
+        releaseGrant(entityId, entry);
+      } else {
+        entry.idle = true;
+        cachedGrants.incrementAndGet();
+      }
+    }
+    entry.local.unlock();
+    releaseIfRevoked(entityId, entry); // Revoke could arrive after the check above
+    lockingMap.computeIfPresent(entityId, release);
+  }
+
+  /**
+   * Closes the transport, the server releases all grants of this locker
+   */
+  @Override
+  public void close() {
+    transport.close();
+    IllegalStateException closed = new IllegalStateException("Locker is closed");
+    pending.values().forEach(answer -> answer.completeExceptionally(closed));
+  }
+
+  /**
+   * @return count of outermost acquisitions that used the cached grant without asking the server
+   */
+  public long getCacheHitCount() {
+    return cacheHits.sum();
+  }
+
+  /**
+   * @return count of ACQUIRE requests sent to the server
+   */
+  public long getRemoteAcquireCount() {
+    return remoteAcquisitions.sum();
+  }
+
+  /**
+   * @return count of batches sent to the server
+   */
+  public long getSentBatchCount() {
+    return batcher.getBatchCount();
+  }
+
+  /**
+   * @return count of messages sent to the server
+   */
+  public long getSentMessageCount() {
+    return batcher.getMessageCount();
+  }
+
+  private boolean lockInternal(T entityId, long nanoseconds) throws InterruptedException {
+    Objects.requireNonNull(entityId, "Entity id must not be null");
+    long       deadline = System.nanoTime() + nanoseconds;
+    RemoteLock entry    = lockingMap.compute(entityId, retain);
+    boolean    locked   = false;
+    try {
+      if (nanoseconds == NO_WAITING) {
+        entry.local.lockInterruptibly();
+      } else if (!entry.local.tryLock(nanoseconds, TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+      try {
+        if (entry.local.getHoldCount() > 1) {
+          locked = true; // Reentrant acquisition is always local
+        } else {
+          if (entry.granted && entry.revoked) {
+            releaseGrant(entityId, entry); // Let the waiting client go first instead of reusing the cached grant
+          }
+          if (entry.granted) {
+            entry.idle = false;
+            cachedGrants.decrementAndGet();
+            cacheHits.increment();
+            locked = true;
+          } else {
+            locked = acquireRemote(entityId, entry,
+                nanoseconds == NO_WAITING ? NO_WAITING : Math.max(0L, deadline - System.nanoTime()));
+          }
+        }
+        return locked;
+      } finally {
+        if (!locked) {
+          entry.local.unlock();
+        }
+      }
+    } finally {
+      if (!locked) {
+        lockingMap.computeIfPresent(entityId, release);
+      }
+    }
+  }
+
+  private boolean acquireRemote(T entityId, RemoteLock entry, long nanoseconds) throws InterruptedException {
+    long                       requestId = requestIds.incrementAndGet();
+    CompletableFuture<Boolean> answer    = new CompletableFuture<>();
+    pending.put(requestId, answer);
+    remoteAcquisitions.increment();
+    batcher.send(LockMessage.acquire(requestId, entityId, nanoseconds));
+    boolean granted;
+    try {
+      granted = nanoseconds == NO_WAITING ? answer.get() : answer.get(nanoseconds + ANSWER_GRACE_NANOS, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      granted = abandon(requestId, entityId, answer);
+    } catch (InterruptedException e) {
+      if (abandon(requestId, entityId, answer)) {
+        entry.granted = true;
+        releaseGrant(entityId, entry);
+      }
+      throw e;
+    } catch (ExecutionException e) {
+      pending.remove(requestId);
+      throw new IllegalStateException("Lock request failed", e.getCause());
+    }
+    entry.granted = granted;
+    return granted;
+  }
+
+  /**
+   * Cancels the request if it's still unanswered, otherwise returns the answer that is being delivered
+   */
+  private boolean abandon(long requestId, T entityId, CompletableFuture<Boolean> answer) {
+    if (pending.remove(requestId, answer)) {
+      batcher.send(LockMessage.cancel(requestId, entityId)); // If it was granted meanwhile the grant is returned on arrival
+      return false;
+    }
+    return answer.join();
+  }
+
+  /**
+   * Returns the grant to the server, it's called by the thread that holds the local lock
+   */
+  private void releaseGrant(T entityId, RemoteLock entry) {
+    if (entry.idle) {
+      entry.idle = false;
+      cachedGrants.decrementAndGet();
+    }
+    entry.granted = false;
+    entry.revoked = false;
+    batcher.send(LockMessage.release(entityId));
+  }
+
+  private void releaseIfRevoked(T entityId, RemoteLock entry) {
+    if (entry.revoked && entry.local.tryLock()) {
+      try {
+        if (entry.local.getHoldCount() == 1 && entry.granted && entry.revoked) { // Nobody uses the cached grant
+          releaseGrant(entityId, entry);
+        }
+      } finally {
+        entry.local.unlock();
+      }
+      lockingMap.computeIfPresent(entityId, removeIdle);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void onMessages(List<LockMessage> messages) {
+    for (LockMessage message : messages) {
+      T entityId = (T) message.getEntityId();
+      switch (message.getType()) {
+        case GRANTED:
+        case DENIED:
+          boolean                    granted = message.getType() == LockMessage.Type.GRANTED;
+          CompletableFuture<Boolean> answer  = pending.remove(message.getRequestId());
+          if (answer == null) { // Request was abandoned, return the grant that nobody waits for
+            if (granted) {
+              batcher.send(LockMessage.release(entityId));
+            }
+          } else {
+            RemoteLock entry = lockingMap.get(entityId);
+            if (granted && entry != null) {
+              entry.revoked = false; // Revoke of the previous grant is outdated, revoke of this one comes after it
+            }
+            answer.complete(granted);
+          }
+          break;
+        case REVOKE:
+          RemoteLock entry = lockingMap.get(entityId);
+          if (entry != null) {
+            entry.revoked = true;
+            releaseIfRevoked(entityId, entry);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  static class RemoteLock {
+
+    final    ReentrantLock local = new ReentrantLock(); // Serializes threads of this JVM
+    volatile boolean       granted; // Server granted the lock to this client, changed by the holder of the local lock
+    volatile boolean       revoked; // Server asked to release the grant
+    boolean                idle; // Grant is cached and unused, guarded by the local lock
+    int                    users; // Count of threads that hold or wait for the lock, changed only inside of map compute methods
+  }
+
+}
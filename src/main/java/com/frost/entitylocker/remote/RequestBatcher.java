@@ -0,0 +1,57 @@
+package com.frost.entitylocker.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Groups messages of concurrent threads into batches without a dedicated thread and without waiting for more
+ * messages: the thread that finds no flush in progress sends everything queued so far, messages added meanwhile
+ * are sent by the same thread in the next batch. So a single request is sent immediately and requests made
+ * during a send share the next one.
+ */
+final class RequestBatcher {
+
+  private static final int MAX_BATCH_SIZE = 256;
+
+  private final LockTransport      transport;
+  private final Queue<LockMessage> queue    = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean      flushing = new AtomicBoolean();
+  private final LongAdder          batches  = new LongAdder();
+  private final LongAdder          messages = new LongAdder();
+
+  RequestBatcher(LockTransport transport) {
+    this.transport = transport;
+  }
+
+  void send(LockMessage message) {
+    queue.add(message);
+    while (!queue.isEmpty() && flushing.compareAndSet(false, true)) { // Re-check after flush, other threads could give up
+      try {
+        List<LockMessage> batch = new ArrayList<>();
+        for (LockMessage next; batch.size() < MAX_BATCH_SIZE && (next = queue.poll()) != null; ) {
+          batch.add(next);
+        }
+        if (!batch.isEmpty()) {
+          transport.send(batch);
+          batches.increment();
+          messages.add(batch.size());
+        }
+      } finally {
+        flushing.set(false);
+      }
+    }
+  }
+
+  long getBatchCount() {
+    return batches.sum();
+  }
+
+  long getMessageCount() {
+    return messages.sum();
+  }
+
+}
@@ -0,0 +1,31 @@
+package com.frost.entitylocker.executors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for running protected code on virtual threads. This is the Java 21 version of the multi-release jar.
+ * Use them with executeAsync methods of CodeExecutor and OwnerTokenEntityLocker.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return {@code true} if executors of this class start virtual threads
+   */
+  public static boolean isSupported() {
+    return true;
+  }
+
+  /**
+   * Creates executor that starts a new thread for each task, virtual if it's supported
+   *
+   * @return new executor, it should be shut down by the caller
+   */
+  public static ExecutorService newThreadPerTaskExecutor() {
+    return Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.frost.entitylocker.lockers;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Java 9 version of atomic access to 8-byte words of a memory-mapped file from the multi-release jar,
+ * it uses a VarHandle view of the buffer that supports atomic access to aligned words of direct buffers
+ */
+final class MappedWords {
+
+  private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private final MappedByteBuffer buffer;
+
+  /**
+   * @param buffer mapped buffer, its start should be aligned to 8 bytes
+   */
+  MappedWords(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * @param offset offset of the word in bytes, multiple of 8
+   */
+  long getVolatile(int offset) {
+    return (long) LONGS.getVolatile(buffer, offset);
+  }
+
+  void setVolatile(int offset, long value) {
+    LONGS.setVolatile(buffer, offset, value);
+  }
+
+  boolean compareAndSet(int offset, long expected, long value) {
+    return LONGS.compareAndSet(buffer, offset, expected, value);
+  }
+
+}
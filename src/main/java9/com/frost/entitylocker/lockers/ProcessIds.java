@@ -0,0 +1,19 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Java 9 version of process id helpers from the multi-release jar
+ */
+final class ProcessIds {
+
+  private ProcessIds() {
+  }
+
+  static long current() {
+    return ProcessHandle.current().pid();
+  }
+
+  static boolean isAlive(long pid) {
+    return pid == 0L || ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+  }
+
+}
@@ -0,0 +1,15 @@
+package com.frost.entitylocker.lockers;
+
+/**
+ * Java 9 version of busy-waiting hint from the multi-release jar
+ */
+final class SpinWait {
+
+  private SpinWait() {
+  }
+
+  static void onSpinWait() {
+    Thread.onSpinWait();
+  }
+
+}
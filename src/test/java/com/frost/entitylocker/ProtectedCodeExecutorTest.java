@@ -1,9 +1,24 @@
 package com.frost.entitylocker;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.frost.entitylocker.executors.IntProtectedCodeExecutor;
+import com.frost.entitylocker.executors.LongProtectedCodeExecutor;
 import com.frost.entitylocker.executors.ProtectedCodeExecutor;
+import com.frost.entitylocker.lockers.EntityLocker;
+import com.frost.entitylocker.lockers.EntityLockerFactory;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ProtectedCodeExecutorTest {
 
@@ -23,6 +38,15 @@ public class ProtectedCodeExecutorTest {
     assertTrue(executed[0]);
   }
 
+  @Test
+  public void shouldExecuteCodeOnSeveralEntities() throws Exception {
+    ProtectedCodeExecutor<Integer> executor = new ProtectedCodeExecutor<>();
+    boolean[]                      executed = new boolean[2];
+    executor.execute(Arrays.asList(2, 1), () -> executed[0] = true);
+    executor.tryToExecute(Arrays.asList(1, 2), 100, () -> executed[1] = true);
+    assertTrue(executed[0] && executed[1]);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void shouldThrowExceptionIfTimeoutLessThanZero() throws Exception {
     ProtectedCodeExecutor<Integer> executor = new ProtectedCodeExecutor<>();
@@ -30,4 +54,101 @@ public class ProtectedCodeExecutorTest {
     });
   }
 
+  @Test
+  public void shouldExecuteCodeOnLongEntity() throws Exception {
+    LongProtectedCodeExecutor executor = new LongProtectedCodeExecutor();
+    boolean[]                 executed = new boolean[2];
+    executor.execute(1L, () -> executed[0] = true);
+    executor.tryToExecute(1L, 100, () -> executed[1] = true);
+    assertTrue(executed[0] && executed[1]);
+  }
+
+  @Test
+  public void shouldExecuteCodeOnIntEntity() throws Exception {
+    IntProtectedCodeExecutor executor = new IntProtectedCodeExecutor();
+    boolean[]                executed = new boolean[2];
+    executor.execute(1, () -> executed[0] = true);
+    executor.tryToExecute(1, 100, () -> executed[1] = true);
+    assertTrue(executed[0] && executed[1]);
+  }
+
+  @Test(timeout = 5000)
+  public void shouldExecuteAsyncCodeOnEntityInSubmissionOrder() throws Exception {
+    ProtectedCodeExecutor<Integer> executor = new ProtectedCodeExecutor<>();
+    ExecutorService                service  = Executors.newFixedThreadPool(4);
+    List<Integer>                  order    = new ArrayList<>();
+    List<CompletableFuture<Void>>  results  = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      final int value = i;
+      results.add(executor.executeAsync(1, () -> order.add(value), service));
+    }
+    for (CompletableFuture<Void> r : results) r.get();
+    service.shutdown();
+    assertEquals(1000, order.size());
+    for (int i = 0; i < order.size(); i++) {
+      assertEquals("Code of the same entity should be executed in submission order", i, (int) order.get(i));
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void shouldNotExecuteAsyncCodeWhileEntityIsLocked() throws Exception {
+    EntityLocker<Integer>          locker   = EntityLockerFactory.getConcurrentEntityLocker();
+    ProtectedCodeExecutor<Integer> executor = new ProtectedCodeExecutor<>(locker);
+    ExecutorService                service  = Executors.newFixedThreadPool(2);
+    boolean[]                      executed = new boolean[2];
+    locker.lockId(1);
+    CompletableFuture<Boolean> timedOut = executor.tryToExecuteAsync(1, 50, () -> executed[0] = true, service);
+    assertFalse("Waiting time should elapse while entity is locked", timedOut.get());
+    CompletableFuture<Void> waiting = executor.executeAsync(1, () -> executed[1] = true, service);
+    Thread.sleep(50);
+    assertFalse(waiting.isDone());
+    locker.unlockId(1);
+    waiting.get();
+    service.shutdown();
+    assertFalse(executed[0]);
+    assertTrue(executed[1]);
+  }
+
+  @Test(timeout = 5000)
+  public void shouldDrainLongQueueOfDirectExecutorWithoutNesting() throws Exception {
+    ProtectedCodeExecutor<Integer> executor = new ProtectedCodeExecutor<>();
+    List<Runnable>                 deferred = new ArrayList<>();
+    int[]                          counter  = new int[1];
+    CompletableFuture<Void>        head     = executor.executeAsync(1, () -> counter[0]++, deferred::add);
+    CompletableFuture<Void>        last     = null;
+    for (int i = 0; i < 100_000; i++) {
+      last = executor.executeAsync(1, () -> counter[0]++, Runnable::run); // Queued behind the deferred head
+    }
+    deferred.get(0).run();
+    assertTrue(head.isDone());
+    last.get(); // Would fail with StackOverflowError if each task ran in the stack of the previous one
+    assertEquals(100_001, counter[0]);
+  }
+
+  @Test(timeout = 5000)
+  public void shouldCompleteAsyncCodeExceptionallyAndContinueQueue() throws Exception {
+    ProtectedCodeExecutor<Integer> executor = new ProtectedCodeExecutor<>();
+    ExecutorService                service  = Executors.newSingleThreadExecutor();
+    boolean[]                      executed = new boolean[1];
+    CompletableFuture<Void> failed = executor.executeAsync(1, () -> {
+      throw new IllegalStateException();
+    }, service);
+    CompletableFuture<Boolean> next = executor.tryToExecuteAsync(1, 1000, () -> executed[0] = true, service);
+    try {
+      failed.get();
+      fail("Should throw ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertTrue(next.get());
+    assertTrue(executed[0]);
+    service.shutdown();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfAsyncTimeoutLessThanZero() {
+    new ProtectedCodeExecutor<Integer>().tryToExecuteAsync(1, -1, () -> {
+    }, Runnable::run);
+  }
+
 }
@@ -0,0 +1,150 @@
+package com.frost.entitylocker.executors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SerialCodeExecutorTest {
+
+  @Test(timeout = 1000L)
+  public void shouldExecuteQueuedCodeByOwnerInOneBatch() throws Exception {
+    SerialCodeExecutor<Integer> executor = new SerialCodeExecutor<>();
+    ExecutorService             service  = Executors.newSingleThreadExecutor();
+    CountDownLatch              started  = new CountDownLatch(1);
+    CountDownLatch              finish   = new CountDownLatch(1);
+    List<Thread>                threads  = new ArrayList<>();
+    Future<?> owner = service.submit(() -> executor.submit(1, () -> {
+      threads.add(Thread.currentThread());
+      started.countDown();
+      finish.await();
+    }));
+    started.await();
+    List<CompletableFuture<Void>> queued = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      queued.add(executor.submit(1, () -> threads.add(Thread.currentThread())));
+    }
+    assertFalse("Code should wait for the owner", queued.get(0).isDone());
+    finish.countDown();
+    owner.get();
+    for (CompletableFuture<Void> future : queued) {
+      assertTrue("Owner should execute queued code before return", future.isDone());
+    }
+    assertEquals(4, threads.size());
+    assertTrue("All code should be executed by the owner", threads.stream().allMatch(t -> t == threads.get(0)));
+    assertEquals("Idle mailbox should be removed", 0, executor.getMailboxCount());
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldHandOffMailboxAfterMaxBatchSize() throws Exception {
+    List<Runnable>                handoffs = new ArrayList<>();
+    SerialCodeExecutor<Integer>   executor = new SerialCodeExecutor<>(2, handoffs::add);
+    List<Integer>                 order    = new ArrayList<>();
+    List<CompletableFuture<Void>> queued   = new ArrayList<>();
+    executor.submit(1, () -> {
+      for (int i = 2; i <= 4; i++) {
+        int task = i;
+        queued.add(executor.submit(1, () -> order.add(task))); // Queued after the current code
+      }
+      order.add(1);
+    });
+    assertEquals("[1, 2]", order.toString());
+    assertEquals(1, handoffs.size());
+    assertFalse(queued.get(2).isDone());
+    handoffs.get(0).run();
+    assertEquals("[1, 2, 3, 4]", order.toString());
+    assertEquals(0, executor.getMailboxCount());
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldExecuteCodeOfSameIdSeriallyInSubmissionOrder() throws Exception {
+    SerialCodeExecutor<Integer> executor = new SerialCodeExecutor<>(4, Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r);
+      thread.setDaemon(true);
+      return thread;
+    }));
+    ExecutorService workers = Executors.newFixedThreadPool(4);
+    AtomicBoolean[] busy    = {new AtomicBoolean(), new AtomicBoolean()};
+    AtomicBoolean   failed  = new AtomicBoolean();
+    int[][]         last    = new int[4][2]; // Last sequence number of each producer and id
+    List<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      int producer = i;
+      results.add(workers.submit(() -> {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int j = 1; j <= 500; j++) {
+          int id       = j % 2;
+          int sequence = j;
+          futures.add(executor.submit(id, () -> {
+            if (!busy[id].compareAndSet(false, true) || last[producer][id] > sequence) {
+              failed.set(true);
+            }
+            last[producer][id] = sequence;
+            busy[id].set(false);
+          }));
+        }
+        for (CompletableFuture<Void> future : futures) future.get();
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    workers.shutdown();
+    assertFalse("Code of the same id should run one at a time in submission order", failed.get());
+  }
+
+  @Test
+  public void shouldCompleteFutureExceptionallyAndContinue() throws Exception {
+    SerialCodeExecutor<Integer> executor = new SerialCodeExecutor<>();
+    CompletableFuture<Void>     failure  = executor.submit(1, () -> {
+      throw new IllegalStateException("failure");
+    });
+    assertTrue(failure.isCompletedExceptionally());
+    try {
+      executor.execute(1, () -> {
+        throw new IllegalStateException("failure");
+      });
+      fail("Exception of the code should be rethrown");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    boolean[] executed = new boolean[1];
+    executor.execute(1, () -> executed[0] = true);
+    assertTrue(executed[0]);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExecuteNestedCodeOfSameIdInPlace() throws Exception {
+    SerialCodeExecutor<Integer> executor = new SerialCodeExecutor<>();
+    List<Integer>               order    = new ArrayList<>();
+    executor.execute(1, () -> {
+      executor.execute(1, () -> order.add(1));
+      order.add(2);
+    });
+    assertEquals("[1, 2]", order.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfBatchSizeIsNotPositive() {
+    new SerialCodeExecutor<Integer>(0, Runnable::run);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNull() {
+    new SerialCodeExecutor<Integer>().submit(null, () -> {
+    });
+  }
+
+}
@@ -0,0 +1,218 @@
+package com.frost.entitylocker.executors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardedCodeExecutorTest {
+
+  ShardedCodeExecutor<Integer> executor;
+  CountDownLatch               finish = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    finish.countDown();
+    if (executor != null) {
+      executor.close();
+    }
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExecuteCodeOfIdOnWorkerOfItsShard() throws Exception {
+    executor = new ShardedCodeExecutor<>(4, 16, BackPressurePolicy.BLOCK);
+    Thread first  = executor.compute(1, Thread::currentThread).get();
+    Thread second = executor.compute(1, Thread::currentThread).get();
+    assertSame("Code of the same id should run on the same worker", first, second);
+    assertTrue(first.getName().startsWith("entity-locker-shard-"));
+    assertEquals(Integer.valueOf(42), executor.compute(2, () -> 42).get());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRejectCodeIfQueueIsFull() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 2, BackPressurePolicy.REJECT);
+    occupyWorker();
+    fillQueue();
+    CompletableFuture<Void> rejected = executor.submit(2, () -> {
+    });
+    assertEquals(2, executor.getQueueDepth(0));
+    try {
+      rejected.get();
+      fail("Code should be rejected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+    assertEquals(1, executor.getRejectedCount());
+    finish.countDown();
+    while (executor.getQueueDepth(0) != 0) {
+      Thread.sleep(1);
+    }
+    assertEquals(Integer.valueOf(1), executor.compute(1, () -> 1).get());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRunCodeByCallerIfQueueIsFull() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 2, BackPressurePolicy.CALLER_RUNS);
+    occupyWorker();
+    fillQueue();
+    Thread[] executedBy = new Thread[1];
+    Thread   caller     = new Thread(() -> executor.submit(2, () -> executedBy[0] = Thread.currentThread()));
+    caller.start();
+    Thread.sleep(10);
+    assertTrue("Caller should wait for the code of the worker", caller.isAlive());
+    finish.countDown();
+    caller.join();
+    assertSame(caller, executedBy[0]);
+    assertEquals(1, executor.getCallerRunsCount());
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldKeepSubmissionOrderWhenCallerRunsCode() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 2, BackPressurePolicy.CALLER_RUNS);
+    occupyWorker();
+    List<Integer>   order   = new ArrayList<>(); // Changed only by code of the shard, which is exclusive
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    Future<?> submitted = service.submit(() -> {
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        int sequence = i;
+        futures.add(executor.submit(1, () -> order.add(sequence)));
+      }
+      for (CompletableFuture<Void> future : futures) future.get();
+      return null;
+    });
+    Thread.sleep(10);
+    finish.countDown();
+    submitted.get();
+    service.shutdown();
+    assertTrue("Queue should be full at least once", executor.getCallerRunsCount() > 0);
+    for (int i = 0; i < 200; i++) {
+      assertEquals("Code of the same id should run in submission order", Integer.valueOf(i), order.get(i));
+    }
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRunQueuedCodeBeforeNestedCodeOfSameShardInPlace() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 2, BackPressurePolicy.BLOCK);
+    List<Integer> order = new ArrayList<>();
+    executor.submit(1, () -> {
+      for (int i = 0; i < 5; i++) { // The third one finds the queue full
+        int sequence = i;
+        executor.submit(2, () -> order.add(sequence));
+      }
+    }).get();
+    while (executor.getQueueDepth(0) != 0) {
+      Thread.sleep(1);
+    }
+    executor.compute(2, () -> null).get();
+    assertEquals("[0, 1, 2, 3, 4]", order.toString());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldBlockCallerIfQueueIsFull() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 2, BackPressurePolicy.BLOCK);
+    occupyWorker();
+    fillQueue();
+    ExecutorService                 service = Executors.newSingleThreadExecutor();
+    Future<CompletableFuture<Void>> blocked = service.submit(() -> executor.submit(2, () -> {
+    }));
+    Thread.sleep(10);
+    assertFalse("Caller should wait for free space in the queue", blocked.isDone());
+    finish.countDown();
+    blocked.get().get();
+    service.shutdown();
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldExecuteCodeOfSameIdSeriallyInSubmissionOrder() throws Exception {
+    executor = new ShardedCodeExecutor<>(2, 4, BackPressurePolicy.BLOCK);
+    ExecutorService workers = Executors.newFixedThreadPool(4);
+    AtomicBoolean   failed  = new AtomicBoolean();
+    int[][]         last    = new int[4][4]; // Last sequence number of each producer and id
+    List<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      int producer = i;
+      results.add(workers.submit(() -> {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int j = 1; j <= 1000; j++) {
+          int id       = j % 4;
+          int sequence = j;
+          futures.add(executor.submit(id, () -> {
+            if (last[producer][id] > sequence) {
+              failed.set(true);
+            }
+            last[producer][id] = sequence;
+          }));
+        }
+        for (CompletableFuture<Void> future : futures) future.get();
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    workers.shutdown();
+    assertFalse("Code of the same id should run in submission order", failed.get());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExecuteNestedCodeOfSameShardInPlace() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 16, BackPressurePolicy.BLOCK);
+    List<Integer> order = new ArrayList<>();
+    executor.execute(1, () -> {
+      executor.execute(2, () -> order.add(1));
+      order.add(2);
+    });
+    assertEquals("[1, 2]", order.toString());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRejectCodeAfterClose() throws Exception {
+    executor = new ShardedCodeExecutor<>(1, 16, BackPressurePolicy.BLOCK);
+    executor.close();
+    assertTrue(executor.submit(1, () -> {
+    }).isCompletedExceptionally());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfShardCountIsNotPositive() {
+    new ShardedCodeExecutor<Integer>(0, 16, BackPressurePolicy.BLOCK);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNull() {
+    executor = new ShardedCodeExecutor<>(1, 16, BackPressurePolicy.BLOCK);
+    executor.submit(null, () -> {
+    });
+  }
+
+  private void occupyWorker() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    executor.submit(0, () -> {
+      started.countDown();
+      finish.await();
+    });
+    started.await();
+  }
+
+  private void fillQueue() {
+    for (int i = 0; i < 2; i++) {
+      executor.submit(1, () -> {
+      });
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveSpinTest {
+
+  @Test
+  public void shouldNotSpinForLongHoldTimes() {
+    AdaptiveSpin spin = new AdaptiveSpin();
+    for (int i = 0; i < 32; i++) {
+      spin.recordHold(1, 1_000_000);
+    }
+    assertEquals("Parking is cheaper than spinning for long protected code", 0, spin.spinNanos(1));
+  }
+
+  @Test
+  public void shouldSpinForShortHoldTimesOnMultiprocessor() {
+    AdaptiveSpin spin = new AdaptiveSpin();
+    for (int i = 0; i < 32; i++) {
+      spin.recordHold(1, 1_000);
+    }
+    boolean multiprocessor = Runtime.getRuntime().availableProcessors() > 1;
+    assertEquals(multiprocessor, spin.spinNanos(1) > 0);
+    assertTrue(spin.spinNanos(1) <= 20_000);
+  }
+
+  @Test
+  public void shouldNotAcquireLockHeldByAnotherThreadBySpinning() throws Exception {
+    AdaptiveSpin  spin = new AdaptiveSpin();
+    ReentrantLock lock = new ReentrantLock();
+    Thread        t    = new Thread(lock::lock);
+    t.start();
+    t.join();
+    assertFalse(spin.spin(1, lock, 1_000_000));
+  }
+
+}
@@ -18,6 +18,9 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ConcurrentMapEntityLockerTest {
@@ -201,6 +204,322 @@ public class ConcurrentMapEntityLockerTest {
     assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
   }
 
+  @Test
+  public void shouldRecycleReleasedLocks() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLockerBuilder<Integer>()
+        .withLockingMap(map)
+        .withLockPool(4)
+        .build();
+    locker.lockId(FIRST_ENTITY_ID);
+    EntityLock first = map.get(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    locker.lockId(SECOND_ENTITY_ID);
+    EntityLock second = map.get(SECOND_ENTITY_ID);
+    locker.unlockId(SECOND_ENTITY_ID);
+    assertSame("Released lock should be reused", first, second);
+    assertEquals("Only the first lock should be allocated", 1, locker.getLockPoolMissCount());
+    assertEquals("The second lock should be taken from the pool", 1, locker.getLockPoolHitCount());
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldGrantLockInArrivalOrderWhenFifoIsUsed() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLockerBuilder<Integer>()
+        .withLockingMap(map)
+        .withFairnessPolicy(FairnessPolicy.FIFO)
+        .build();
+    List<Integer> order   = new ArrayList<>();
+    List<Thread>  waiters = new ArrayList<>();
+    locker.lockId(FIRST_ENTITY_ID);
+    ReentrantLockProbe probe = new ReentrantLockProbe(map.get(FIRST_ENTITY_ID));
+    for (int i = 0; i < 5; i++) {
+      final int number = i;
+      Thread t = new Thread(() -> {
+        try {
+          locker.lockId(FIRST_ENTITY_ID);
+          order.add(number); // Guarded by the entity lock
+          locker.unlockId(FIRST_ENTITY_ID);
+        } catch (InterruptedException ignored) {
+        }
+      });
+      t.start();
+      probe.awaitQueueLength(i + 1); // Next thread starts only after the previous one is queued
+      waiters.add(t);
+    }
+    locker.unlockId(FIRST_ENTITY_ID);
+    for (Thread t : waiters) {
+      t.join();
+    }
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      expected.add(i);
+    }
+    assertEquals("Waiting threads should get the lock in arrival order", expected, order);
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldCleanBackingMapAfterTimeoutWhenFifoIsUsed() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLockerBuilder<Integer>()
+        .withLockingMap(map)
+        .withFairnessPolicy(FairnessPolicy.FIFO)
+        .build();
+    CountDownLatch locked   = new CountDownLatch(1);
+    CountDownLatch timedOut = new CountDownLatch(1);
+    Thread owner = new Thread(() -> {
+      try {
+        locker.lockId(FIRST_ENTITY_ID);
+        locked.countDown();
+        timedOut.await();
+        locker.unlockId(FIRST_ENTITY_ID);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    owner.start();
+    locked.await();
+    assertFalse(locker.tryLockId(FIRST_ENTITY_ID, 20, TimeUnit.MILLISECONDS));
+    timedOut.countDown();
+    owner.join();
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+    assertTrue("Lock should be free after timeout", locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS));
+    locker.unlockId(FIRST_ENTITY_ID);
+    assertEquals(0, map.size());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfFairnessPolicyIsNull() {
+    new ConcurrentMapEntityLockerBuilder<Integer>().withFairnessPolicy(null);
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldFailOneThreadOfDeadlock() throws Exception {
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLockerBuilder<Integer>()
+        .withDeadlockDetection(10, TimeUnit.MILLISECONDS)
+        .build();
+    CountDownLatch  latch    = new CountDownLatch(2);
+    AtomicInteger   victims  = new AtomicInteger();
+    AtomicInteger   finished = new AtomicInteger();
+    ExecutorService service  = Executors.newFixedThreadPool(2);
+    List<Future<?>> results  = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      final int first  = i == 0 ? FIRST_ENTITY_ID : SECOND_ENTITY_ID;
+      final int second = i == 0 ? SECOND_ENTITY_ID : FIRST_ENTITY_ID;
+      results.add(service.submit(() -> {
+        locker.lockId(first);
+        try {
+          latch.countDown();
+          latch.await();
+          locker.lockId(second);
+          finished.incrementAndGet();
+          locker.unlockId(second);
+        } catch (DeadlockException e) {
+          assertEquals("Cycle should contain both threads", 2, e.getCycle().size());
+          victims.incrementAndGet();
+        } finally {
+          locker.unlockId(first);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+    assertEquals("Exactly one thread should be a victim", 1, victims.get());
+    assertEquals("Other thread should acquire both locks", 1, finished.get());
+    assertEquals(1, locker.getDeadlockCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldWaitWithoutDeadlockWhenDetectionIsEnabled() throws Exception {
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLockerBuilder<Integer>()
+        .withDeadlockDetection(1, TimeUnit.MILLISECONDS)
+        .build();
+    locker.lockId(FIRST_ENTITY_ID);
+    Thread t = new Thread(() -> {
+      try {
+        assertFalse(locker.tryLockId(FIRST_ENTITY_ID, 20, TimeUnit.MILLISECONDS));
+        locker.lockId(FIRST_ENTITY_ID);
+        locker.unlockId(FIRST_ENTITY_ID);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    Thread.sleep(50);
+    locker.unlockId(FIRST_ENTITY_ID);
+    t.join();
+    assertEquals(0, locker.getDeadlockCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfDeadlockCheckIntervalIsNotPositive() {
+    new ConcurrentMapEntityLockerBuilder<Integer>().withDeadlockDetection(0, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReleaseEntityWhileAwaitingConditionAndRestoreHoldCount() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map      = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker   = new ConcurrentMapEntityLocker<>(map);
+    AtomicBoolean                      ready    = new AtomicBoolean();
+    AtomicBoolean                      observed = new AtomicBoolean();
+    CountDownLatch                     awaiting = new CountDownLatch(1);
+    Thread consumer = new Thread(() -> {
+      try {
+        locker.lockId(FIRST_ENTITY_ID);
+        locker.lockId(FIRST_ENTITY_ID);
+        while (!ready.get()) {
+          awaiting.countDown();
+          locker.awaitCondition(FIRST_ENTITY_ID);
+        }
+        observed.set(true);
+        locker.unlockId(FIRST_ENTITY_ID);
+        locker.unlockId(FIRST_ENTITY_ID);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    consumer.start();
+    awaiting.await();
+    assertTrue("Entity should be released while awaiting", locker.tryLockId(FIRST_ENTITY_ID, 500, TimeUnit.MILLISECONDS));
+    ready.set(true);
+    locker.signal(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    consumer.join();
+    assertTrue("Consumer should see the state changed by the signalling thread", observed.get());
+    assertEquals("Lock should be removed after the last unlock of the reentrant hold", 0, map.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldKeepLockInMapWhileThreadsAwaitCondition() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map      = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker   = new ConcurrentMapEntityLocker<>(map);
+    CountDownLatch                     awaiting = new CountDownLatch(2);
+    List<Thread>                       threads  = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Thread t = new Thread(() -> {
+        try {
+          locker.lockId(FIRST_ENTITY_ID);
+          awaiting.countDown();
+          locker.awaitCondition(FIRST_ENTITY_ID);
+          locker.unlockId(FIRST_ENTITY_ID);
+        } catch (InterruptedException ignored) {
+        }
+      });
+      t.start();
+      threads.add(t);
+    }
+    awaiting.await();
+    locker.lockId(FIRST_ENTITY_ID);
+    EntityLock entityLock = map.get(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    assertSame("Lock should stay in the map for condition waiters", entityLock, map.get(FIRST_ENTITY_ID));
+    locker.lockId(FIRST_ENTITY_ID);
+    locker.signalAll(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    for (Thread t : threads) t.join();
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReturnFalseWhenConditionIsNotSignalledInTime() throws Exception {
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLocker<>();
+    locker.lockId(FIRST_ENTITY_ID);
+    assertFalse(locker.awaitCondition(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS));
+    locker.signal(FIRST_ENTITY_ID); // Entity is held again after the timeout
+    locker.unlockId(FIRST_ENTITY_ID);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeAwait() throws InterruptedException {
+    new ConcurrentMapEntityLocker<Integer>().awaitCondition(FIRST_ENTITY_ID);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeSignal() {
+    new ConcurrentMapEntityLocker<Integer>().signalAll(FIRST_ENTITY_ID);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReleaseLockByClosingHandle() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map    = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLocker<>(map);
+    try (LockHandle handle = locker.acquire(FIRST_ENTITY_ID)) {
+      assertNotNull(handle);
+      assertTrue("Lock should be held inside the block", map.containsKey(FIRST_ENTITY_ID));
+    }
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    assertTrue("Lock should be free for other threads", service.submit(() -> {
+      LockHandle handle = locker.tryAcquire(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS);
+      if (handle != null) handle.close();
+      return handle != null;
+    }).get());
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReuseHandleForReentrantAcquisition() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map    = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLocker<>(map);
+    LockHandle outer = locker.acquire(FIRST_ENTITY_ID);
+    LockHandle inner = locker.tryAcquire(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS);
+    assertSame("Reentrant acquisition should return the same handle", outer, inner);
+    inner.close();
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    assertFalse("Lock should be held until the outermost close", service.submit(() ->
+        locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS)).get());
+    outer.close();
+    assertEquals(0, map.size());
+    assertTrue(service.submit(() -> {
+      boolean locked = locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS);
+      locker.unlockId(FIRST_ENTITY_ID);
+      return locked;
+    }).get());
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReturnNullHandleWhenTimeoutExceed() throws Exception {
+    ConcurrentMapEntityLocker<Integer> locker  = new ConcurrentMapEntityLocker<>();
+    ExecutorService                    service = Executors.newSingleThreadExecutor();
+    try (LockHandle handle = locker.acquire(FIRST_ENTITY_ID)) {
+      assertNotNull(handle);
+      assertNull(service.submit(() -> locker.tryAcquire(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS)).get());
+    }
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldCloseHandleAfterAwaitingCondition() throws Exception {
+    ConcurrentMap<Integer, EntityLock> map     = new ConcurrentHashMap<>();
+    ConcurrentMapEntityLocker<Integer> locker  = new ConcurrentMapEntityLocker<>(map);
+    ExecutorService                    service = Executors.newSingleThreadExecutor();
+    Future<?>                          signaller;
+    try (LockHandle handle = locker.acquire(FIRST_ENTITY_ID)) {
+      signaller = service.submit(() -> {
+        locker.lockId(FIRST_ENTITY_ID); // Gets the lock released by the waiting thread
+        locker.signal(FIRST_ENTITY_ID);
+        locker.unlockId(FIRST_ENTITY_ID);
+        return null;
+      });
+      locker.awaitCondition(FIRST_ENTITY_ID);
+      LockHandle reentrant = locker.acquire(FIRST_ENTITY_ID);
+      assertSame("Handle of the acquisition should be restored after the wait", handle, reentrant);
+      reentrant.close();
+    }
+    signaller.get();
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+    service.shutdown();
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfHandleIsClosedTwice() throws InterruptedException {
+    ConcurrentMapEntityLocker<Integer> locker = new ConcurrentMapEntityLocker<>();
+    LockHandle                         handle = locker.acquire(FIRST_ENTITY_ID);
+    handle.close();
+    handle.close();
+  }
+
   @Test(expected = NullPointerException.class)
   public void shouldThrowNullPointerExceptionIfIdIsNullOnLock() throws InterruptedException {
     locker.lockId(null);
@@ -244,4 +563,19 @@ public class ConcurrentMapEntityLockerTest {
     }
   }
 
+  static class ReentrantLockProbe {
+
+    private final EntityLock entityLock;
+
+    ReentrantLockProbe(EntityLock entityLock) {
+      this.entityLock = entityLock;
+    }
+
+    void awaitQueueLength(int length) throws InterruptedException {
+      while (entityLock.lock.getQueueLength() < length) {
+        Thread.sleep(1);
+      }
+    }
+  }
+
 }
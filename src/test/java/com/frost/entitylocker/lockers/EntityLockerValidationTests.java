@@ -10,6 +10,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.frost.entitylocker.executors.CodeExecutor;
 import com.frost.entitylocker.executors.ProtectedCodeExecutor;
@@ -98,6 +99,126 @@ public class EntityLockerValidationTests {
     runValidationTest(EntityLockerFactory.getConcurrentEntityLocker(), config);
   }
 
+  /**
+   * Same as runConcurrentStressTest but recycles released locks through the pool
+   */
+  @Test(timeout = 5000)
+  public void runRecyclingConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder().withLockPool(16).build(), config);
+  }
+
+  /**
+   * Same as runRecyclingConcurrentStressTest but uses tryLock method to acquire lock on entity id
+   */
+  @Test(timeout = 10000)
+  public void runTryLockRecyclingConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(true).build();
+    runValidationTest(EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder().withLockPool(16).build(), config);
+  }
+
+  /**
+   * Same as runConcurrentStressTest but waiting threads are registered in the wait-for graph of deadlock detector
+   */
+  @Test(timeout = 10000)
+  public void runDeadlockDetectingConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder()
+        .withDeadlockDetection(1, TimeUnit.MILLISECONDS).build(), config);
+  }
+
+  /**
+   * Same as runConcurrentStressTest but waiting threads spin before parking
+   */
+  @Test(timeout = 5000)
+  public void runAdaptiveSpinConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.getConcurrentEntityLocker(AcquisitionPolicy.ADAPTIVE_SPIN), config);
+  }
+
+  /**
+   * Same as runAdaptiveSpinConcurrentStressTest but uses tryLock method to acquire lock on entity id
+   */
+  @Test(timeout = 10000)
+  public void runTryLockAdaptiveSpinConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(true).build();
+    runValidationTest(EntityLockerFactory.getConcurrentEntityLocker(AcquisitionPolicy.ADAPTIVE_SPIN), config);
+  }
+
+  /**
+   * Same as runConcurrentStressTest but released lock is handed over to the longest waiting thread
+   */
+  @Test(timeout = 10000)
+  public void runFifoConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.getConcurrentEntityLocker(FairnessPolicy.FIFO), config);
+  }
+
+  /**
+   * Same as runFifoConcurrentStressTest but uses tryLock method to acquire lock on entity id
+   */
+  @Test(timeout = 20000)
+  public void runTryLockFifoConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(true).build();
+    runValidationTest(EntityLockerFactory.getConcurrentEntityLocker(FairnessPolicy.FIFO), config);
+  }
+
+  /**
+   * Same as runFifoConcurrentStressTest but new threads can take the free lock ahead of waiting threads few times,
+   * locks are recycled through the pool
+   */
+  @Test(timeout = 10000)
+  public void runBoundedBargingConcurrentStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder()
+        .withFairnessPolicy(FairnessPolicy.BOUNDED_BARGING).withLockPool(16).build(), config);
+  }
+
+  /**
+   * Same as runConcurrentStressTest but uses RangeEntityLocker, each id is locked as a range of one id
+   */
+  @Test(timeout = 10000)
+  public void runRangeStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.getRangeEntityLocker(), config);
+  }
+
+  /**
+   * Same as runRangeStressTest but uses tryLock method to acquire lock on entity id
+   */
+  @Test(timeout = 20000)
+  public void runTryLockRangeStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(true).build();
+    runValidationTest(EntityLockerFactory.getRangeEntityLocker(), config);
+  }
+
+  /**
+   * Same as runConcurrentStressTest but uses StripedEntityLocker with less stripes than entity ids
+   */
+  @Test(timeout = 5000)
+  public void runStripedStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.getStripedEntityLocker(16), config);
+  }
+
+  /**
+   * Same as runConcurrentStressTest but uses CasEntityLocker with less stripes than entity ids
+   */
+  @Test(timeout = 5000)
+  public void runCasStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(false).build();
+    runValidationTest(EntityLockerFactory.getCasEntityLocker(16), config);
+  }
+
+  /**
+   * Same as runCasStressTest but uses tryLock method to acquire lock on entity id
+   */
+  @Test(timeout = 10000)
+  public void runTryLockCasStressTest() throws Exception {
+    TestConfiguration config = STRESS_TEST_CONFIG_BUILDER.withTryLock(true).build();
+    runValidationTest(EntityLockerFactory.getCasEntityLocker(16), config);
+  }
+
   public boolean runValidationTest(EntityLocker<Integer> locker, TestConfiguration config) throws ExecutionException, InterruptedException {
     final int[]                    arr      = new int[config.arraySize];
     ExecutorService                service  = Executors.newFixedThreadPool(config.threadCount);
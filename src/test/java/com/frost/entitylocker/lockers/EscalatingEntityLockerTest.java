@@ -0,0 +1,190 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EscalatingEntityLockerTest {
+
+  final int THRESHOLD = 3;
+
+  EscalatingEntityLocker<Integer> locker;
+  AtomicInteger                   escalations;
+  AtomicInteger                   deescalations;
+
+  @Before
+  public void setUp() {
+    escalations = new AtomicInteger();
+    deescalations = new AtomicInteger();
+    locker = new EscalatingEntityLocker<>(EntityLockerFactory.getConcurrentEntityLocker(), THRESHOLD,
+        new EscalationListener() {
+          @Override
+          public void onEscalation(Thread thread, int heldLocks) {
+            assertTrue("Should escalate only above threshold", heldLocks > THRESHOLD);
+            escalations.incrementAndGet();
+          }
+
+          @Override
+          public void onDeescalation(Thread thread) {
+            deescalations.incrementAndGet();
+          }
+        });
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldEscalateWhenThresholdIsExceeded() throws Exception {
+    for (int id = 0; id < THRESHOLD; id++) {
+      locker.lockId(id);
+    }
+    assertNull("Should not escalate until threshold is exceeded", locker.getEscalatedOwner());
+    locker.lockId(THRESHOLD);
+    assertSame(Thread.currentThread(), locker.getEscalatedOwner());
+    assertEquals(1, locker.getEscalationCount());
+    assertEquals(1, escalations.get());
+    assertFalse("Other threads should wait for the global lock", tryLockInOtherThread(100));
+    for (int id = 0; id <= THRESHOLD; id++) {
+      locker.unlockId(id);
+    }
+    assertNull("Should deescalate after the last unlock", locker.getEscalatedOwner());
+    assertEquals(1, deescalations.get());
+    assertTrue("Other threads should lock ids after deescalation", tryLockInOtherThread(100));
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldCountReentrantLocksWhileEscalated() throws Exception {
+    for (int id = 0; id <= THRESHOLD; id++) {
+      locker.lockId(id);
+    }
+    locker.lockId(0);
+    assertTrue(locker.tryLockId(1, 0, TimeUnit.MILLISECONDS));
+    for (int id = 0; id <= THRESHOLD; id++) {
+      locker.unlockId(id);
+    }
+    assertSame("Reentrant holds should keep the global lock", Thread.currentThread(), locker.getEscalatedOwner());
+    locker.unlockId(0);
+    locker.unlockId(1);
+    assertNull(locker.getEscalatedOwner());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldEscalateOnlyAfterOtherThreadsReleaseTheirLocks() throws Exception {
+    int            otherId  = 100;
+    CountDownLatch locked   = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    Thread t = new Thread(() -> {
+      try {
+        locker.lockId(otherId);
+        locked.countDown();
+        finished.await();
+        locker.unlockId(otherId);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    locked.await();
+    for (int id = 0; id <= THRESHOLD; id++) {
+      locker.lockId(id);
+    }
+    assertNull("Should not escalate while other thread holds a lock", locker.getEscalatedOwner());
+    assertFalse("New threads should wait for pending escalation", tryLockInOtherThread(100));
+    finished.countDown();
+    t.join();
+    locker.lockId(THRESHOLD + 1);
+    assertSame(Thread.currentThread(), locker.getEscalatedOwner());
+    for (int id = 0; id <= THRESHOLD + 1; id++) {
+      locker.unlockId(id);
+    }
+    assertNull(locker.getEscalatedOwner());
+    assertTrue(tryLockInOtherThread(100));
+  }
+
+  @Test(timeout = 10000L)
+  public void shouldNotWorkConcurrentlyOnSameEntities() throws Exception {
+    final int          THREAD_COUNT = 8;
+    final int          ITERATIONS   = 2000;
+    int[]              counters     = new int[THRESHOLD * 2];
+    ExecutorService    service      = Executors.newFixedThreadPool(THREAD_COUNT);
+    List<Future<?>>    results      = new ArrayList<>();
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      final int size = 1 + i % counters.length; // Some threads escalate and some don't
+      results.add(service.submit(() -> {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+          ids.add(id);
+        }
+        for (int j = 0; j < ITERATIONS; j++) {
+          locker.lockIds(ids);
+          try {
+            for (int id : ids) {
+              counters[id]++;
+            }
+          } finally {
+            locker.unlockIds(ids);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+    int[] expected = new int[counters.length];
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      for (int id = 0; id < 1 + i % counters.length; id++) {
+        expected[id] += ITERATIONS;
+      }
+    }
+    assertEquals(Arrays.toString(expected), Arrays.toString(counters));
+    assertNull(locker.getEscalatedOwner());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfThresholdIsNotPositive() {
+    EntityLockerFactory.getEscalatingEntityLocker(0);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNullOnLock() throws InterruptedException {
+    locker.lockId(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfTimeoutIsNegative() throws InterruptedException {
+    locker.tryLockId(1, -1, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeUnlock() {
+    locker.unlockId(1);
+  }
+
+  private boolean tryLockInOtherThread(long timeoutMs) throws Exception {
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    try {
+      return service.submit(() -> {
+        boolean locked = locker.tryLockId(-1, timeoutMs, TimeUnit.MILLISECONDS);
+        if (locked) {
+          locker.unlockId(-1);
+        }
+        return locked;
+      }).get();
+    } finally {
+      service.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+  HashedWheelTimer timer;
+
+  @Before
+  public void setUp() {
+    timer = new HashedWheelTimer("test-timer", 1, TimeUnit.MILLISECONDS, 8);
+  }
+
+  @After
+  public void tearDown() {
+    timer.stop();
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldExpireTimeoutsAfterSeveralRounds() throws Exception {
+    CountDownLatch expired = new CountDownLatch(1000);
+    long           start   = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      timer.schedule(expired::countDown, 20 + i % 30, TimeUnit.MILLISECONDS); // Longer than one rotation of 8 ticks
+    }
+    expired.await();
+    assertTrue("Timeouts should not expire early", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldNotRunCancelledTimeouts() throws Exception {
+    AtomicInteger                  runs     = new AtomicInteger();
+    List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      timeouts.add(timer.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS));
+    }
+    for (HashedWheelTimer.Timeout timeout : timeouts) {
+      assertTrue(timeout.cancel());
+    }
+    CountDownLatch last = new CountDownLatch(1);
+    timer.schedule(last::countDown, 20, TimeUnit.MILLISECONDS);
+    last.await();
+    assertEquals("Cancelled timeouts should not run", 0, runs.get());
+    assertFalse("Timeout can be cancelled once", timeouts.get(0).cancel());
+  }
+
+}
@@ -0,0 +1,202 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.executors.ProtectedCodeExecutor;
+import com.frost.entitylocker.lockers.HierarchicalEntityLocker.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HierarchicalEntityLockerTest {
+
+  final List<String> TENANT        = Collections.singletonList("tenant");
+  final List<String> ACCOUNT       = Arrays.asList("tenant", "account");
+  final List<String> FIRST_ORDER   = Arrays.asList("tenant", "account", "order-1");
+  final List<String> SECOND_ORDER  = Arrays.asList("tenant", "account", "order-2");
+  final List<String> OTHER_ACCOUNT = Arrays.asList("tenant", "other-account");
+
+  HierarchicalEntityLocker<String> locker;
+  ExecutorService                  service;
+
+  @Before
+  public void setUp() {
+    locker = EntityLockerFactory.getHierarchicalEntityLocker();
+    service = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldLockSiblingsConcurrently() throws Exception {
+    locker.lockExclusive(FIRST_ORDER);
+    assertTrue("Sibling should be locked concurrently",
+        service.submit(() -> tryLockAndUnlock(SECOND_ORDER, LockMode.X)).get());
+    assertTrue("Another account should be locked concurrently",
+        service.submit(() -> tryLockAndUnlock(OTHER_ACCOUNT, LockMode.X)).get());
+    assertTrue("Intention on ancestors should be compatible",
+        service.submit(() -> tryLockAndUnlock(ACCOUNT, LockMode.IX)).get());
+    locker.unlockExclusive(FIRST_ORDER);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeAncestorsOfLockedChild() throws Exception {
+    locker.lockExclusive(FIRST_ORDER);
+    assertFalse("Tenant can't be locked while its order is locked",
+        service.submit(() -> tryLockAndUnlock(TENANT, LockMode.X)).get());
+    assertFalse("Account can't be read while its order is written",
+        service.submit(() -> tryLockAndUnlock(ACCOUNT, LockMode.S)).get());
+    locker.unlockExclusive(FIRST_ORDER);
+    assertTrue(service.submit(() -> tryLockAndUnlock(TENANT, LockMode.X)).get());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeDescendantsOfLockedAncestor() throws Exception {
+    locker.lockExclusive(TENANT);
+    assertFalse("Order can't be locked while its tenant is locked",
+        service.submit(() -> tryLockAndUnlock(FIRST_ORDER, LockMode.X)).get());
+    assertFalse(service.submit(() -> tryLockAndUnlock(OTHER_ACCOUNT, LockMode.S)).get());
+    locker.unlockExclusive(TENANT);
+
+    locker.lockShared(TENANT);
+    assertTrue("Readers of tenant and order should be compatible",
+        service.submit(() -> tryLockAndUnlock(FIRST_ORDER, LockMode.S)).get());
+    assertFalse("Writer of order should wait for tenant reader",
+        service.submit(() -> tryLockAndUnlock(FIRST_ORDER, LockMode.X)).get());
+    locker.unlockShared(TENANT);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLocks() throws Exception {
+    locker.lockExclusive(TENANT);
+    locker.lockExclusive(FIRST_ORDER); // Own tenant lock doesn't conflict with intention on the tenant
+    locker.lockShared(ACCOUNT);
+    locker.lockExclusive(TENANT);
+    locker.unlockExclusive(TENANT);
+    locker.unlockShared(ACCOUNT);
+    locker.unlockExclusive(FIRST_ORDER);
+    assertFalse(service.submit(() -> tryLockAndUnlock(SECOND_ORDER, LockMode.X)).get());
+    locker.unlockExclusive(TENANT);
+    assertTrue(service.submit(() -> tryLockAndUnlock(SECOND_ORDER, LockMode.X)).get());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldNotStarveTenantLockByNewChildLocks() throws Exception {
+    ExecutorService tenantService = Executors.newSingleThreadExecutor();
+    CountDownLatch  tenantLocked  = new CountDownLatch(1);
+    locker.lockExclusive(FIRST_ORDER);
+    Future<?> tenant = tenantService.submit(() -> {
+      locker.lockExclusive(TENANT);
+      tenantLocked.countDown();
+      locker.unlockExclusive(TENANT);
+      return null;
+    });
+    while (!hasWaiters(TENANT)) {
+      Thread.sleep(1);
+    }
+    assertFalse("New order lock should wait for the waiting tenant lock",
+        service.submit(() -> tryLockAndUnlock(SECOND_ORDER, LockMode.X)).get());
+    locker.unlockExclusive(FIRST_ORDER);
+    tenantLocked.await();
+    tenant.get();
+    tenantService.shutdown();
+  }
+
+  @Test
+  public void shouldCleanBackingMapAfterExecution() throws Exception {
+    ConcurrentMap<List<String>, Node> map    = new ConcurrentHashMap<>();
+    HierarchicalEntityLocker<String>  locker = new HierarchicalEntityLocker<>(map);
+    locker.lockExclusive(FIRST_ORDER);
+    locker.lockShared(OTHER_ACCOUNT);
+    assertEquals("Tenant, two accounts and order should be stored", 4, map.size());
+    assertFalse(service.submit(() -> locker.tryLockExclusive(TENANT, 10, TimeUnit.MILLISECONDS)).get());
+    locker.unlockShared(OTHER_ACCOUNT);
+    locker.unlockExclusive(FIRST_ORDER);
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExecuteCodeOnTenantAndOrders() throws Exception {
+    ProtectedCodeExecutor<List<String>> executor = new ProtectedCodeExecutor<>(locker);
+    CountDownLatch                      started  = new CountDownLatch(1);
+    CountDownLatch                      finish   = new CountDownLatch(1);
+    Thread writer = new Thread(() -> {
+      try {
+        executor.executeWrite(FIRST_ORDER, () -> {
+          started.countDown();
+          finish.await();
+        });
+      } catch (Exception ignored) {
+      }
+    });
+    writer.start();
+    started.await();
+    assertTrue("Sibling order should be executed concurrently", executor.tryToExecuteWrite(SECOND_ORDER, 0, () -> {
+    }));
+    assertFalse("Tenant should wait for its orders", executor.tryToExecuteWrite(TENANT, 10, () -> {
+    }));
+    finish.countDown();
+    writer.join();
+    assertTrue(executor.tryToExecuteWrite(TENANT, 0, () -> {
+    }));
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockPathBeforeUnlock() throws Exception {
+    locker.lockShared(FIRST_ORDER);
+    try {
+      locker.unlockExclusive(FIRST_ORDER);
+    } finally {
+      locker.unlockShared(FIRST_ORDER);
+    }
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfOnlyIntentionIsHeld() throws Exception {
+    locker.lockExclusive(FIRST_ORDER);
+    try {
+      locker.unlockExclusive(ACCOUNT);
+    } finally {
+      locker.unlockExclusive(FIRST_ORDER);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfPathIsEmpty() throws InterruptedException {
+    locker.lockExclusive(Collections.emptyList());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdOfPathIsNull() throws InterruptedException {
+    locker.lockExclusive(Arrays.asList("tenant", null));
+  }
+
+  private boolean tryLockAndUnlock(List<String> path, LockMode mode) throws InterruptedException {
+    if (!locker.tryLock(path, mode, 10, TimeUnit.MILLISECONDS)) {
+      return false;
+    }
+    locker.unlock(path, mode);
+    return true;
+  }
+
+  private boolean hasWaiters(List<String> path) throws Exception {
+    return !service.submit(() -> tryLockAndUnlock(path, LockMode.IS)).get(); // Only waiting X conflicts with IS here
+  }
+
+}
@@ -0,0 +1,79 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HotKeyTrackerTest {
+
+  @Test
+  public void shouldReplaceMinimalCounterAndKeepError() {
+    HotKeyTracker tracker = new HotKeyTracker(2);
+    for (int i = 0; i < 3; i++) {
+      tracker.recordContention("first");
+    }
+    tracker.recordContention("second");
+    tracker.recordContention("third"); // Replaces "second" with the minimal count
+    List<HotKey<String>> keys = tracker.hotKeys(2);
+    assertEquals("first", keys.get(0).getEntityId());
+    assertEquals(3, keys.get(0).getContentionCount());
+    assertEquals("third", keys.get(1).getEntityId());
+    assertEquals(2, keys.get(1).getContentionCount());
+    assertEquals(1, keys.get(1).getError());
+  }
+
+  @Test
+  public void shouldRecordHoldTimeOnlyForTrackedKeys() {
+    HotKeyTracker tracker = new HotKeyTracker(4);
+    tracker.recordContention("first");
+    tracker.recordHold("first", 100);
+    tracker.recordHold("first", 300);
+    tracker.recordHold("second", 1000);
+    List<HotKey<String>> keys = tracker.hotKeys(10);
+    assertEquals(1, keys.size());
+    assertEquals(200, keys.get(0).getMeanHoldNanos());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldReportContendedIdsOfLocker() throws Exception {
+    ConcurrentMapEntityLocker<Integer> locker = EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder()
+        .withHotKeyTracking(16)
+        .build();
+    CountDownLatch locked   = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    Thread t = new Thread(() -> {
+      try {
+        locker.lockId(1);
+        locked.countDown();
+        finished.await();
+        locker.unlockId(1);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    locked.await();
+    for (int i = 0; i < 5; i++) {
+      assertFalse(locker.tryLockId(1, 1, TimeUnit.MILLISECONDS));
+      assertTrue("Uncontended ids should not be tracked", locker.tryLockId(2, 1, TimeUnit.MILLISECONDS));
+      locker.unlockId(2);
+    }
+    finished.countDown();
+    t.join();
+    List<HotKey<Integer>> keys = locker.hotKeys(10);
+    assertEquals(1, keys.size());
+    assertEquals(1, (int) keys.get(0).getEntityId());
+    assertEquals(5, keys.get(0).getContentionCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfCapacityIsNotPositive() {
+    EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder().withHotKeyTracking(0);
+  }
+
+}
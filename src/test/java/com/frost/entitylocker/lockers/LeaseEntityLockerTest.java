@@ -0,0 +1,102 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LeaseEntityLockerTest {
+
+  final int FIRST_ENTITY_ID = 10;
+
+  HashedWheelTimer           timer;
+  LeaseEntityLocker<Integer> locker;
+  ExecutorService            service;
+
+  @Before
+  public void setUp() {
+    timer = new HashedWheelTimer("test-lease-timer", 1, TimeUnit.MILLISECONDS, 64);
+    locker = new LeaseEntityLocker<>(timer);
+    service = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    service.shutdown();
+    timer.stop();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldGrantIncreasingTokens() throws Exception {
+    Lease<Integer> first = locker.acquire(FIRST_ENTITY_ID, 1, TimeUnit.MINUTES);
+    assertTrue(locker.isValid(first));
+    assertTrue(locker.release(first));
+    assertFalse("Lease can be released only once", locker.release(first));
+    Lease<Integer> second = locker.acquire(FIRST_ENTITY_ID, 1, TimeUnit.MINUTES);
+    assertTrue("Tokens of later grants should be greater", second.getToken() > first.getToken());
+    assertTrue(locker.release(second));
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, locker.size());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldExpireHungLeaseAndWakeWaiter() throws Exception {
+    Lease<Integer>         hung   = locker.acquire(FIRST_ENTITY_ID, 50, TimeUnit.MILLISECONDS);
+    Future<Lease<Integer>> waiter = service.submit(() -> locker.acquire(FIRST_ENTITY_ID, 1, TimeUnit.MINUTES));
+    Lease<Integer>         next   = waiter.get();
+    assertFalse("Expired lease should not be valid", locker.isValid(hung));
+    assertFalse("Expired lease can't be released", locker.release(hung));
+    assertTrue("Fencing token should reject the expired holder", next.getToken() > hung.getToken());
+    assertEquals(1, locker.getExpiredCount());
+    assertTrue(locker.release(next));
+    assertEquals(0, locker.size());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldKeepRenewedLease() throws Exception {
+    Lease<Integer> lease = locker.acquire(FIRST_ENTITY_ID, 50, TimeUnit.MILLISECONDS);
+    assertTrue(locker.renew(lease, 1, TimeUnit.MINUTES));
+    Thread.sleep(100);
+    assertTrue("Renewed lease should not expire", locker.isValid(lease));
+    assertNull("Entity should stay leased",
+        service.submit(() -> locker.tryAcquire(FIRST_ENTITY_ID, 1, TimeUnit.MINUTES, 10, TimeUnit.MILLISECONDS)).get());
+    assertTrue(locker.release(lease));
+    assertFalse(locker.renew(lease, 1, TimeUnit.MINUTES));
+    assertEquals(0, locker.getExpiredCount());
+    assertEquals(0, locker.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReleaseLeaseFromAnotherThread() throws Exception {
+    Lease<Integer> lease = locker.acquire(FIRST_ENTITY_ID, 1, TimeUnit.MINUTES);
+    assertTrue(service.submit(() -> locker.release(lease)).get());
+    Lease<Integer> next = locker.tryAcquire(FIRST_ENTITY_ID, 1, TimeUnit.MINUTES, 0, TimeUnit.MILLISECONDS);
+    assertNotNull(next);
+    locker.release(next);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfTtlIsNotPositive() throws InterruptedException {
+    locker.acquire(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfTimeoutIsNegative() throws InterruptedException {
+    locker.tryAcquire(FIRST_ENTITY_ID, 1, TimeUnit.SECONDS, -1, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNull() throws InterruptedException {
+    locker.acquire(null, 1, TimeUnit.SECONDS);
+  }
+
+}
@@ -0,0 +1,159 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongEntityLockerTest {
+
+  final long FIRST_ENTITY_ID = 10_000_000_000L;
+
+  LongEntityLocker locker;
+
+  @Before
+  public void setUp() {
+    locker = EntityLockerFactory.getLongEntityLocker();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLock() throws Exception {
+    locker.lockId(FIRST_ENTITY_ID);
+    assertTrue("Should acquire already held lock", locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS));
+    locker.unlockId(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReturnFalseWhenTimeoutExceed() throws Exception {
+    CountDownLatch locked   = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+
+    Thread t = new Thread(() -> {
+      try {
+        locker.lockId(FIRST_ENTITY_ID);
+        locked.countDown();
+        finished.await();
+        locker.unlockId(FIRST_ENTITY_ID);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    locked.await();
+    boolean firstTry = locker.tryLockId(FIRST_ENTITY_ID, 30L, TimeUnit.MILLISECONDS);
+    finished.countDown();
+    boolean secondTry = locker.tryLockId(FIRST_ENTITY_ID, 1000L, TimeUnit.MILLISECONDS);
+    if (secondTry) locker.unlockId(FIRST_ENTITY_ID);
+    assertFalse("Should fail", firstTry);
+    assertTrue("Should pass after the lock was released", secondTry);
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldKeepLocksOfManyIdsInOneSegment() throws Exception {
+    LongEntityLocker singleSegment = new ConcurrentLongEntityLocker(1);
+    for (long id = 0; id < 1000; id++) {
+      singleSegment.lockId(id);
+    }
+    for (long id = 0; id < 1000; id += 2) {
+      singleSegment.unlockId(id);
+    }
+    for (long id = 1; id < 1000; id += 2) {
+      assertTrue("Odd ids should be still held and reentrant", singleSegment.tryLockId(id, 0, TimeUnit.MILLISECONDS));
+      singleSegment.unlockId(id);
+      singleSegment.unlockId(id);
+    }
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldNotWorkConcurrentlyOnSameEntity() throws Exception {
+    final int       THREAD_COUNT = 8;
+    final int       ITERATIONS   = 10000;
+    int[]           counters     = new int[4];
+    ExecutorService service      = Executors.newFixedThreadPool(THREAD_COUNT);
+    List<Future<?>> results      = new ArrayList<>();
+
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      results.add(service.submit(() -> {
+        for (int j = 0; j < ITERATIONS; j++) {
+          int index = j % counters.length;
+          locker.lockId(FIRST_ENTITY_ID + index);
+          counters[index]++;
+          locker.unlockId(FIRST_ENTITY_ID + index);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+    for (int counter : counters) {
+      assertEquals("Each increment should be done under the lock", THREAD_COUNT * ITERATIONS / counters.length, counter);
+    }
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldWakeWaitersOfEachIdInOneSegment() throws Exception {
+    final int        WAITER_COUNT  = 8;
+    final int        ITERATIONS    = 10000;
+    LongEntityLocker singleSegment = new ConcurrentLongEntityLocker(1);
+    int[]            counters      = new int[2];
+    ExecutorService  service       = Executors.newFixedThreadPool(2 * WAITER_COUNT);
+    List<Future<?>>  waiters       = new ArrayList<>();
+    List<Future<?>>  cyclers       = new ArrayList<>();
+
+    singleSegment.lockId(2);
+    for (int i = 0; i < WAITER_COUNT; i++) {
+      waiters.add(service.submit(() -> {
+        singleSegment.lockId(2);
+        counters[1]++;
+        singleSegment.unlockId(2);
+        return null;
+      }));
+      cyclers.add(service.submit(() -> {
+        for (int j = 0; j < ITERATIONS; j++) {
+          singleSegment.lockId(1);
+          counters[0]++;
+          singleSegment.unlockId(1);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> r : cyclers) r.get();
+    assertEquals("Each increment should be done under the lock", WAITER_COUNT * ITERATIONS, counters[0]);
+    singleSegment.unlockId(2);
+    for (Future<?> r : waiters) r.get();
+    service.shutdown();
+    assertEquals("Each waiter of the released id should be woken in turn", WAITER_COUNT, counters[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfTimeoutIsNegative() throws InterruptedException {
+    locker.tryLockId(1L, -1, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeUnlock() {
+    locker.unlockId(FIRST_ENTITY_ID);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldLockIntEntityIds() throws Exception {
+    IntEntityLocker intLocker = EntityLockerFactory.getIntEntityLocker();
+    intLocker.lockId(1);
+    intLocker.lockId(1);
+    intLocker.unlockId(1);
+    intLocker.unlockId(1);
+    assertTrue("Released id should be free", intLocker.tryLockId(1, 0, TimeUnit.MILLISECONDS));
+    intLocker.unlockId(1);
+  }
+
+}
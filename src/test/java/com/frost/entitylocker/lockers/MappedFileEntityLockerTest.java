@@ -0,0 +1,164 @@
+package com.frost.entitylocker.lockers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two lockers opened on one file in one JVM stand for two processes, they share nothing but the mapped table
+ */
+public class MappedFileEntityLockerTest {
+
+  Path                            file;
+  List<MappedFileEntityLocker<?>> lockers = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    file = Files.createTempFile("entity-locks", ".tbl");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (MappedFileEntityLocker<?> locker : lockers) {
+      locker.close();
+    }
+    Files.deleteIfExists(file);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeLockersOfOneFile() throws Exception {
+    MappedFileEntityLocker<String> first  = open(1000L);
+    MappedFileEntityLocker<String> second = open(1000L);
+    first.lockId("entity");
+    assertFalse("Lock should be held by another locker", second.tryLockId("entity", 10L, TimeUnit.MILLISECONDS));
+    assertTrue("Other ids should be free", second.tryLockId("other", 0, TimeUnit.MILLISECONDS));
+    first.unlockId("entity");
+    assertTrue("Should pass after the lock was released", second.tryLockId("entity", 0, TimeUnit.MILLISECONDS));
+    second.unlockId("entity");
+    second.unlockId("other");
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLockAndFreeSlotByOutermostUnlock() throws Exception {
+    MappedFileEntityLocker<String> first  = open(1000L);
+    MappedFileEntityLocker<String> second = open(1000L);
+    first.lockId("entity");
+    assertTrue("Should acquire already held lock", first.tryLockId("entity", 0, TimeUnit.MILLISECONDS));
+    assertEquals(1, first.getTable().size());
+    first.unlockId("entity");
+    assertFalse(second.tryLockId("entity", 0, TimeUnit.MILLISECONDS));
+    first.unlockId("entity");
+    assertEquals("Slot should be freed by the outermost unlock", 0, first.getTable().size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldWaitForThreadOfSameLocker() throws Exception {
+    MappedFileEntityLocker<String> locker   = open(1000L);
+    CountDownLatch                 locked   = new CountDownLatch(1);
+    CountDownLatch                 finished = new CountDownLatch(1);
+    Thread t = new Thread(() -> {
+      try {
+        locker.lockId("entity");
+        locked.countDown();
+        finished.await();
+        locker.unlockId("entity");
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    locked.await();
+    boolean firstTry = locker.tryLockId("entity", 30L, TimeUnit.MILLISECONDS);
+    finished.countDown();
+    boolean secondTry = locker.tryLockId("entity", 500L, TimeUnit.MILLISECONDS);
+    if (secondTry) locker.unlockId("entity");
+    assertFalse("Should fail", firstTry);
+    assertTrue("Should pass after the lock was released", secondTry);
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldReclaimLocksOfDeadLocker() throws Exception {
+    MappedFileEntityLocker<String> crashed = open(100L);
+    MappedFileEntityLocker<String> alive   = open(100L);
+    crashed.lockId("entity");
+    crashed.getTable().stopHeartbeat();
+    assertFalse("Lock should be held until the liveness timeout", alive.tryLockId("entity", 0, TimeUnit.MILLISECONDS));
+    assertTrue("Lock of the dead locker should be reclaimed", alive.tryLockId("entity", 1000L, TimeUnit.MILLISECONDS));
+    alive.unlockId("entity");
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReclaimLocksOfClosedLocker() throws Exception {
+    MappedFileEntityLocker<String> closed = open(1000L);
+    MappedFileEntityLocker<String> alive  = open(1000L);
+    closed.lockId("entity");
+    closed.close();
+    assertTrue(alive.tryLockId("entity", 0, TimeUnit.MILLISECONDS));
+    alive.unlockId("entity");
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldNotWorkConcurrentlyOnSameEntity() throws Exception {
+    final int       ITERATIONS = 2000;
+    int[]           counter    = new int[1];
+    ExecutorService service    = Executors.newFixedThreadPool(4);
+    List<Future<?>> results    = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      MappedFileEntityLocker<String> locker = open(1000L);
+      for (int j = 0; j < 2; j++) {
+        results.add(service.submit(() -> {
+          for (int k = 0; k < ITERATIONS; k++) {
+            locker.lockId("counter");
+            try {
+              counter[0]++;
+            } finally {
+              locker.unlockId("counter");
+            }
+          }
+          return null;
+        }));
+      }
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+    assertEquals(4 * ITERATIONS, counter[0]);
+    assertEquals(0, lockers.get(0).getTable().size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfSlotCountDiffers() throws Exception {
+    open(1000L);
+    new MappedFileEntityLocker<String>(file, 64, 1, TimeUnit.SECONDS, String::hashCode);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionOnUnlockOfNotHeldId() throws Exception {
+    open(1000L).unlockId("entity");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNull() throws Exception {
+    open(1000L).lockId(null);
+  }
+
+  private MappedFileEntityLocker<String> open(long livenessTimeoutMillis) throws Exception {
+    MappedFileEntityLocker<String> locker =
+        new MappedFileEntityLocker<>(file, 1024, livenessTimeoutMillis, TimeUnit.MILLISECONDS, String::hashCode);
+    lockers.add(locker);
+    return locker;
+  }
+
+}
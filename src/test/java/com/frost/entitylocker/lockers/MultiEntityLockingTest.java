@@ -0,0 +1,153 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultiEntityLockingTest {
+
+  private static final List<Supplier<EntityLocker<Integer>>> LOCKERS = Arrays.asList(
+      EntityLockerFactory::getConcurrentEntityLocker,
+      () -> EntityLockerFactory.getStripedEntityLocker(4),
+      () -> EntityLockerFactory.getCasEntityLocker(4),
+      () -> EntityLockerFactory.getStampedEntityLocker(4));
+
+  @Test(timeout = 10000L)
+  public void shouldNotDeadlockWhenIdsAreGivenInDifferentOrder() throws Exception {
+    for (Supplier<EntityLocker<Integer>> supplier : LOCKERS) {
+      EntityLocker<Integer> locker     = supplier.get();
+      final int             ITERATIONS = 10000;
+      int[]                 counters   = new int[5];
+      ExecutorService       service    = Executors.newFixedThreadPool(2);
+      Future<?> forward = service.submit(updateAll(locker, Arrays.asList(0, 1, 2, 3, 4), counters, ITERATIONS));
+      Future<?> reverse = service.submit(updateAll(locker, Arrays.asList(4, 3, 2, 1, 0, 4), counters, ITERATIONS));
+      forward.get();
+      reverse.get();
+      service.shutdown();
+      for (int counter : counters) {
+        assertEquals("Each increment should be done under the lock", 2 * ITERATIONS, counter);
+      }
+    }
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldReleaseAcquiredLocksWhenTimeoutExceed() throws Exception {
+    for (Supplier<EntityLocker<Integer>> supplier : LOCKERS) {
+      EntityLocker<Integer> locker   = supplier.get();
+      CountDownLatch        locked   = new CountDownLatch(1);
+      CountDownLatch        finished = new CountDownLatch(1);
+      Thread t = new Thread(() -> {
+        try {
+          locker.lockId(3);
+          locked.countDown();
+          finished.await();
+          locker.unlockId(3);
+        } catch (InterruptedException ignored) {
+        }
+      });
+      t.start();
+      locked.await();
+      assertFalse("Should fail because id 3 is held", locker.tryLockIds(Arrays.asList(1, 2, 3), 30L, TimeUnit.MILLISECONDS));
+      finished.countDown();
+      t.join();
+
+      ExecutorService service = Executors.newSingleThreadExecutor();
+      Future<Boolean> free = service.submit(() -> locker.tryLockIds(Arrays.asList(1, 2, 3), 0L, TimeUnit.MILLISECONDS));
+      assertTrue("All ids should be released", free.get());
+      service.submit(() -> locker.unlockIds(Arrays.asList(1, 2, 3))).get();
+      service.shutdown();
+    }
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldLockDuplicatedIdsOnce() throws Exception {
+    for (Supplier<EntityLocker<Integer>> supplier : LOCKERS) {
+      EntityLocker<Integer> locker = supplier.get();
+      locker.lockIds(Arrays.asList(7, 7, 8));
+      locker.unlockIds(Arrays.asList(8, 7, 7));
+      ExecutorService service = Executors.newSingleThreadExecutor();
+      assertTrue("Ids should be released", service.submit(() -> locker.tryLockId(7, 0L, TimeUnit.MILLISECONDS)).get());
+      service.shutdown();
+    }
+  }
+
+  @Test(timeout = 10000L)
+  public void shouldNotDeadlockOnIdsWithoutCanonicalOrder() throws Exception {
+    EntityLocker<Object> locker     = EntityLockerFactory.getConcurrentEntityLocker();
+    final int            ITERATIONS = 10000;
+    int[]                counter    = new int[1];
+    ExecutorService      service    = Executors.newFixedThreadPool(2);
+    List<Future<?>>      results    = new ArrayList<>();
+    for (int t = 0; t < 2; t++) {
+      boolean reversed = t == 1;
+      results.add(service.submit(() -> {
+        for (int i = 0; i < ITERATIONS; i++) {
+          List<Object> ids = reversed ? Arrays.asList(new Key(2), new Key(1)) : Arrays.asList(new Key(1), new Key(2));
+          locker.lockIds(ids); // New equal instances each time, so identity order differs between calls
+          counter[0]++;
+          locker.unlockIds(ids);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+    assertEquals(2 * ITERATIONS, counter[0]);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfIdsWereNotLocked() {
+    EntityLockerFactory.<Integer>getConcurrentEntityLocker().unlockIds(Collections.singletonList(1));
+  }
+
+  /**
+   * Id that isn't Comparable and has the same hash code as all other keys
+   */
+  static final class Key {
+
+    final int value;
+
+    Key(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+  }
+
+  private static Callable<Void> updateAll(EntityLocker<Integer> locker, List<Integer> ids, int[] counters, int iterations) {
+    return () -> {
+      for (int i = 0; i < iterations; i++) {
+        locker.lockIds(ids);
+        for (int id : ids) {
+          counters[id]++;
+        }
+        counters[4] -= Collections.frequency(ids, 4) - 1; // Duplicated ids are locked and updated as one id
+        locker.unlockIds(ids);
+      }
+      return null;
+    };
+  }
+
+}
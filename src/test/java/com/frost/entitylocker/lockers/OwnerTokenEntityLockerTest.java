@@ -0,0 +1,96 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.executors.ProtectedCodeExecutor;
+import com.frost.entitylocker.executors.VirtualThreads;
+import com.frost.entitylocker.lockers.OwnerTokenEntityLocker.TokenLock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OwnerTokenEntityLockerTest {
+
+  final int FIRST_ENTITY_ID = 10;
+
+  ConcurrentMap<Integer, TokenLock> map;
+  OwnerTokenEntityLocker<Integer>   locker;
+
+  @Before
+  public void setUp() {
+    map = new ConcurrentHashMap<>();
+    locker = new OwnerTokenEntityLocker<>(map);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReleaseLockOfOwnerTokenInAnotherThread() throws Exception {
+    Object owner = new Object();
+    locker.lockId(FIRST_ENTITY_ID, owner);
+    Thread t = new Thread(() -> locker.unlockId(FIRST_ENTITY_ID, owner));
+    t.start();
+    t.join();
+    assertTrue("Lock should be released by another thread", locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS));
+    locker.unlockId(FIRST_ENTITY_ID);
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLockForTheSameOwner() throws Exception {
+    Object owner = new Object();
+    locker.lockId(FIRST_ENTITY_ID, owner);
+    assertTrue(locker.tryLockId(FIRST_ENTITY_ID, owner, 0, TimeUnit.MILLISECONDS));
+    assertFalse("Other owner should wait", locker.tryLockId(FIRST_ENTITY_ID, new Object(), 10, TimeUnit.MILLISECONDS));
+    locker.unlockId(FIRST_ENTITY_ID, owner);
+    assertFalse(locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS));
+    locker.unlockId(FIRST_ENTITY_ID, owner);
+    assertEquals(0, map.size());
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldNotWorkConcurrentlyOnSameEntityOnVirtualThreads() throws Exception {
+    final int                      TASK_COUNT = 1000;
+    int[]                          counter    = new int[1];
+    ProtectedCodeExecutor<Integer> executor   = new ProtectedCodeExecutor<>(locker);
+    ExecutorService                service    = VirtualThreads.newThreadPerTaskExecutor();
+    List<CompletableFuture<?>>     results    = new ArrayList<>();
+    for (int i = 0; i < TASK_COUNT; i++) {
+      results.add(CompletableFuture.runAsync(() -> {
+        try {
+          executor.execute(FIRST_ENTITY_ID, () -> counter[0]++);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }, service));
+    }
+    for (CompletableFuture<?> r : results) r.get();
+    service.shutdown();
+    assertEquals(TASK_COUNT, counter[0]);
+    assertEquals(0, map.size());
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfAnotherOwnerUnlocks() throws InterruptedException {
+    locker.lockId(FIRST_ENTITY_ID, new Object());
+    locker.unlockId(FIRST_ENTITY_ID, new Object());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfOwnerIsNull() throws InterruptedException {
+    locker.lockId(FIRST_ENTITY_ID, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfTimeoutIsNegative() throws InterruptedException {
+    locker.tryLockId(FIRST_ENTITY_ID, -1, TimeUnit.MILLISECONDS);
+  }
+
+}
@@ -0,0 +1,192 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.frost.entitylocker.executors.RangeProtectedCodeExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangeEntityLockerTest {
+
+  RangeEntityLocker<Integer> locker;
+  ExecutorService            service;
+
+  @Before
+  public void setUp() {
+    locker = EntityLockerFactory.getRangeEntityLocker();
+    service = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludePointsInsideOfLockedRange() throws Exception {
+    locker.lockRange(100, 200);
+    assertFalse("Id inside of the range should wait", tryLockAndUnlock(150, 150));
+    assertFalse("Lower bound should be locked", tryLockAndUnlock(100, 100));
+    assertFalse("Upper bound should be locked", tryLockAndUnlock(200, 200));
+    assertFalse("Overlapping range should wait", tryLockAndUnlock(190, 300));
+    assertTrue("Id outside of the range should be locked concurrently", tryLockAndUnlock(201, 201));
+    assertTrue("Disjoint range should be locked concurrently", tryLockAndUnlock(0, 99));
+    locker.unlockRange(100, 200);
+    assertTrue(tryLockAndUnlock(150, 150));
+    assertEquals("Released locks should be removed", 0, locker.getRequestCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeRangeContainingLockedPoint() throws Exception {
+    locker.lockId(150);
+    assertFalse(tryLockAndUnlock(100, 200));
+    assertTrue(tryLockAndUnlock(151, 200));
+    locker.unlockId(150);
+    assertTrue(tryLockAndUnlock(100, 200));
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLocks() throws Exception {
+    locker.lockRange(100, 200);
+    locker.lockId(150); // Covered by the held range
+    locker.lockRange(120, 130);
+    locker.unlockRange(120, 130);
+    locker.unlockId(150);
+    assertFalse(tryLockAndUnlock(150, 150));
+    locker.unlockRange(100, 200);
+    assertTrue(tryLockAndUnlock(150, 150));
+    assertEquals(0, locker.getRequestCount());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldNotStarveRangeByNewPointLocks() throws Exception {
+    ExecutorService rangeService = Executors.newSingleThreadExecutor();
+    CountDownLatch  rangeLocked  = new CountDownLatch(1);
+    locker.lockId(150);
+    Future<?> range = rangeService.submit(() -> {
+      locker.lockRange(100, 200);
+      rangeLocked.countDown();
+      locker.unlockRange(100, 200);
+      return null;
+    });
+    while (locker.getRequestCount() < 2) {
+      Thread.sleep(1);
+    }
+    assertFalse("New point lock should wait for the range requested before", tryLockAndUnlock(160, 160));
+    locker.unlockId(150);
+    rangeLocked.await();
+    range.get();
+    rangeService.shutdown();
+    assertEquals(0, locker.getRequestCount());
+  }
+
+  @Test(timeout = 2000L)
+  public void shouldNotDeadlockHolderWithRangeRequestedInBetween() throws Exception {
+    ExecutorService rangeService = Executors.newSingleThreadExecutor();
+    locker.lockId(5);
+    Future<?> range = rangeService.submit(() -> {
+      locker.lockRange(1, 10);
+      locker.unlockRange(1, 10);
+      return null;
+    });
+    while (locker.getRequestCount() < 2) {
+      Thread.sleep(1);
+    }
+    assertTrue("Holder should not wait for the range that waits for it",
+               locker.tryLockId(7, 500L, TimeUnit.MILLISECONDS));
+    locker.lockId(8);
+    locker.unlockId(8);
+    locker.unlockId(7);
+    assertEquals("Range should still wait for the first lock", 2, locker.getRequestCount());
+    locker.unlockId(5);
+    range.get();
+    rangeService.shutdown();
+    assertEquals(0, locker.getRequestCount());
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldExecuteRangeExclusively() throws Exception {
+    RangeProtectedCodeExecutor<Integer> executor = new RangeProtectedCodeExecutor<>(locker);
+    ExecutorService                     workers  = Executors.newFixedThreadPool(4);
+    AtomicBoolean                       inRange  = new AtomicBoolean();
+    AtomicBoolean                       failed   = new AtomicBoolean();
+    Future<?>[]                         results  = new Future<?>[4];
+    for (int i = 0; i < results.length; i++) {
+      final boolean bulk = i == 0;
+      results[i] = workers.submit(() -> {
+        for (int j = 0; j < 200; j++) {
+          if (bulk) {
+            executor.executeRange(0, 99, () -> {
+              inRange.set(true);
+              Thread.yield();
+              inRange.set(false);
+            });
+          } else {
+            executor.execute(j % 100, () -> {
+              if (inRange.get()) {
+                failed.set(true);
+              }
+            });
+          }
+        }
+        return null;
+      });
+    }
+    for (Future<?> r : results) r.get();
+    workers.shutdown();
+    assertFalse("Point code should never run while the range is executed", failed.get());
+    assertTrue(executor.tryToExecuteRange(0, 99, 0, () -> {
+    }));
+    assertEquals(0, locker.getRequestCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldLockSeveralIdsAtOnce() throws Exception {
+    locker.lockIds(Arrays.asList(3, 1, 2, 1));
+    assertFalse(tryLockAndUnlock(2, 2));
+    locker.unlockIds(Arrays.asList(1, 2, 3));
+    assertEquals(0, locker.getRequestCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfBoundsAreReversed() throws InterruptedException {
+    locker.lockRange(200, 100);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockRangeBeforeUnlock() throws InterruptedException {
+    locker.lockId(150);
+    try {
+      locker.unlockRange(100, 200);
+    } finally {
+      locker.unlockId(150);
+    }
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNullOnLock() throws InterruptedException {
+    locker.lockId(null);
+  }
+
+  private boolean tryLockAndUnlock(int from, int to) throws Exception {
+    return service.submit(() -> {
+      if (!locker.tryLockRange(from, to, 10, TimeUnit.MILLISECONDS)) {
+        return false;
+      }
+      locker.unlockRange(from, to);
+      return true;
+    }).get();
+  }
+
+}
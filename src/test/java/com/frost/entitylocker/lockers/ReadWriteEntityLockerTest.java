@@ -0,0 +1,167 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.frost.entitylocker.executors.ProtectedCodeExecutor;
+import com.frost.entitylocker.lockers.ConcurrentMapReadWriteEntityLocker.ReadWriteEntityLock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadWriteEntityLockerTest {
+
+  final int FIRST_ENTITY_ID = 10;
+
+  ReadWriteEntityLocker<Integer> locker;
+
+  @Before
+  public void setUp() {
+    locker = EntityLockerFactory.getReadWriteEntityLocker();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAllowConcurrentReaders() throws Exception {
+    CountDownLatch  bothLocked = new CountDownLatch(2);
+    ExecutorService service    = Executors.newFixedThreadPool(2);
+    Future<?>[]     results    = new Future<?>[2];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = service.submit(() -> {
+        locker.lockShared(FIRST_ENTITY_ID);
+        try {
+          bothLocked.countDown();
+          bothLocked.await(); // Both readers should hold the lock at the same time
+        } finally {
+          locker.unlockShared(FIRST_ENTITY_ID);
+        }
+        return null;
+      });
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeReadersAndWriters() throws Exception {
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    locker.lockShared(FIRST_ENTITY_ID);
+    assertFalse("Writer should wait for reader",
+        service.submit(() -> locker.tryLockExclusive(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS)).get());
+    locker.unlockShared(FIRST_ENTITY_ID);
+
+    locker.lockExclusive(FIRST_ENTITY_ID);
+    assertFalse("Reader should wait for writer",
+        service.submit(() -> locker.tryLockShared(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS)).get());
+    assertFalse("Writer should wait for writer",
+        service.submit(() -> locker.tryLockId(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS)).get());
+    locker.unlockExclusive(FIRST_ENTITY_ID);
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLocks() throws Exception {
+    locker.lockExclusive(FIRST_ENTITY_ID);
+    locker.lockExclusive(FIRST_ENTITY_ID);
+    locker.lockShared(FIRST_ENTITY_ID); // Writer can acquire shared lock as well
+    locker.unlockShared(FIRST_ENTITY_ID);
+    locker.unlockExclusive(FIRST_ENTITY_ID);
+    locker.unlockExclusive(FIRST_ENTITY_ID);
+    locker.lockShared(FIRST_ENTITY_ID);
+    locker.lockShared(FIRST_ENTITY_ID);
+    locker.unlockShared(FIRST_ENTITY_ID);
+    locker.unlockShared(FIRST_ENTITY_ID);
+  }
+
+  @Test
+  public void shouldCleanBackingMapAfterExecution() throws Exception {
+    ConcurrentMap<Integer, ReadWriteEntityLock> map    = new ConcurrentHashMap<>();
+    ReadWriteEntityLocker<Integer>              locker = new ConcurrentMapReadWriteEntityLocker<>(map);
+    locker.lockShared(FIRST_ENTITY_ID);
+    locker.lockExclusive(FIRST_ENTITY_ID + 1);
+    assertTrue(locker.tryLockShared(FIRST_ENTITY_ID + 1, 0, TimeUnit.MILLISECONDS));
+    locker.unlockShared(FIRST_ENTITY_ID + 1);
+    locker.unlockExclusive(FIRST_ENTITY_ID + 1);
+    locker.unlockShared(FIRST_ENTITY_ID);
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldCleanBackingMapAfterConcurrentLocking() throws Exception {
+    final int                                   THREAD_COUNT = 8;
+    final int                                   ITERATIONS   = 10000;
+    ConcurrentMap<Integer, ReadWriteEntityLock> map          = new ConcurrentHashMap<>();
+    ReadWriteEntityLocker<Integer>              locker       = new ConcurrentMapReadWriteEntityLocker<>(map);
+    int[]                                       counters     = new int[2];
+    ExecutorService                             service      = Executors.newFixedThreadPool(THREAD_COUNT);
+    Future<?>[]                                 results      = new Future<?>[THREAD_COUNT];
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      results[i] = service.submit(() -> {
+        for (int j = 0; j < ITERATIONS; j++) {
+          int index = j % counters.length;
+          if (j % 3 == 0) {
+            locker.lockExclusive(index);
+            counters[index]++;
+            locker.unlockExclusive(index);
+          } else {
+            locker.lockShared(index); // Entries are retired and created again all the time
+            locker.unlockShared(index);
+          }
+        }
+        return null;
+      });
+    }
+    for (Future<?> r : results) r.get();
+    service.shutdown();
+    int writes = (ITERATIONS + 2) / 3; // Iterations divisible by three
+    assertEquals("Each increment should be done under the lock", THREAD_COUNT * writes, counters[0] + counters[1]);
+    assertEquals("We should have clean backing map to avoid memory leaks", 0, map.size());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExecuteReadCodeConcurrently() throws Exception {
+    ProtectedCodeExecutor<Integer> executor   = new ProtectedCodeExecutor<>(locker);
+    CountDownLatch                 bothLocked = new CountDownLatch(2);
+    Thread reader = new Thread(() -> {
+      try {
+        executor.executeRead(FIRST_ENTITY_ID, () -> {
+          bothLocked.countDown();
+          bothLocked.await();
+        });
+      } catch (Exception ignored) {
+      }
+    });
+    reader.start();
+    executor.executeRead(FIRST_ENTITY_ID, () -> {
+      bothLocked.countDown();
+      bothLocked.await();
+    });
+    reader.join();
+    assertTrue("Write should be executed when readers are done",
+        executor.tryToExecuteWrite(FIRST_ENTITY_ID, 0, () -> {
+        }));
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeUnlock() throws Exception {
+    locker.lockShared(FIRST_ENTITY_ID);
+    try {
+      locker.unlockExclusive(FIRST_ENTITY_ID);
+    } finally {
+      locker.unlockShared(FIRST_ENTITY_ID);
+    }
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNullOnLock() throws InterruptedException {
+    locker.lockShared(null);
+  }
+
+}
@@ -0,0 +1,126 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.frost.entitylocker.executors.ProtectedCodeExecutor;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StampedEntityLockerTest {
+
+  final int FIRST_ENTITY_ID = 10;
+
+  StampedEntityLocker<Integer> locker;
+
+  @Before
+  public void setUp() {
+    locker = EntityLockerFactory.getStampedEntityLocker();
+  }
+
+  @Test
+  public void shouldValidateStampWhenThereWasNoWriter() throws Exception {
+    long stamp = locker.tryOptimisticRead(FIRST_ENTITY_ID);
+    assertNotEquals("Stamp should be issued", 0L, stamp);
+    locker.lockShared(FIRST_ENTITY_ID);
+    locker.unlockShared(FIRST_ENTITY_ID);
+    assertTrue("Readers shouldn't invalidate the stamp", locker.validate(FIRST_ENTITY_ID, stamp));
+  }
+
+  @Test
+  public void shouldInvalidateStampWhenWriterIntervened() throws Exception {
+    long stamp = locker.tryOptimisticRead(FIRST_ENTITY_ID);
+    locker.lockExclusive(FIRST_ENTITY_ID);
+    locker.lockExclusive(FIRST_ENTITY_ID);
+    assertEquals("Stamp shouldn't be issued while the entity is exclusively locked", 0L, locker.tryOptimisticRead(FIRST_ENTITY_ID));
+    locker.unlockExclusive(FIRST_ENTITY_ID);
+    assertEquals("Stamp shouldn't be issued until the last unlock", 0L, locker.tryOptimisticRead(FIRST_ENTITY_ID));
+    locker.unlockExclusive(FIRST_ENTITY_ID);
+    assertFalse("Writer should invalidate the stamp", locker.validate(FIRST_ENTITY_ID, stamp));
+    assertTrue("New stamp should be valid", locker.validate(FIRST_ENTITY_ID, locker.tryOptimisticRead(FIRST_ENTITY_ID)));
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeReadersAndWriters() throws Exception {
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    locker.lockShared(FIRST_ENTITY_ID);
+    assertFalse("Writer should wait for reader",
+        service.submit(() -> locker.tryLockExclusive(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS)).get());
+    locker.unlockShared(FIRST_ENTITY_ID);
+    locker.lockId(FIRST_ENTITY_ID);
+    assertFalse("Reader should wait for writer",
+        service.submit(() -> locker.tryLockShared(FIRST_ENTITY_ID, 10, TimeUnit.MILLISECONDS)).get());
+    locker.unlockId(FIRST_ENTITY_ID);
+    service.shutdown();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRetryOptimisticReadUnderLockWhenWriterIntervened() throws Exception {
+    ProtectedCodeExecutor<Integer> executor   = new ProtectedCodeExecutor<>(locker);
+    ExecutorService                service    = Executors.newSingleThreadExecutor();
+    AtomicInteger                  executions = new AtomicInteger();
+    int[]                          value      = new int[1];
+    int[]                          read       = new int[1];
+    executor.executeOptimisticRead(FIRST_ENTITY_ID, () -> {
+      if (executions.incrementAndGet() == 1) { // Writer changes the entity during the first optimistic read
+        service.submit(() -> {
+          executor.executeWrite(FIRST_ENTITY_ID, () -> value[0] = 42);
+          return null;
+        }).get();
+      }
+      read[0] = value[0];
+    });
+    service.shutdown();
+    assertEquals("Code should be executed again under the lock", 2, executions.get());
+    assertEquals("The second execution should read the new value", 42, read[0]);
+  }
+
+  @Test
+  public void shouldExecuteOptimisticReadOnceWithoutWriters() throws Exception {
+    ProtectedCodeExecutor<Integer> executor   = new ProtectedCodeExecutor<>(locker);
+    AtomicInteger                  executions = new AtomicInteger();
+    executor.executeOptimisticRead(FIRST_ENTITY_ID, executions::incrementAndGet);
+    assertEquals("Code should be executed once", 1, executions.get());
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldLockIdsOfCrossingStripesWithoutDeadlock() throws Exception {
+    List<Integer>   first   = Arrays.asList(1, 2000);   // Stripes 1 and 976 of 1024
+    List<Integer>   second  = Arrays.asList(976, 1025); // Stripes 976 and 1
+    ExecutorService service = Executors.newFixedThreadPool(2);
+    Future<?>       a       = service.submit(lockIdsRepeatedly(first));
+    Future<?>       b       = service.submit(lockIdsRepeatedly(second));
+    a.get();
+    b.get();
+    service.shutdown();
+    assertTrue("All stripes should be released", locker.tryLockIds(Arrays.asList(1, 976), 0L, TimeUnit.MILLISECONDS));
+    locker.unlockIds(Arrays.asList(1, 976));
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeUnlock() {
+    locker.unlockExclusive(FIRST_ENTITY_ID);
+  }
+
+  private Callable<Void> lockIdsRepeatedly(List<Integer> ids) {
+    return () -> {
+      for (int i = 0; i < 10000; i++) {
+        locker.lockIds(ids);
+        locker.unlockIds(ids);
+      }
+      return null;
+    };
+  }
+
+}
@@ -0,0 +1,122 @@
+package com.frost.entitylocker.lockers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedEntityLockerTest {
+
+  final int FIRST_ENTITY_ID = 10;
+
+  EntityLocker<Integer> locker;
+
+  @Before
+  public void setUp() {
+    locker = EntityLockerFactory.getStripedEntityLocker();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLock() throws Exception {
+    int result = 0;
+    locker.lockId(FIRST_ENTITY_ID);
+    result++;
+    assertTrue("Should acquire already held lock", locker.tryLockId(FIRST_ENTITY_ID, 0, TimeUnit.MILLISECONDS));
+    result++;
+    locker.unlockId(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    assertEquals("Should be incremented twice under the first and the second lock", 2, result);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReturnFalseWhenTimeoutExceed() throws Exception {
+    CountDownLatch locked   = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+
+    Thread t = new Thread(() -> {
+      try {
+        locker.lockId(FIRST_ENTITY_ID);
+        locked.countDown();
+        finished.await();
+        locker.unlockId(FIRST_ENTITY_ID);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    locked.await();
+    boolean firstTry = locker.tryLockId(FIRST_ENTITY_ID, 30L, TimeUnit.MILLISECONDS);
+    finished.countDown();
+    t.join();
+    boolean secondTry = locker.tryLockId(FIRST_ENTITY_ID, 30L, TimeUnit.MILLISECONDS);
+    if (secondTry) locker.unlockId(FIRST_ENTITY_ID);
+    assertFalse("Should fail", firstTry);
+    assertTrue("Should pass", secondTry);
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldNotWorkConcurrentlyOnSameEntity() throws Exception {
+    final int          THREAD_COUNT = 10;
+    AtomicBoolean      isRunning    = new AtomicBoolean(false);
+    AtomicBoolean      failed       = new AtomicBoolean(false);
+    ExecutorService    service      = Executors.newFixedThreadPool(THREAD_COUNT);
+    CountDownLatch     latch        = new CountDownLatch(THREAD_COUNT);
+    List<Future<Long>> results      = new ArrayList<>();
+
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      results.add(service.submit(
+          () -> {
+            latch.countDown();
+            latch.await();
+            locker.lockId(FIRST_ENTITY_ID);
+            if (isRunning.get()) failed.set(true);
+            isRunning.set(true);
+            Thread.sleep(10);
+            isRunning.set(false);
+            locker.unlockId(FIRST_ENTITY_ID);
+            return 1L;
+          }));
+    }
+    for (Future<Long> r : results) r.get();
+    service.shutdown();
+    assertFalse("Only one thread should work on one entity", failed.get());
+  }
+
+  @Test
+  public void shouldRoundStripeCountUpToPowerOfTwo() {
+    assertEquals(1, new StripedEntityLocker<Integer>(1).getStripeCount());
+    assertEquals(8, new StripedEntityLocker<Integer>(5).getStripeCount());
+    assertEquals(64, new StripedEntityLocker<Integer>(64).getStripeCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfStripeCountIsNotPositive() {
+    new StripedEntityLocker<Integer>(0);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNullOnLock() throws InterruptedException {
+    locker.lockId(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowExceptionIfTimeoutIsNegative() throws InterruptedException {
+    locker.tryLockId(1, -1, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockEntityBeforeUnlock() {
+    locker.unlockId(FIRST_ENTITY_ID);
+  }
+
+}
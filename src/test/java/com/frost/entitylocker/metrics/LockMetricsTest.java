@@ -0,0 +1,100 @@
+package com.frost.entitylocker.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+
+import com.frost.entitylocker.lockers.ConcurrentMapEntityLocker;
+import com.frost.entitylocker.lockers.EntityLockerFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LockMetricsTest {
+
+  final int FIRST_ENTITY_ID = 10;
+
+  LockMetrics                        metrics;
+  ConcurrentMapEntityLocker<Integer> locker;
+
+  @Before
+  public void setUp() {
+    metrics = new LockMetrics();
+    locker = EntityLockerFactory.<Integer>getConcurrentEntityLockerBuilder().withMetrics(metrics).build();
+  }
+
+  @Test
+  public void shouldRecordValuesIntoPowerOfTwoBuckets() {
+    Histogram histogram = new Histogram();
+    histogram.record(0);
+    histogram.record(1);
+    histogram.record(1000);
+    histogram.record(1000);
+    HistogramSnapshot snapshot = histogram.snapshot();
+    assertEquals(4, snapshot.getCount());
+    assertEquals(2001, snapshot.getSum());
+    assertEquals(1, snapshot.getBuckets()[0]);
+    assertEquals(1, snapshot.getBuckets()[1]);
+    assertEquals(2, snapshot.getBuckets()[10]);
+    assertEquals(0, snapshot.getValueAtPercentile(25));
+    assertEquals(1023, snapshot.getValueAtPercentile(99));
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRecordUncontendedAndReentrantAcquisitions() throws Exception {
+    locker.lockId(FIRST_ENTITY_ID);
+    locker.lockId(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    LockMetricsSnapshot snapshot = metrics.snapshot();
+    assertEquals(2, snapshot.getAcquisitions());
+    assertEquals(0, snapshot.getContendedAcquisitions());
+    assertEquals(2, snapshot.getWaitTime().getCount());
+    assertEquals("Hold time is recorded once for the outermost acquisition", 1, snapshot.getHoldTime().getCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldRecordContentionAndTimeouts() throws Exception {
+    CountDownLatch locked = new CountDownLatch(1);
+    Thread t = new Thread(() -> {
+      try {
+        locker.lockId(FIRST_ENTITY_ID);
+        locked.countDown();
+        Thread.sleep(50);
+        locker.unlockId(FIRST_ENTITY_ID);
+      } catch (InterruptedException ignored) {
+      }
+    });
+    t.start();
+    locked.await();
+    assertFalse(locker.tryLockId(FIRST_ENTITY_ID, 1, TimeUnit.MILLISECONDS));
+    locker.lockId(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    t.join();
+    LockMetricsSnapshot snapshot = metrics.snapshot();
+    assertEquals(2, snapshot.getAcquisitions());
+    assertEquals(1, snapshot.getContendedAcquisitions());
+    assertEquals(1, snapshot.getTimeouts());
+    assertTrue("Waiting should take at least 1ms", snapshot.getWaitTime().getValueAtPercentile(100) >= 1_000_000);
+    assertEquals(2, snapshot.getHoldTime().getCount());
+  }
+
+  @Test
+  public void shouldExposeMetricsThroughJmx() throws Exception {
+    locker.lockId(FIRST_ENTITY_ID);
+    locker.unlockId(FIRST_ENTITY_ID);
+    ObjectName name = metrics.registerMBean("test");
+    try {
+      Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AcquisitionCount");
+      assertEquals(1L, value);
+    } finally {
+      metrics.unregisterMBean();
+    }
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+
+}
@@ -0,0 +1,200 @@
+package com.frost.entitylocker.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteEntityLockerTest {
+
+  LoopbackLockServer          server;
+  RemoteEntityLocker<Integer> first;
+  RemoteEntityLocker<Integer> second;
+  ExecutorService             service;
+
+  @Before
+  public void setUp() {
+    server = new LoopbackLockServer();
+    first = new RemoteEntityLocker<>(server.connect());
+    second = new RemoteEntityLocker<>(server.connect());
+    service = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    service.shutdown();
+    first.close();
+    second.close();
+    server.close();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldExcludeClientsOfTheSameServer() throws Exception {
+    first.lockId(1);
+    assertFalse("Another client should wait for the lock", tryLockAndUnlock(second, 1));
+    assertTrue("Other ids should be locked concurrently", tryLockAndUnlock(second, 2));
+    first.unlockId(1);
+    assertTrue(tryLockAndUnlock(second, 1));
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldLockFreeIdWithoutWaiting() throws Exception {
+    assertTrue("Free id should be granted by the server", first.tryLockId(1, 0, TimeUnit.MILLISECONDS));
+    assertFalse("Held id should be denied by the server",
+        service.submit(() -> second.tryLockId(1, 0, TimeUnit.MILLISECONDS)).get());
+    first.unlockId(1);
+    assertEquals(1, first.getRemoteAcquireCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReuseCachedGrant() throws Exception {
+    first.lockId(1);
+    first.unlockId(1);
+    first.lockId(1);
+    first.unlockId(1);
+    assertEquals("Second acquisition should use the cached grant", 1, first.getRemoteAcquireCount());
+    assertEquals(1, first.getCacheHitCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldAcquireReentrantLocksLocally() throws Exception {
+    first.lockId(1);
+    first.lockId(1);
+    first.unlockId(1);
+    assertFalse(tryLockAndUnlock(second, 1));
+    first.unlockId(1);
+    assertEquals(1, first.getRemoteAcquireCount());
+    assertTrue(tryLockAndUnlock(second, 1));
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReleaseCachedGrantOnRevoke() throws Exception {
+    first.lockId(1);
+    first.unlockId(1); // Grant is cached now
+    assertTrue("Cached grant should be released when another client waits for it",
+        service.submit(() -> {
+          second.lockId(1);
+          second.unlockId(1);
+          return true;
+        }).get());
+    first.lockId(1);
+    first.unlockId(1);
+    assertEquals("Released grant should be requested again", 2, first.getRemoteAcquireCount());
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldNotCacheGrantsOverLimit() throws Exception {
+    RemoteEntityLocker<Integer> locker = new RemoteEntityLocker<>(server.connect(), 0);
+    locker.lockId(1);
+    locker.unlockId(1);
+    locker.lockId(1);
+    locker.unlockId(1);
+    assertEquals(2, locker.getRemoteAcquireCount());
+    while (server.getLockCount() != 0) { // Release is sent asynchronously
+      Thread.sleep(1);
+    }
+    locker.close();
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldReleaseGrantsOfClosedClient() throws Exception {
+    first.lockId(1);
+    first.close();
+    assertTrue("Locks of the closed client should be released", tryLockAndUnlock(second, 1));
+  }
+
+  @Test(timeout = 5000L)
+  public void shouldExecuteCodeExclusivelyOnAllClients() throws Exception {
+    ExecutorService workers = Executors.newFixedThreadPool(4);
+    int[]           counter = new int[1];
+    List<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      RemoteEntityLocker<Integer> locker = i % 2 == 0 ? first : second;
+      results.add(workers.submit(() -> {
+        for (int j = 0; j < 200; j++) {
+          locker.lockId(1);
+          try {
+            counter[0]++;
+          } finally {
+            locker.unlockId(1);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> r : results) r.get();
+    workers.shutdown();
+    first.lockId(1); // Lock of the server publishes the counter
+    assertEquals(800, counter[0]);
+    first.unlockId(1);
+  }
+
+  @Test(timeout = 1000L)
+  public void shouldSendMessagesQueuedDuringSendInOneBatch() throws Exception {
+    CountDownLatch sending = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    List<Integer>  sizes   = new ArrayList<>();
+    RequestBatcher batcher = new RequestBatcher(new LockTransport() {
+      @Override
+      public void open(LockMessageHandler handler) {
+      }
+
+      @Override
+      public void send(List<LockMessage> messages) {
+        sizes.add(messages.size());
+        sending.countDown();
+        try {
+          proceed.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    Future<?> flusher = service.submit(() -> batcher.send(LockMessage.release(1)));
+    sending.await();
+    for (int i = 2; i <= 4; i++) {
+      batcher.send(LockMessage.release(i)); // Queued, the flushing thread sends them
+    }
+    proceed.countDown();
+    flusher.get();
+    assertEquals("[1, 3]", sizes.toString());
+    assertEquals(2, batcher.getBatchCount());
+    assertEquals(4, batcher.getMessageCount());
+  }
+
+  @Test(expected = IllegalMonitorStateException.class)
+  public void shouldThrowExceptionIfThreadDidNotLockIdBeforeUnlock() {
+    first.unlockId(1);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrowNullPointerExceptionIfIdIsNullOnLock() throws InterruptedException {
+    first.lockId(null);
+  }
+
+  private boolean tryLockAndUnlock(RemoteEntityLocker<Integer> locker, int entityId) throws Exception {
+    return service.submit(() -> {
+      if (!locker.tryLockId(entityId, 10, TimeUnit.MILLISECONDS)) {
+        return false;
+      }
+      locker.unlockId(entityId);
+      return true;
+    }).get();
+  }
+
+}